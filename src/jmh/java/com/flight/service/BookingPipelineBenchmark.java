@@ -0,0 +1,142 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Booking;
+import com.flight.entity.FLIGHT_STATUS;
+import com.flight.entity.FLIGHT_TYPE;
+import com.flight.entity.Flight;
+import com.flight.entity.GENDER;
+import com.flight.entity.MEAL_TYPE;
+import com.flight.entity.User;
+import com.flight.repository.inmemory.AirlineInMemoryRepository;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.repository.inmemory.PassengerInMemoryRepository;
+import com.flight.repository.inmemory.TripViewInMemoryRepository;
+import com.flight.repository.inmemory.UserInMemoryRepository;
+import com.flight.request.BookingRequest;
+import com.flight.request.PassengerRequest;
+
+import jakarta.validation.Validation;
+
+//whole FlightServiceReactiveImpl pipelines over the inmemory repositories: operator chains, validation, seat map
+//updates, booking assembly and pnr generation, everything but the database round trips
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class BookingPipelineBenchmark 
+{
+	private static final LocalDate DAY=LocalDate.now().plusDays(30);
+
+	private FlightServiceReactiveImpl cachedService;
+	private FlightServiceReactiveImpl uncachedService;
+	private BookingRequest request;
+	private String existingPnr;
+
+	@Setup
+	public void setup() 
+	{
+		BookingInMemoryRepository bookings=new BookingInMemoryRepository(Duration.ZERO);
+		FlightInMemoryRepository flights=new FlightInMemoryRepository(Duration.ZERO,bookings);
+		UserInMemoryRepository users=new UserInMemoryRepository(Duration.ZERO,bookings);
+		users.save(new User("U1","bench","bench@test.com")).block();
+		AIRPORT_CODE[] airports=AIRPORT_CODE.values();
+		for (int i=0;i<550;i++) 
+		{
+			//50 flights on DEL-BOM that day, the rest spread over other routes
+			AIRPORT_CODE from=i<50 ? AIRPORT_CODE.DEL : airports[i%airports.length];
+			AIRPORT_CODE to=i<50 ? AIRPORT_CODE.BOM : airports[(i+1)%airports.length];
+			LocalDateTime departure=DAY.atTime(i%24,i%60);
+			flights.save(new Flight("F"+i,"AI","AI"+i,from,to,departure,departure.plusHours(2),
+					180,180,5000f+i,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true)).block();
+		}
+		cachedService=service(flights,bookings,users,new FlightSearchCache(10_000,Duration.ofMinutes(10)));
+		//size 0 evicts straight away, every search goes to the repository
+		uncachedService=service(flights,bookings,users,new FlightSearchCache(0,Duration.ofMinutes(10)));
+
+		request=new BookingRequest();
+		request.setFlightId("F0");
+		request.setUserId("U1");
+		request.setSeatsBooked(2);
+		request.setMealType(MEAL_TYPE.VEG);
+		request.setFlightType(FLIGHT_TYPE.ONE_WAY);
+		request.setPassengers(List.of(passenger("A1"),passenger("A2")));
+
+		BookingRequest other=new BookingRequest();
+		other.setFlightId("F1");
+		other.setUserId("U1");
+		other.setSeatsBooked(1);
+		other.setMealType(MEAL_TYPE.VEG);
+		other.setFlightType(FLIGHT_TYPE.ONE_WAY);
+		other.setPassengers(List.of(passenger("C3")));
+		existingPnr=cachedService.bookTicket("F1",other).block();
+	}
+
+	private static FlightServiceReactiveImpl service(FlightInMemoryRepository flights, BookingInMemoryRepository bookings,
+			UserInMemoryRepository users, FlightSearchCache cache) 
+	{
+		return new FlightServiceReactiveImpl(flights,bookings,new PassengerInMemoryRepository(Duration.ZERO),
+				new AirlineInMemoryRepository(Duration.ZERO),users,cache,event->{},Validation.buildDefaultValidatorFactory().getValidator(),
+				null,new PnrGenerator(),new LookupCoalescer(),new ExistenceFilters(users,bookings,true,0.01,1000),
+				new TripViewProjection(new TripViewInMemoryRepository(Duration.ZERO)));
+	}
+
+	private static PassengerRequest passenger(String seat) 
+	{
+		PassengerRequest passenger=new PassengerRequest();
+		passenger.setName("P"+seat);
+		passenger.setGender(GENDER.M);
+		passenger.setAge(30);
+		passenger.setSeatNumber(seat);
+		return passenger;
+	}
+
+	//book two seats and cancel them again so the flight stays in the same state
+	@Benchmark
+	public String bookAndCancel() 
+	{
+		return cachedService.bookTicket("F0",request)
+				.flatMap(pnr->cachedService.cancelBooking(pnr).thenReturn(pnr))
+				.block();
+	}
+
+	@Benchmark
+	public Booking getTicket() 
+	{
+		return cachedService.getTicket(existingPnr).block();
+	}
+
+	@Benchmark
+	public List<Flight> searchCached() 
+	{
+		return cachedService.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,DAY).collectList().block();
+	}
+
+	@Benchmark
+	public List<Flight> searchUncached() 
+	{
+		return uncachedService.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,DAY).collectList().block();
+	}
+}
@@ -0,0 +1,108 @@
+package com.flight.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flight.entity.GENDER;
+import com.flight.entity.SeatMap;
+import com.flight.request.PassengerRequest;
+
+//per request seat checks of the booking path: duplicate seats within the request, and free seats against
+//the flight's seat map at different occupancies of a 180 seat (A-F x 30) aircraft
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class BookingRulesBenchmark 
+{
+	private static final String ROWS="ABCDEF";
+	private static final int NUMBERS=30;
+
+	@Param({"1","4","9"})
+	int passengers;
+
+	private List<String> seats;
+	private List<PassengerRequest> request;
+
+	@Setup
+	public void setup() 
+	{
+		seats=new ArrayList<>();
+		for (char row:ROWS.toCharArray()) 
+		{
+			for (int number=1;number<=NUMBERS;number++) 
+			{
+				seats.add(""+row+number);
+			}
+		}
+		Collections.shuffle(seats,new Random(42));
+		request=passengers(seats.subList(0,passengers));
+	}
+
+	//flight with the given share of seats taken, the request asks for free ones so every check runs to the end
+	@State(Scope.Benchmark)
+	public static class Occupancy 
+	{
+		@Param({"0","50","90"})
+		int occupancyPercent;
+
+		Map<String,Long> seatMap;
+		List<PassengerRequest> request;
+
+		@Setup
+		public void setup(BookingRulesBenchmark benchmark) 
+		{
+			int occupied=benchmark.seats.size()*occupancyPercent/100;
+			seatMap=SeatMap.masks(benchmark.seats.subList(0,occupied));
+			request=passengers(benchmark.seats.subList(occupied,occupied+benchmark.passengers));
+		}
+	}
+
+	private static List<PassengerRequest> passengers(List<String> seats) 
+	{
+		List<PassengerRequest> passengers=new ArrayList<>();
+		for (String seat:seats) 
+		{
+			PassengerRequest passenger=new PassengerRequest();
+			passenger.setName("P"+seat);
+			passenger.setGender(GENDER.F);
+			passenger.setAge(30);
+			passenger.setSeatNumber(seat);
+			passengers.add(passenger);
+		}
+		return passengers;
+	}
+
+	@Benchmark
+	public List<PassengerRequest> validatePassengerDuplicateRequest() 
+	{
+		FlightRules.validatePassengerDuplicateRequest(request);
+		return request;
+	}
+
+	@Benchmark
+	public Map<String,Long> checkSeatConflicts(Occupancy flight) 
+	{
+		FlightRules.checkSeatConflicts(flight.seatMap,flight.request);
+		return flight.seatMap;
+	}
+}
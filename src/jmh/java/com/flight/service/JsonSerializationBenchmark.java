@@ -0,0 +1,86 @@
+package com.flight.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Booking;
+import com.flight.entity.FLIGHT_STATUS;
+import com.flight.entity.FLIGHT_TYPE;
+import com.flight.entity.Flight;
+import com.flight.entity.GENDER;
+import com.flight.entity.MEAL_TYPE;
+import com.flight.entity.Passenger;
+import com.flight.entity.SeatMap;
+
+import tools.jackson.databind.json.JsonMapper;
+
+//response bodies of the busiest endpoints: a half full Flight (seat map included) and a 4 passenger Booking
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class JsonSerializationBenchmark 
+{
+	private final JsonMapper mapper=JsonMapper.builder().build();
+	private Flight flight;
+	private Booking booking;
+	private byte[] bookingJson;
+
+	@Setup
+	public void setup() 
+	{
+		List<String> taken=new ArrayList<>();
+		for (char row:"ABC".toCharArray()) 
+		{
+			for (int number=1;number<=30;number++) 
+			{
+				taken.add(""+row+number);
+			}
+		}
+		LocalDateTime departure=LocalDateTime.of(2030,1,1,10,0);
+		flight=new Flight("F1","AI","AI101",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+				180,90,5400f,FLIGHT_STATUS.SCHEDULED,SeatMap.masks(taken),0,true);
+		List<Passenger> passengers=new ArrayList<>();
+		for (int i=1;i<=4;i++) 
+		{
+			passengers.add(new Passenger(null,"Passenger "+i,GENDER.M,20+i,"D"+i,null));
+		}
+		booking=new Booking("B1","7QK2M9XH4TB","U1","F1",4,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,passengers,null);
+		bookingJson=mapper.writeValueAsBytes(booking);
+	}
+
+	@Benchmark
+	public byte[] writeFlight() 
+	{
+		return mapper.writeValueAsBytes(flight);
+	}
+
+	@Benchmark
+	public byte[] writeBooking() 
+	{
+		return mapper.writeValueAsBytes(booking);
+	}
+
+	@Benchmark
+	public Booking readBooking() 
+	{
+		return mapper.readValue(bookingJson,Booking.class);
+	}
+}
@@ -0,0 +1,48 @@
+package com.flight.service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+//pnrs per second, single threaded and with 4 threads sharing one generator (as the booking path does),
+//against the old uuid based code
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class PnrGeneratorBenchmark 
+{
+	private final PnrGenerator generator=new PnrGenerator();
+
+	@Benchmark
+	public String next() 
+	{
+		return generator.next();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String nextShared() 
+	{
+		return generator.next();
+	}
+
+	@Benchmark
+	public String uuidPnr() 
+	{
+		return "PNR"+UUID.randomUUID().toString().substring(0,8).toUpperCase();
+	}
+}
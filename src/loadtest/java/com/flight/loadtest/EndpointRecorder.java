@@ -0,0 +1,71 @@
+package com.flight.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+//latency histograms and outcome counters of one scenario during one stage
+
+final class EndpointRecorder 
+{
+	//anything slower than a minute is recorded as a minute
+	private static final long HIGHEST_MICROS=TimeUnit.MINUTES.toMicros(1);
+
+	private final Histogram latency=new ConcurrentHistogram(HIGHEST_MICROS,3);
+	private final Histogram serviceTime=new ConcurrentHistogram(HIGHEST_MICROS,3);
+	private final LongAdder ok=new LongAdder();
+	private final LongAdder clientErrors=new LongAdder();
+	private final LongAdder serverErrors=new LongAdder();
+	private final LongAdder failures=new LongAdder();
+	private final LongAdder skipped=new LongAdder();
+
+	//status 0 = no response
+	void record(int status, long intendedNanos, long sentNanos, long doneNanos) 
+	{
+		//a request sent ahead of its slot is measured from when it was sent
+		latency.recordValue(micros(doneNanos-Math.min(intendedNanos,sentNanos)));
+		serviceTime.recordValue(micros(doneNanos-sentNanos));
+		if (status>=200 && status<300) 
+		{
+			ok.increment();
+		}
+		else if (status>=400 && status<500) 
+		{
+			clientErrors.increment();
+		}
+		else if (status>=500) 
+		{
+			serverErrors.increment();
+		}
+		else 
+		{
+			failures.increment();
+		}
+	}
+
+	void skip() 
+	{
+		skipped.increment();
+	}
+
+	LoadReport.Endpoint report(double seconds) 
+	{
+		long requests=latency.getTotalCount();
+		return new LoadReport.Endpoint(requests,Math.round(requests/seconds*10)/10.0,ok.sum(),clientErrors.sum(),serverErrors.sum(),
+				failures.sum(),skipped.sum(),percentiles(latency),percentiles(serviceTime));
+	}
+
+	private static LoadReport.Percentiles percentiles(Histogram histogram) 
+	{
+		return new LoadReport.Percentiles(histogram.getValueAtPercentile(50),histogram.getValueAtPercentile(90),
+				histogram.getValueAtPercentile(99),histogram.getValueAtPercentile(99.9),histogram.getMaxValue(),
+				Math.round(histogram.getMean()*10)/10.0);
+	}
+
+	private static long micros(long nanos) 
+	{
+		return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos),0),HIGHEST_MICROS);
+	}
+}
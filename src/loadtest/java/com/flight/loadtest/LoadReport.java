@@ -0,0 +1,31 @@
+package com.flight.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+//the machine readable result written as json, one stage per target rate
+//latency is measured from the moment the request was due, so a server that falls behind shows up in it
+//(no coordinated omission), serviceTime from the moment it was actually sent
+
+public record LoadReport(String baseUrl, String startedAt, long seed, Map<Scenario,Integer> mix, Seeded seeded, List<Stage> stages) 
+{
+	public record Seeded(int airlines, int users, int flights, int bookings) 
+	{
+	}
+
+	public record Stage(int targetRate, double durationSeconds, long scheduled, double achievedRate, long dropped,
+			Map<String,Endpoint> endpoints) 
+	{
+	}
+
+	//ok 2xx, clientErrors 4xx (sold seats, cancel too late, ...), serverErrors 5xx, failures no response at all
+	//skipped: nothing to act on, e.g. a cancel while no booking was live
+	public record Endpoint(long requests, double throughput, long ok, long clientErrors, long serverErrors, long failures,
+			long skipped, Percentiles latencyMicros, Percentiles serviceTimeMicros) 
+	{
+	}
+
+	public record Percentiles(long p50, long p90, long p99, long p999, long max, double mean) 
+	{
+	}
+}
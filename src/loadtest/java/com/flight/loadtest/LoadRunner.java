@@ -0,0 +1,192 @@
+package com.flight.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.flight.loadtest.SeedData.SeededFlight;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+//open model: requests start on a fixed clock whatever the server is doing, slow responses do not slow the arrivals
+//the first `warmup` of every stage is sent but not recorded, more than maxInFlight outstanding requests are dropped
+//and counted instead of queued so the generator itself does not become the bottleneck
+
+public class LoadRunner 
+{
+	private final WebClient client;
+	private final LoadTestOptions options;
+	private final SeedData data;
+	private final List<Scenario> wheel=new ArrayList<>();
+	public LoadRunner(WebClient client, LoadTestOptions options, SeedData data) 
+	{
+		this.client=client;
+		this.options=options;
+		this.data=data;
+		options.mix().forEach((scenario,weight)->
+		{
+			for (int i=0;i<weight;i++) 
+			{
+				wheel.add(scenario);
+			}
+		});
+	}
+
+	public Mono<LoadReport.Stage> stage(int rate) 
+	{
+		long period=TimeUnit.SECONDS.toNanos(1)/rate;
+		long warmupTicks=options.warmup().toNanos()/period;
+		long measuredTicks=options.duration().toNanos()/period;
+		Map<Scenario,EndpointRecorder> recorders=recorders();
+		Map<Scenario,EndpointRecorder> warmup=recorders();
+		AtomicInteger inFlight=new AtomicInteger();
+		LongAdder dropped=new LongAdder();
+		AtomicLong origin=new AtomicLong();
+		AtomicLong measuredFrom=new AtomicLong();
+		Scheduler clock=Schedulers.newSingle("loadtest-clock");
+		return Flux.interval(Duration.ofNanos(period),clock)
+				.take(warmupTicks+measuredTicks)
+				.flatMap(tick-> 
+				{
+					//the schedule is anchored on the first tick, a tick that fires late counts against the server
+					if (tick==0) 
+					{
+						origin.set(System.nanoTime());
+					}
+					long intended=origin.get()+tick*period;
+					boolean measured=tick>=warmupTicks;
+					if (tick==warmupTicks) 
+					{
+						measuredFrom.set(intended);
+					}
+					if (inFlight.incrementAndGet()>options.maxInFlight()) 
+					{
+						inFlight.decrementAndGet();
+						if (measured) 
+						{
+							dropped.increment();
+						}
+						return Mono.empty();
+					}
+					Scenario scenario=wheel.get(ThreadLocalRandom.current().nextInt(wheel.size()));
+					return fire(scenario,intended,(measured?recorders:warmup).get(scenario))
+							.doFinally(signal->inFlight.decrementAndGet());
+				},Integer.MAX_VALUE)
+				.then(Mono.fromSupplier(()-> 
+				{
+					double seconds=(System.nanoTime()-measuredFrom.get())/1e9;
+					Map<String,LoadReport.Endpoint> endpoints=new LinkedHashMap<>();
+					recorders.forEach((scenario,recorder)->endpoints.put(scenario.endpoint(),recorder.report(seconds)));
+					long completed=endpoints.values().stream().mapToLong(LoadReport.Endpoint::requests).sum();
+					return new LoadReport.Stage(rate,Math.round(seconds*100)/100.0,measuredTicks,
+							Math.round(completed/seconds*10)/10.0,dropped.sum(),endpoints);
+				}))
+				.doFinally(signal->clock.dispose());
+	}
+
+	private Mono<Void> fire(Scenario scenario, long intended, EndpointRecorder recorder) 
+	{
+		Call call=call(scenario);
+		if (call==null) 
+		{
+			recorder.skip();
+			return Mono.empty();
+		}
+		return Mono.defer(()-> 
+		{
+			long sent=System.nanoTime();
+			return call.request().apply(client)
+					.exchangeToMono(response->response.bodyToMono(String.class).defaultIfEmpty("")
+							.map(body->new Outcome(response.statusCode().value(),body)))
+					.onErrorResume(ex->Mono.just(new Outcome(0,"")))
+					.doOnNext(outcome-> 
+					{
+						recorder.record(outcome.status(),intended,sent,System.nanoTime());
+						call.then().accept(outcome);
+					});
+		}).then();
+	}
+
+	//the request of one scenario, null when there is nothing to act on
+	private Call call(Scenario scenario) 
+	{
+		SeededFlight flight=data.randomFlight();
+		return switch (scenario) 
+		{
+			case SEARCH -> new Call(web->web.post().uri("/flights/search")
+					.bodyValue(Map.of("from",flight.from(),"to",flight.to(),"date",flight.date().toString())));
+			case FLIGHT -> new Call(web->web.get().uri("/flights/get/{flightId}",flight.id()));
+			case AIRLINE -> new Call(web->web.get().uri("/airlines/{code}/flights",data.randomAirline()));
+			case BOOK -> new Call(web->web.post().uri("/bookings/create").bodyValue(Seeder.bookingRequest(flight,data.randomUser())),
+					outcome-> 
+					{
+						if (outcome.ok()) 
+						{
+							data.pnrs().add(outcome.body());
+						}
+					});
+			case TICKET -> ticket();
+			case CANCEL -> cancel();
+		};
+	}
+
+	//the pnr goes back to the end of the queue so lookups spread over all live bookings
+	private Call ticket() 
+	{
+		String pnr=data.pnrs().poll();
+		if (pnr==null) 
+		{
+			return null;
+		}
+		data.pnrs().add(pnr);
+		return new Call(web->web.get().uri("/bookings/get/{pnr}",pnr));
+	}
+
+	//a cancelled pnr is not put back, every cancel targets a live booking
+	private Call cancel() 
+	{
+		String pnr=data.pnrs().poll();
+		return pnr==null ? null : new Call(web->web.delete().uri("/bookings/cancel/{pnr}",pnr));
+	}
+
+	private static Map<Scenario,EndpointRecorder> recorders() 
+	{
+		Map<Scenario,EndpointRecorder> recorders=new EnumMap<>(Scenario.class);
+		for (Scenario scenario:Scenario.values()) 
+		{
+			recorders.put(scenario,new EndpointRecorder());
+		}
+		return recorders;
+	}
+
+	private record Call(Function<WebClient,WebClient.RequestHeadersSpec<?>> request, Consumer<Outcome> then) 
+	{
+		Call(Function<WebClient,WebClient.RequestHeadersSpec<?>> request) 
+		{
+			this(request,outcome->{});
+		}
+	}
+
+	private record Outcome(int status, String body) 
+	{
+		boolean ok() 
+		{
+			return status>=200 && status<300;
+		}
+	}
+}
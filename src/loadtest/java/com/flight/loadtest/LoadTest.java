@@ -0,0 +1,74 @@
+package com.flight.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+//load test against a running app: seeds airlines, users, flights and bookings, runs one open model stage per
+//rate and writes the HdrHistogram percentiles per endpoint to the json report
+//  mvn -P loadtest test-compile exec:exec -Dloadtest.args="rates=50,200 duration=60s"
+//see LoadTestOptions for all arguments, LoadReport for the report layout
+
+@Slf4j
+public final class LoadTest 
+{
+	private LoadTest() 
+	{
+	}
+
+	public static void main(String[] args) throws IOException 
+	{
+		LoadTestOptions options=LoadTestOptions.parse(args);
+		ConnectionProvider connections=ConnectionProvider.builder("loadtest")
+				.maxConnections(options.maxInFlight())
+				.pendingAcquireMaxCount(-1)
+				.build();
+		WebClient client=WebClient.builder()
+				.baseUrl(options.baseUrl())
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+				.build();
+		String startedAt=Instant.now().toString();
+
+		SeedData data=new Seeder(client,options).seed().block();
+		log.info("Seeded {} airlines, {} users, {} flights, {} bookings",data.airlineCodes().size(),data.userIds().size(),
+				data.flights().size(),data.pnrs().size());
+		LoadReport.Seeded seeded=new LoadReport.Seeded(data.airlineCodes().size(),data.userIds().size(),data.flights().size(),data.pnrs().size());
+
+		LoadRunner runner=new LoadRunner(client,options,data);
+		List<LoadReport.Stage> stages=Flux.fromIterable(options.rates())
+				.doOnNext(rate->log.info("Stage {} req/s for {} after {} warmup",rate,options.duration(),options.warmup()))
+				.concatMap(runner::stage)
+				.doOnNext(LoadTest::print)
+				.collectList()
+				.block();
+		connections.dispose();
+
+		LoadReport report=new LoadReport(options.baseUrl(),startedAt,options.seed(),options.mix(),seeded,stages);
+		Files.createDirectories(options.report().toAbsolutePath().getParent());
+		Files.writeString(options.report(),JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValueAsString(report));
+		log.info("Report written to {}",options.report().toAbsolutePath());
+	}
+
+	private static void print(LoadReport.Stage stage) 
+	{
+		StringBuilder table=new StringBuilder(String.format("%nrate %d req/s: achieved %.1f req/s, dropped %d%n",
+				stage.targetRate(),stage.achievedRate(),stage.dropped()));
+		table.append(String.format("  %-32s %8s %8s %6s %6s %6s %9s %9s %9s %9s%n","endpoint","requests","req/s","2xx","4xx","err",
+				"p50 us","p90 us","p99 us","max us"));
+		stage.endpoints().forEach((endpoint,stats)->table.append(String.format("  %-32s %8d %8.1f %6d %6d %6d %9d %9d %9d %9d%n",
+				endpoint,stats.requests(),stats.throughput(),stats.ok(),stats.clientErrors(),stats.serverErrors()+stats.failures(),
+				stats.latencyMicros().p50(),stats.latencyMicros().p90(),stats.latencyMicros().p99(),stats.latencyMicros().max())));
+		log.info(table.toString());
+	}
+}
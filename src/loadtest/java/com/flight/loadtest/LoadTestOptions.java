@@ -0,0 +1,58 @@
+package com.flight.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.convert.DurationStyle;
+
+//key=value arguments of the load test, anything left out keeps the default below
+//rates=20,50,100 runs one stage per rate (requests per second, open model) for `duration` each
+//mix=search:40,flight:10,... is the share of each scenario, the numbers are weights not percentages
+
+public record LoadTestOptions(String baseUrl, List<Integer> rates, Duration duration, Duration warmup,
+		Map<Scenario,Integer> mix, int users, int flights, int bookings, int maxInFlight, long seed, Path report) 
+{
+	private static final String DEFAULT_MIX="search:40,flight:10,airline:10,book:20,ticket:10,cancel:10";
+
+	public static LoadTestOptions parse(String... args) 
+	{
+		Map<String,String> values=new HashMap<>();
+		for (String arg:args) 
+		{
+			int eq=arg.indexOf('=');
+			if (eq<1) 
+			{
+				throw new IllegalArgumentException("expected key=value, got "+arg);
+			}
+			values.put(arg.substring(0,eq).replaceFirst("^--",""),arg.substring(eq+1));
+		}
+		return new LoadTestOptions(
+				values.getOrDefault("base-url","http://localhost:3000"),
+				Arrays.stream(values.getOrDefault("rates","20,50,100").split(",")).map(String::trim).map(Integer::valueOf).toList(),
+				DurationStyle.detectAndParse(values.getOrDefault("duration","30s")),
+				DurationStyle.detectAndParse(values.getOrDefault("warmup","5s")),
+				mix(values.getOrDefault("mix",DEFAULT_MIX)),
+				Integer.parseInt(values.getOrDefault("users","100")),
+				Integer.parseInt(values.getOrDefault("flights","40")),
+				Integer.parseInt(values.getOrDefault("bookings","200")),
+				Integer.parseInt(values.getOrDefault("max-in-flight","2000")),
+				Long.parseLong(values.getOrDefault("seed","42")),
+				Path.of(values.getOrDefault("report","target/loadtest/report.json")));
+	}
+
+	private static Map<Scenario,Integer> mix(String spec) 
+	{
+		Map<Scenario,Integer> mix=new EnumMap<>(Scenario.class);
+		for (String part:spec.split(",")) 
+		{
+			String[] entry=part.trim().split(":");
+			mix.put(Scenario.valueOf(entry[0].trim().toUpperCase()),Integer.valueOf(entry[1].trim()));
+		}
+		return mix;
+	}
+}
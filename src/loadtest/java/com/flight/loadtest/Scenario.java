@@ -0,0 +1,24 @@
+package com.flight.loadtest;
+
+//one request type of the mix, the name is also the endpoint label in the report
+
+public enum Scenario 
+{
+	SEARCH("POST /flights/search"),
+	FLIGHT("GET /flights/get/{flightId}"),
+	AIRLINE("GET /airlines/{code}/flights"),
+	BOOK("POST /bookings/create"),
+	TICKET("GET /bookings/get/{pnr}"),
+	CANCEL("DELETE /bookings/cancel/{pnr}");
+
+	private final String endpoint;
+	Scenario(String endpoint) 
+	{
+		this.endpoint=endpoint;
+	}
+
+	public String endpoint() 
+	{
+		return endpoint;
+	}
+}
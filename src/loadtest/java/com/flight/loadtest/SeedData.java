@@ -0,0 +1,46 @@
+package com.flight.loadtest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.flight.entity.AIRPORT_CODE;
+
+//what the seeder created, the scenarios pick their ids from here instead of hard coded values
+//pnrs holds the bookings that are still live: book adds to it, cancel takes from it
+
+public record SeedData(List<String> airlineCodes, List<String> userIds, List<SeededFlight> flights, Queue<String> pnrs) 
+{
+	public SeedData(List<String> airlineCodes, List<String> userIds, List<SeededFlight> flights) 
+	{
+		this(airlineCodes,userIds,flights,new ConcurrentLinkedQueue<>());
+	}
+
+	public SeededFlight randomFlight() 
+	{
+		return flights.get(ThreadLocalRandom.current().nextInt(flights.size()));
+	}
+
+	public String randomUser() 
+	{
+		return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+	}
+
+	public String randomAirline() 
+	{
+		return airlineCodes.get(ThreadLocalRandom.current().nextInt(airlineCodes.size()));
+	}
+
+	//seats are handed out in order so bookings only collide once a flight has been sold round once
+	public record SeededFlight(String id, AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date, int totalSeats, AtomicInteger nextSeat) 
+	{
+		public String takeSeat() 
+		{
+			int seat=Math.floorMod(nextSeat.getAndIncrement(),totalSeats);
+			return (char)('A'+seat%6)+String.valueOf(seat/6+1);
+		}
+	}
+}
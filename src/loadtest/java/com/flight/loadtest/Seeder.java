@@ -0,0 +1,95 @@
+package com.flight.loadtest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.loadtest.SeedData.SeededFlight;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//creates airlines, users, flights and bookings through the public api, so the run needs nothing but a started app
+//flights depart 3 to 30 days out, far enough for the 24 hour cancellation rule
+
+public class Seeder 
+{
+	private static final int CONCURRENCY=16;
+	private static final int SEATS_PER_FLIGHT=180;
+
+	private final WebClient client;
+	private final LoadTestOptions options;
+	private final Random random;
+	public Seeder(WebClient client, LoadTestOptions options) 
+	{
+		this.client=client;
+		this.options=options;
+		this.random=new Random(options.seed());
+	}
+
+	public Mono<SeedData> seed() 
+	{
+		//the run id keeps emails and airline codes apart when the same database is seeded twice
+		String run=Long.toString(System.currentTimeMillis()%1_000_000,36).toUpperCase();
+		List<String> codes=IntStream.range(0,Math.max(3,options.flights()/10)).mapToObj(i->"LT"+run+i).toList();
+		return Flux.fromIterable(codes)
+				.flatMap(code->post("/airlines",Map.of("code",code,"name","Load test "+code)),CONCURRENCY)
+				//flights need their airline, users and flights can go side by side
+				.then(Mono.zip(Flux.range(0,options.users())
+						.flatMap(i->post("/users",Map.of("name","load user "+i,"email","load-"+run.toLowerCase()+"-"+i+"@example.com")),CONCURRENCY)
+						.collectList(),
+						Flux.fromIterable(flightPlans(codes)).flatMap(this::addFlight,CONCURRENCY).collectList()))
+				.map(seeded->new SeedData(codes,seeded.getT1(),seeded.getT2()))
+				.flatMap(data->Flux.range(0,options.bookings())
+						.flatMap(i->post("/bookings/create",bookingRequest(data.randomFlight(),data.randomUser())),CONCURRENCY)
+						.doOnNext(data.pnrs()::add)
+						.then(Mono.just(data)));
+	}
+
+	//plans are drawn up front on one thread so a seed value always gives the same schedule
+	private List<Map<String,Object>> flightPlans(List<String> codes) 
+	{
+		AIRPORT_CODE[] airports=AIRPORT_CODE.values();
+		return IntStream.range(0,options.flights()).mapToObj(i-> 
+		{
+			AIRPORT_CODE from=airports[random.nextInt(airports.length)];
+			AIRPORT_CODE to=airports[(from.ordinal()+1+random.nextInt(airports.length-1))%airports.length];
+			LocalDateTime departure=LocalDate.now().plusDays(3+random.nextInt(28)).atTime(random.nextInt(24),random.nextInt(4)*15);
+			String code=codes.get(i%codes.size());
+			return Map.<String,Object>of("airlineCode",code,"flightNumber",code+"-"+i,"fromCity",from,"toCity",to,
+					"departureTime",departure.toString(),"arrivalTime",departure.plusHours(2).toString(),
+					"totalSeats",SEATS_PER_FLIGHT,"availableSeats",SEATS_PER_FLIGHT,"price",2000+random.nextInt(8000),"status","SCHEDULED");
+		}).toList();
+	}
+
+	private Mono<SeededFlight> addFlight(Map<String,Object> plan) 
+	{
+		LocalDate date=LocalDateTime.parse((String)plan.get("departureTime")).toLocalDate();
+		return post("/flights/add",plan).map(id->new SeededFlight(id,(AIRPORT_CODE)plan.get("fromCity"),(AIRPORT_CODE)plan.get("toCity"),
+				date,SEATS_PER_FLIGHT,new AtomicInteger()));
+	}
+
+	private Mono<String> post(String path, Object body) 
+	{
+		return client.post().uri(path).bodyValue(body).retrieve().bodyToMono(String.class);
+	}
+
+	//one or two passengers on the next free seats of the flight
+	static Map<String,Object> bookingRequest(SeededFlight flight, String userId) 
+	{
+		int seats=1+ThreadLocalRandom.current().nextInt(2);
+		List<Map<String,Object>> passengers=IntStream.range(0,seats)
+				.mapToObj(i->Map.<String,Object>of("name","passenger "+i,"gender","F","age",30+i,"seatNumber",flight.takeSeat()))
+				.toList();
+		return Map.of("flightId",flight.id(),"userId",userId,"seatsBooked",seats,"mealType","VEG","flightType","ONE_WAY",
+				"passengers",passengers);
+	}
+}
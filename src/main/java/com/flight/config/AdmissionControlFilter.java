@@ -0,0 +1,263 @@
+package com.flight.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+//admission control in front of the booking writes, each of which fans out into several mongo operations
+//- at most max-concurrent booking writes are in progress at once, the rest are shed straight away
+//- bookings and holds are also rate limited per userId with a token bucket (user-rate per second, user-burst at once)
+//a shed request gets 429 with Retry-After before any service or database work, so one flooding account
+//cannot push up latency for everyone else
+//a body over 64KB on a per-user route gets 413 without reaching the controller
+//metrics: flight.admission.requests{outcome=admitted|shed|rejected, reason=none|concurrency|user-rate|body-size},
+//flight.admission.in-flight (a request counts there while its body is read, a rejected one included)
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE+10)
+@ConditionalOnProperty(name="flight.admission.enabled",havingValue="true",matchIfMissing=true)
+public class AdmissionControlFilter implements WebFilter,MeterBinder 
+{
+	static final String METRIC="flight.admission.requests";
+	private static final String USER_ID="userId";
+	//bookings and holds are a few hundred bytes, anything this large is not a single booking
+	private static final int MAX_BODY_BYTES=64*1024;
+	private static final byte[] SHED_BODY="{\"error\":\"Too many booking requests, retry later\"}".getBytes(StandardCharsets.UTF_8);
+	private static final JsonMapper JSON=JsonMapper.builder().build();
+
+	private final List<Route> writes;
+	private final double userRate;
+	private final int userBurst;
+	private final int maxConcurrent;
+	private final Duration retryAfter;
+	private final LongSupplier clock;
+	private final Cache<String,TokenBucket> buckets;
+	private final AtomicInteger inFlight=new AtomicInteger();
+	private final LongAdder admitted=new LongAdder();
+	private final LongAdder shedConcurrency=new LongAdder();
+	private final LongAdder shedUserRate=new LongAdder();
+	private final LongAdder rejectedBodySize=new LongAdder();
+
+	@Autowired
+	public AdmissionControlFilter(@Value("${flight.admission.user-rate:5}") double userRate,
+			@Value("${flight.admission.user-burst:10}") int userBurst,
+			@Value("${flight.admission.max-concurrent:256}") int maxConcurrent,
+			@Value("${flight.admission.retry-after:1s}") Duration retryAfter) 
+	{
+		this(userRate,userBurst,maxConcurrent,retryAfter,System::nanoTime);
+	}
+
+	AdmissionControlFilter(double userRate, int userBurst, int maxConcurrent, Duration retryAfter, LongSupplier clock) 
+	{
+		this.userRate=userRate;
+		this.userBurst=userBurst;
+		this.maxConcurrent=maxConcurrent;
+		this.retryAfter=retryAfter;
+		this.clock=clock;
+		//an idle user's bucket is full again after burst/rate seconds, so forgetting it after that changes nothing
+		long idleNanos=(long)Math.ceil(userBurst/userRate*TimeUnit.SECONDS.toNanos(1));
+		this.buckets=Caffeine.newBuilder()
+				.expireAfterAccess(Duration.ofNanos(Math.max(idleNanos,TimeUnit.SECONDS.toNanos(1))))
+				.maximumSize(1_000_000)
+				.build();
+		PathPatternParser parser=PathPatternParser.defaultInstance;
+		this.writes=List.of(
+				new Route(HttpMethod.POST,parser.parse("/bookings/create"),true),
+				new Route(HttpMethod.POST,parser.parse("/flights/{flightId}/holds"),true),
+				new Route(HttpMethod.POST,parser.parse("/bookings/batch"),false),
+				new Route(HttpMethod.DELETE,parser.parse("/bookings/cancel/{pnr}"),false));
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) 
+	{
+		Route route=match(exchange.getRequest());
+		if (route==null) 
+		{
+			return chain.filter(exchange);
+		}
+		//cheapest check first, nothing has been read yet
+		if (inFlight.incrementAndGet()>maxConcurrent) 
+		{
+			inFlight.decrementAndGet();
+			shedConcurrency.increment();
+			return shed(exchange,retryAfter.toSeconds());
+		}
+		Mono<Void> admittedChain=route.perUser() ? perUser(exchange,chain) : admit(exchange,chain);
+		return admittedChain.doFinally(signal->inFlight.decrementAndGet());
+	}
+
+	//the body is read once to find the userId and handed on unchanged to the controller
+	private Mono<Void> perUser(ServerWebExchange exchange, WebFilterChain chain) 
+	{
+		return DataBufferUtils.join(exchange.getRequest().getBody(),MAX_BODY_BYTES)
+				.map(AdmissionControlFilter::bytes)
+				.defaultIfEmpty(new byte[0])
+				.flatMap(body-> 
+				{
+					String userId=userId(body);
+					if (userId!=null) 
+					{
+						long wait=buckets.get(userId,id->new TokenBucket(userRate,userBurst,clock.getAsLong())).tryAcquire(clock.getAsLong());
+						if (wait>0) 
+						{
+							shedUserRate.increment();
+							return shed(exchange,TimeUnit.NANOSECONDS.toSeconds(wait+TimeUnit.SECONDS.toNanos(1)-1));
+						}
+					}
+					return admit(exchange.mutate().request(replay(exchange,body)).build(),chain);
+				})
+				.onErrorResume(DataBufferLimitException.class,ex-> 
+				{
+					rejectedBodySize.increment();
+					exchange.getResponse().setStatusCode(HttpStatus.CONTENT_TOO_LARGE);
+					return exchange.getResponse().setComplete();
+				});
+	}
+
+	private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain) 
+	{
+		admitted.increment();
+		return chain.filter(exchange);
+	}
+
+	private static Mono<Void> shed(ServerWebExchange exchange, long retryAfterSeconds) 
+	{
+		ServerHttpResponse response=exchange.getResponse();
+		response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		response.getHeaders().set(HttpHeaders.RETRY_AFTER,Long.toString(Math.max(retryAfterSeconds,1)));
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		return response.writeWith(Mono.fromSupplier(()->response.bufferFactory().wrap(SHED_BODY)));
+	}
+
+	private Route match(ServerHttpRequest request) 
+	{
+		PathContainer path=request.getPath().pathWithinApplication();
+		for (Route route:writes) 
+		{
+			if (route.method().equals(request.getMethod()) && route.pattern().matches(path)) 
+			{
+				return route;
+			}
+		}
+		return null;
+	}
+
+	//top level "userId" string, null if missing or the body is not json (the controller rejects it then)
+	static String userId(byte[] body) 
+	{
+		try (JsonParser parser=JSON.createParser(body)) 
+		{
+			if (parser.nextToken()!=JsonToken.START_OBJECT) 
+			{
+				return null;
+			}
+			while (parser.nextToken()==JsonToken.PROPERTY_NAME) 
+			{
+				String name=parser.currentName();
+				JsonToken value=parser.nextToken();
+				if (USER_ID.equals(name)) 
+				{
+					return value==JsonToken.VALUE_STRING ? parser.getString() : null;
+				}
+				parser.skipChildren();
+			}
+			return null;
+		}
+		catch (RuntimeException ex) 
+		{
+			return null;
+		}
+	}
+
+	private static ServerHttpRequest replay(ServerWebExchange exchange, byte[] body) 
+	{
+		return new ServerHttpRequestDecorator(exchange.getRequest()) 
+		{
+			@Override
+			public Flux<DataBuffer> getBody() 
+			{
+				return Flux.defer(()->Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+			}
+		};
+	}
+
+	private static byte[] bytes(DataBuffer buffer) 
+	{
+		try 
+		{
+			byte[] bytes=new byte[buffer.readableByteCount()];
+			buffer.read(bytes);
+			return bytes;
+		}
+		finally 
+		{
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		counter(registry,"admitted","none",admitted);
+		counter(registry,"shed","concurrency",shedConcurrency);
+		counter(registry,"shed","user-rate",shedUserRate);
+		counter(registry,"rejected","body-size",rejectedBodySize);
+		Gauge.builder("flight.admission.in-flight",inFlight,AtomicInteger::get)
+				.description("booking writes currently admitted")
+				.register(registry);
+	}
+
+	private static void counter(MeterRegistry registry, String outcome, String reason, LongAdder count) 
+	{
+		FunctionCounter.builder(METRIC,count,LongAdder::sum)
+				.tag("outcome",outcome)
+				.tag("reason",reason)
+				.description("booking write requests by admission decision")
+				.register(registry);
+	}
+
+	private record Route(HttpMethod method, PathPattern pattern, boolean perUser) 
+	{
+	}
+}
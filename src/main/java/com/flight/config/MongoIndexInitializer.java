@@ -0,0 +1,51 @@
+package com.flight.config;
+
+import java.util.List;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.IdempotencyRecord;
+import com.flight.entity.RouteDayStats;
+import com.flight.entity.SeatHold;
+import com.flight.entity.TripView;
+import com.flight.entity.User;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+//creates the @Indexed/@CompoundIndex indexes declared on the entities once the app is up
+//done reactively instead of spring.data.mongodb.auto-index-creation, which blocks startup until mongo answers
+//skipped under the inmemory profile, those repositories keep their own indexes
+
+@Slf4j
+@Component
+@Profile("!inmemory")
+public class MongoIndexInitializer 
+{
+	private static final List<Class<?>> INDEXED_ENTITIES=List.of(Flight.class,Booking.class,User.class,SeatHold.class,IdempotencyRecord.class,TripView.class,
+			RouteDayStats.class);
+
+	private final ReactiveMongoTemplate mongoTemplate;
+	public MongoIndexInitializer(ReactiveMongoTemplate mongoTemplate) 
+	{
+		this.mongoTemplate=mongoTemplate;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void createIndexes() 
+	{
+		IndexResolver resolver=IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+		Flux.fromIterable(INDEXED_ENTITIES)
+				.concatMap(type->Flux.fromIterable(resolver.resolveIndexFor(type))
+						.concatMap(index->mongoTemplate.indexOps(type).createIndex(index))
+						.doOnNext(name->log.info("Index {} ready on {}",name,type.getSimpleName())))
+				.subscribe(name->{},ex->log.error("Index creation failed: {}",ex.getMessage()));
+	}
+}
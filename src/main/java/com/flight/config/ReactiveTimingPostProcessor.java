@@ -0,0 +1,169 @@
+package com.flight.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import com.flight.service.FlightServiceReactive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//times every FlightServiceReactive method (flight.service) and every repository call (flight.repository)
+//a Mono/Flux is timed from subscription until it completes, fails or is cancelled, which is when the work
+//actually happens; the method call itself only assembles the pipeline.
+//tags: method, outcome (success|error|cancelled), exception, plus repository for repository calls
+
+@Component
+public class ReactiveTimingPostProcessor implements BeanPostProcessor 
+{
+	static final String SERVICE_TIMER="flight.service";
+	static final String REPOSITORY_TIMER="flight.repository";
+	private static final String REPOSITORY_PACKAGE="com.flight.repository";
+
+	//resolved on first call, a post processor is created before the registry exists
+	private final ObjectProvider<MeterRegistry> registry;
+	public ReactiveTimingPostProcessor(ObjectProvider<MeterRegistry> registry) 
+	{
+		this.registry=registry;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) 
+	{
+		if (bean instanceof FlightServiceReactive) 
+		{
+			return timed(bean,SERVICE_TIMER,Tags.empty());
+		}
+		if (bean instanceof Repository<?,?>) 
+		{
+			for (Class<?> type:bean.getClass().getInterfaces()) 
+			{
+				if (type.getPackageName().equals(REPOSITORY_PACKAGE)) 
+				{
+					return timed(bean,REPOSITORY_TIMER,Tags.of("repository",type.getSimpleName()));
+				}
+			}
+		}
+		return bean;
+	}
+
+	private Object timed(Object bean, String name, Tags baseTags) 
+	{
+		//one set of timers per method, built on its first call and reused after that
+		Map<Method,MethodTimers> timers=new ConcurrentHashMap<>();
+		ProxyFactory proxy=new ProxyFactory(bean);
+		proxy.addAdvice((MethodInterceptor)invocation-> 
+		{
+			MethodTimers method=timers.computeIfAbsent(invocation.getMethod(),
+					key->new MethodTimers(name,baseTags.and("method",key.getName())));
+			long start=System.nanoTime();
+			Object result;
+			try 
+			{
+				result=invocation.proceed();
+			}
+			catch (Throwable ex) 
+			{
+				method.record(start,"error",ex);
+				throw ex;
+			}
+			if (result instanceof Mono<?> mono) 
+			{
+				return time(mono,method);
+			}
+			if (result instanceof Flux<?> flux) 
+			{
+				return time(flux,method);
+			}
+			method.record(start,"success",null);
+			return result;
+		});
+		return proxy.getProxy(bean.getClass().getClassLoader());
+	}
+
+	//recorded before the signal goes downstream, so whoever sees it also sees the timer updated
+	private static <T> Mono<T> time(Mono<T> mono, MethodTimers timers) 
+	{
+		return Mono.defer(()-> 
+		{
+			Call call=new Call(timers);
+			return mono.doOnSuccess(value->call.done("success",null))
+					.doOnError(ex->call.done("error",ex))
+					.doOnCancel(()->call.done("cancelled",null));
+		});
+	}
+
+	private static <T> Flux<T> time(Flux<T> flux, MethodTimers timers) 
+	{
+		return Flux.defer(()-> 
+		{
+			Call call=new Call(timers);
+			return flux.doOnComplete(()->call.done("success",null))
+					.doOnError(ex->call.done("error",ex))
+					.doOnCancel(()->call.done("cancelled",null));
+		});
+	}
+
+	//one subscription, recorded once by whichever of complete, error or cancel comes first
+	private static final class Call 
+	{
+		private final MethodTimers timers;
+		private final long start=System.nanoTime();
+		private final AtomicBoolean recorded=new AtomicBoolean();
+
+		private Call(MethodTimers timers) 
+		{
+			this.timers=timers;
+		}
+
+		private void done(String outcome, Throwable error) 
+		{
+			if (recorded.compareAndSet(false,true)) 
+			{
+				timers.record(start,outcome,error);
+			}
+		}
+	}
+
+	//timers are registered on first use only, a method that never failed has no error timer
+	private final class MethodTimers 
+	{
+		private final String name;
+		private final Tags tags;
+		private final Map<String,Timer> outcomes=new ConcurrentHashMap<>();
+		private final Map<Class<?>,Timer> errors=new ConcurrentHashMap<>();
+
+		private MethodTimers(String name, Tags tags) 
+		{
+			this.name=name;
+			this.tags=tags;
+		}
+
+		private void record(long start, String outcome, Throwable error) 
+		{
+			Timer timer=error==null ? outcomes.computeIfAbsent(outcome,key->register(key,"none"))
+					: errors.computeIfAbsent(error.getClass(),type->register(outcome,type.getSimpleName()));
+			timer.record(System.nanoTime()-start,TimeUnit.NANOSECONDS);
+		}
+
+		private Timer register(String outcome, String exception) 
+		{
+			return Timer.builder(name)
+					.tags(tags.and("outcome",outcome,"exception",exception))
+					.register(registry.getObject());
+		}
+	}
+}
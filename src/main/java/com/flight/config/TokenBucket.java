@@ -0,0 +1,33 @@
+package com.flight.config;
+
+//refills continuously at `ratePerSecond` up to `burst` tokens, one request takes one token
+
+final class TokenBucket 
+{
+	private static final double NANOS_PER_SECOND=1e9;
+
+	private final double capacity;
+	private final double tokensPerNano;
+	private double tokens;
+	private long refilledAt;
+	TokenBucket(double ratePerSecond, int burst, long now) 
+	{
+		this.capacity=burst;
+		this.tokensPerNano=ratePerSecond/NANOS_PER_SECOND;
+		this.tokens=burst;
+		this.refilledAt=now;
+	}
+
+	//0 when a token was taken, otherwise the nanos until one will be available
+	synchronized long tryAcquire(long now) 
+	{
+		tokens=Math.min(capacity,tokens+(now-refilledAt)*tokensPerNano);
+		refilledAt=now;
+		if (tokens>=1) 
+		{
+			tokens-=1;
+			return 0;
+		}
+		return (long)Math.ceil((1-tokens)/tokensPerNano);
+	}
+}
@@ -0,0 +1,43 @@
+package com.flight.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flight.entity.RouteDayStats;
+import com.flight.service.AirlineAnalyticsService;
+
+import reactor.core.publisher.Flux;
+
+//rows are written as they come out of the aggregation, a json array by default or one per line with Accept: application/x-ndjson
+@RestController
+@RequestMapping("/airlines/{code}/analytics")
+public class AirlineAnalyticsController 
+{
+	private final AirlineAnalyticsService analytics;
+    public AirlineAnalyticsController(AirlineAnalyticsService analytics) 
+    {
+        this.analytics=analytics;
+    }
+
+    //load factor, bookings and revenue per route and departure day, from and to included
+    @GetMapping("/routes")
+    public Flux<RouteDayStats> getRouteDays(@PathVariable String code,
+            @RequestParam @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to) 
+    {
+        return analytics.routeDays(code,from,to);
+    }
+
+    //yesterday from the rollup, for dashboards
+    @GetMapping("/routes/previous-day")
+    public Flux<RouteDayStats> getPreviousDay(@PathVariable String code) 
+    {
+        return analytics.previousDay(code);
+    }
+}
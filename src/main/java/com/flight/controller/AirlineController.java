@@ -5,9 +5,12 @@ import com.flight.exception.NotFoundException;
 import com.flight.repository.AirlineRepository;
 import com.flight.request.AirlineCreateRequest;
 import com.flight.request.AirlineUpdateRequest;
+import com.flight.response.CursorPage;
 
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -41,6 +44,27 @@ public class AirlineController
         return airlineRepo.findAll();
     }
 
+    //one page of airlines ordered by code, follow nextCursor for the rest
+    @GetMapping("/page")
+    public Mono<CursorPage<Airline>> getAirlinesPage(@RequestParam(required=false) String cursor,@RequestParam(required=false) Integer size) 
+    {
+        return Mono.defer(()-> 
+        {
+            int pageSize=CursorPage.pageSize(size);
+            String after=CursorPage.decodeCursor(cursor);
+            Limit limit=Limit.of(pageSize+1);
+            Flux<Airline> rows=after==null ? airlineRepo.findAllByOrderByCodeAsc(limit) : airlineRepo.findByCodeGreaterThanOrderByCodeAsc(after,limit);
+            return rows.collectList().map(fetched->CursorPage.of(fetched,pageSize,Airline::getCode));
+        });
+    }
+
+    //all airlines as ndjson, written as they are read
+    @GetMapping(value="/stream",produces=MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Airline> streamAllAirlines() 
+    {
+        return airlineRepo.findAll();
+    }
+
     @GetMapping("/{code}")
     public Mono<Airline> getAirlineById(@PathVariable String code) 
     {
@@ -0,0 +1,33 @@
+package com.flight.controller;
+
+import com.flight.service.ExistenceFilters;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/existence-filters")
+public class ExistenceFilterController 
+{
+	private final ExistenceFilters existence;
+    public ExistenceFilterController(ExistenceFilters existence) 
+    {
+        this.existence=existence;
+    }
+
+    //size, fill and observed false positive rate of the user id and pnr filters
+    @GetMapping("/stats")
+    public Mono<Map<String,Map<String,Object>>> getStats() 
+    {
+        return Mono.fromSupplier(existence::stats);
+    }
+
+    //reload both filters from the collections, e.g. after bulk deletes or users written outside the api
+    @PostMapping("/rebuild")
+    public Mono<Map<String,Map<String,Object>>> rebuild() 
+    {
+        return existence.rebuild();
+    }
+}
@@ -2,8 +2,17 @@ package com.flight.controller;
 
 import com.flight.entity.Booking;
 import com.flight.entity.Flight;
+import com.flight.entity.TripView;
 import com.flight.request.BookingRequest;
 import com.flight.request.FlightSearchRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.response.BookingBatchResult;
+import com.flight.response.CursorPage;
+import com.flight.response.FlightIngestResult;
+import com.flight.response.FlightSummary;
+import com.flight.service.FlightIngestionService;
+import com.flight.service.IdempotencyService;
+import com.flight.service.FlightSearchCache;
 import com.flight.service.FlightServiceReactive;
 
 import jakarta.validation.Valid;
@@ -11,10 +20,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 
@@ -23,11 +35,20 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 @RequestMapping("/")
 public class FlightControllerReactive 
 {
+	private static final String IDEMPOTENCY_KEY="Idempotency-Key";
+
 	//using constructor injection instead of autowired - sonarqube suggestion
 	private final FlightServiceReactive service;
-    public FlightControllerReactive(FlightServiceReactive service) 
+	private final FlightSearchCache searchCache;
+	private final FlightIngestionService ingestionService;
+	private final IdempotencyService idempotency;
+    public FlightControllerReactive(FlightServiceReactive service,FlightSearchCache searchCache,
+    		FlightIngestionService ingestionService,IdempotencyService idempotency) 
     {
         this.service=service;
+        this.searchCache=searchCache;
+        this.ingestionService=ingestionService;
+        this.idempotency=idempotency;
     }
     
     //add a new flight
@@ -37,6 +58,13 @@ public class FlightControllerReactive
         return service.addFlight(flight).map(Flight::getId);
     }
 
+    //bulk schedule load, one flight json per line, streams back rejected lines and progress reports
+    @PostMapping(value="/flights/bulk",consumes=MediaType.APPLICATION_NDJSON_VALUE,produces=MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<FlightIngestResult> ingestFlights(@RequestBody Flux<String> lines) 
+    {
+        return ingestionService.ingest(lines);
+    }
+
     //serach flight using to from date
     @PostMapping("/flights/search")
     public Flux<String> searchFlights(@RequestBody @Valid FlightSearchRequest request) 
@@ -44,6 +72,21 @@ public class FlightControllerReactive
         return service.searchFlights(request.getFrom(),request.getTo(),request.getDate()).map(Flight::getId);
     }
 
+    //same search returning flight summaries, ?fields=price,departureTime,... picks the columns (blank = default set)
+    @PostMapping(value="/flights/search",params="fields")
+    public Flux<FlightSummary> searchFlightSummaries(@RequestBody @Valid FlightSearchRequest request,@RequestParam String fields) 
+    {
+        return Mono.fromSupplier(()->FlightSummary.parseFields(fields))
+                .flatMapMany(columns->service.searchFlights(request.getFrom(),request.getTo(),request.getDate(),columns));
+    }
+
+    //hit/miss/eviction counters of the search cache, used to size it
+    @GetMapping("/flights/search/cache/stats")
+    public Mono<Map<String,Long>> getSearchCacheStats() 
+    {
+        return Mono.fromSupplier(searchCache::stats);
+    }
+
     //get particular flight using flightid
     @GetMapping("/flights/get/{flightId}")
     public Mono<Flight> getFlight(@PathVariable String flightId) 
@@ -51,12 +94,22 @@ public class FlightControllerReactive
         return service.getFlightById(flightId);
     }
 
-    //add booking
+    //add booking, a retry with the same Idempotency-Key returns the first pnr instead of booking again
     @PostMapping("/bookings/create")
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<String> createBooking(@RequestBody @Valid BookingRequest request) 
+    public Mono<String> createBooking(@RequestBody @Valid BookingRequest request,
+    		@RequestHeader(name=IDEMPOTENCY_KEY,required=false) String idempotencyKey) 
+    {
+        return idempotency.execute("create-booking",idempotencyKey,request,
+                ()->service.bookTicket(request.getFlightId(),request));
+    }
+
+    //bulk booking, body is a json array or ndjson stream of booking requests
+    //one result per item is streamed back so a bad item does not fail the rest
+    @PostMapping(value="/bookings/batch",produces={MediaType.APPLICATION_NDJSON_VALUE,MediaType.APPLICATION_JSON_VALUE})
+    public Flux<BookingBatchResult> createBookings(@RequestBody Flux<BookingRequest> requests) 
     {
-        return service.bookTicket(request.getFlightId(),request);
+        return service.bookTickets(requests);
     }
 
     //get booking using pnr
@@ -66,16 +119,19 @@ public class FlightControllerReactive
         return service.getTicket(pnr);
     }
     
-    //cancel booking
+    //cancel booking, with an Idempotency-Key a retried cancel succeeds again instead of failing with Invalid PNR
     @DeleteMapping("/bookings/cancel/{pnr}")
-    public Mono<Void> cancelBooking(@PathVariable String pnr) 
+    public Mono<Void> cancelBooking(@PathVariable String pnr,
+    		@RequestHeader(name=IDEMPOTENCY_KEY,required=false) String idempotencyKey) 
     {
-        return service.cancelBooking(pnr);
+        return idempotency.execute("cancel-booking",idempotencyKey,pnr,
+                ()->service.cancelBooking(pnr).thenReturn(pnr)).then();
     }
     
+    //limit caps how many bookings come back, all of them when left out
     @GetMapping("/bookings/history/email/{email}")
-    public Flux<Booking> getBookingHistoryByEmail(@PathVariable String email) {
-        return service.getBookingHistoryByEmail(email);
+    public Flux<Booking> getBookingHistoryByEmail(@PathVariable String email,@RequestParam(required=false) Integer limit) {
+        return service.getBookingHistoryByEmail(email,limit);
     }
 
 
@@ -86,9 +142,37 @@ public class FlightControllerReactive
         return service.getBookingHistoryByUserId(userId);
     }
 
+    //trip list with flight details and passenger names in one read, filter=ALL|UPCOMING|PAST
+    @GetMapping("/bookings/trips/user/{userId}")
+    public Flux<TripView> getUserTrips(@PathVariable String userId,@RequestParam(defaultValue="ALL") TRIP_FILTER filter) 
+    {
+        return service.getTrips(userId,filter);
+    }
+
+    @GetMapping("/bookings/trips/email/{email}")
+    public Flux<TripView> getUserTripsByEmail(@PathVariable String email,@RequestParam(defaultValue="ALL") TRIP_FILTER filter) 
+    {
+        return service.getTripsByEmail(email,filter);
+    }
+
     //get all flights of particular airline enter airline code
     @GetMapping("/airlines/{code}/flights")
     public Flux<Flight> getFlightsByAirline(@PathVariable String code) {
         return service.getFlightsByAirline(code);
     }
+
+    //one page of the airline's flights, follow nextCursor for the rest
+    @GetMapping("/airlines/{code}/flights/page")
+    public Mono<CursorPage<Flight>> getFlightsByAirlinePage(@PathVariable String code,
+    		@RequestParam(required=false) String cursor,@RequestParam(required=false) Integer size) 
+    {
+        return service.getFlightsByAirline(code,cursor,size);
+    }
+
+    //all flights of the airline as ndjson, written as they are read
+    @GetMapping(value="/airlines/{code}/flights/stream",produces=MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Flight> streamFlightsByAirline(@PathVariable String code) 
+    {
+        return service.getFlightsByAirline(code);
+    }
 }
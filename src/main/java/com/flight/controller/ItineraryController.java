@@ -0,0 +1,27 @@
+package com.flight.controller;
+
+import com.flight.request.ItinerarySearchRequest;
+import com.flight.response.ItinerarySearchResult;
+import com.flight.service.ItinerarySearchService;
+
+import jakarta.validation.Valid;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/itineraries")
+public class ItineraryController 
+{
+	private final ItinerarySearchService searchService;
+    public ItineraryController(ItinerarySearchService searchService) 
+    {
+        this.searchService=searchService;
+    }
+
+    //direct and connecting options (up to maxStops) departing on the given day, best first by sortBy
+    @PostMapping("/search")
+    public Mono<ItinerarySearchResult> search(@RequestBody @Valid ItinerarySearchRequest request) 
+    {
+        return searchService.search(request);
+    }
+}
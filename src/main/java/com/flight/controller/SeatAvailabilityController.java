@@ -0,0 +1,37 @@
+package com.flight.controller;
+
+import java.time.Duration;
+
+import com.flight.response.SeatAvailability;
+import com.flight.service.SeatAvailabilityStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/")
+public class SeatAvailabilityController 
+{
+	//comment line sent on quiet streams so proxies do not close the connection
+	private static final Duration HEARTBEAT=Duration.ofSeconds(15);
+
+	private final SeatAvailabilityStream availability;
+    public SeatAvailabilityController(SeatAvailabilityStream availability) 
+    {
+        this.availability=availability;
+    }
+
+    //current seats first, then every change made by bookings, holds and cancellations
+    @GetMapping(value="/flights/{flightId}/availability/stream",produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<SeatAvailability>> streamAvailability(@PathVariable String flightId) 
+    {
+        Flux<ServerSentEvent<SeatAvailability>> updates=availability.watch(flightId)
+                .map(seats->ServerSentEvent.builder(seats).event("availability").build());
+        Flux<ServerSentEvent<SeatAvailability>> heartbeat=Flux.interval(HEARTBEAT)
+                .map(tick->ServerSentEvent.<SeatAvailability>builder().comment("keepalive").build());
+        //updates never complete, an unknown flight errors before anything is sent (404)
+        return Flux.merge(updates,heartbeat);
+    }
+}
@@ -0,0 +1,36 @@
+package com.flight.controller;
+
+import com.flight.entity.SeatHold;
+import com.flight.request.SeatHoldRequest;
+import com.flight.service.SeatHoldService;
+
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/")
+public class SeatHoldController 
+{
+	private final SeatHoldService holdService;
+    public SeatHoldController(SeatHoldService holdService) 
+    {
+        this.holdService=holdService;
+    }
+
+    //hold seats for a while, pass the returned token as holdToken to /bookings/create
+    @PostMapping("/flights/{flightId}/holds")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<SeatHold> holdSeats(@PathVariable String flightId,@RequestBody @Valid SeatHoldRequest request) 
+    {
+        return holdService.hold(flightId,request);
+    }
+
+    //give held seats back early
+    @DeleteMapping("/holds/{token}")
+    public Mono<Void> releaseHold(@PathVariable String token) 
+    {
+        return holdService.release(token);
+    }
+}
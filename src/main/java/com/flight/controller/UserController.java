@@ -1,13 +1,20 @@
 package com.flight.controller;
 
 import com.flight.entity.User;
+import com.flight.exception.BusinessException;
 import com.flight.exception.NotFoundException;
 import com.flight.repository.UserRepository;
 import com.flight.request.UserCreateRequest;
 import com.flight.request.UserUpdateRequest;
+import com.flight.response.CursorPage;
+import com.flight.service.ExistenceFilters;
 
 import jakarta.validation.Valid;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -17,12 +24,15 @@ import reactor.core.publisher.Mono;
 public class UserController 
 {
 	private static final String USER_NOT_FOUND="User not found";
+	private static final String EMAIL_TAKEN="Email already in use";
 
 	//using constructor injection instead of autowired - sonarqube suggestion
 	private final UserRepository userRepo;
-    public UserController(UserRepository userRepo) 
+	private final ExistenceFilters existence;
+    public UserController(UserRepository userRepo,ExistenceFilters existence) 
     {
         this.userRepo =userRepo;
+        this.existence =existence;
     }
 
     @PostMapping
@@ -32,7 +42,12 @@ public class UserController
         User user =new User();
         user.setName(req.getName());
         user.setEmail(req.getEmail());
-        return userRepo.save(user).map(User::getId);
+        //id chosen here so the existence filter knows it before the insert does, insert never replaces an existing user
+        user.setId(new ObjectId().toHexString());
+        //email is a unique index, a second account with it is a client error not a 500
+        return existence.users().inserting(user.getId(),userRepo.insert(user))
+                .onErrorMap(DuplicateKeyException.class,ex->new BusinessException(EMAIL_TAKEN))
+                .map(User::getId);
     }
 
     @GetMapping
@@ -41,6 +56,27 @@ public class UserController
     	return userRepo.findAll();
     }
 
+    //one page of users ordered by id, follow nextCursor for the rest
+    @GetMapping("/page")
+    public Mono<CursorPage<User>> getUsersPage(@RequestParam(required=false) String cursor,@RequestParam(required=false) Integer size) 
+    {
+        return Mono.defer(()-> 
+        {
+            int pageSize=CursorPage.pageSize(size);
+            String after=CursorPage.decodeCursor(cursor);
+            Limit limit=Limit.of(pageSize+1);
+            Flux<User> rows=after==null ? userRepo.findAllByOrderByIdAsc(limit) : userRepo.findByIdGreaterThanOrderByIdAsc(after,limit);
+            return rows.collectList().map(fetched->CursorPage.of(fetched,pageSize,User::getId));
+        });
+    }
+
+    //all users as ndjson, written as they are read
+    @GetMapping(value="/stream",produces=MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamAllUsers() 
+    {
+        return userRepo.findAll();
+    }
+
     @GetMapping("/{id}")
     public Mono<User> getUser(@PathVariable String id) 
     {
@@ -57,7 +93,8 @@ public class UserController
                     existing.setName(req.getName());
                     existing.setEmail(req.getEmail());
                     return userRepo.save(existing);
-                });
+                })
+                .onErrorMap(DuplicateKeyException.class,ex->new BusinessException(EMAIL_TAKEN));
     }
     
 
@@ -3,6 +3,7 @@ package com.flight.entity;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -21,14 +22,18 @@ public class Booking
     @Id
     private String id;
 
+    //unique so a pnr always resolves to one booking, see PnrGenerator
+    @Indexed(unique=true)
     private String pnr;
 
     //from user table
     @NotBlank(message="UserId is required")
+    @Indexed
     private String userId;
 
     //from flight table
     @NotBlank(message="FlightId is required")
+    @Indexed
     private String flightId;
 
     @Min(value=1,message="At least 1 seat must be booked")
@@ -40,6 +45,10 @@ public class Booking
     @NotNull(message = "flightType is required")
     private FLIGHT_TYPE flightType;
     
+    //passengers are stored inside the booking so a booking is one insert and one read
+    private List<Passenger> passengers;
+
+    //legacy: ids into the passengers collection, only set on bookings not yet migrated
     private List<String> passengerIds;
         
 }
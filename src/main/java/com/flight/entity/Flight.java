@@ -1,8 +1,11 @@
 package com.flight.entity;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -16,6 +19,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "flights")
+@CompoundIndex(name="route_departure",def="{'fromCity':1,'toCity':1,'departureTime':1}")
+@CompoundIndex(name="airline_departure",def="{'airlineCode':1,'departureTime':1}")
+@CompoundIndex(name="airline_id",def="{'airlineCode':1,'_id':1}")
 public class Flight 
 {
     @Id
@@ -52,4 +58,14 @@ public class Flight
     @NotNull(message="status is required")
     private FLIGHT_STATUS status;
 
+    //occupied seats as bitmap words, see SeatMap for the layout
+    private Map<String,Long> seatMap=new HashMap<>();
+
+    //bumped by every seat update, orders the snapshots of one flight
+    private long seatVersion;
+
+    //missing on flights stored before seat maps, reserveSeats refuses those until SeatMapBackfill has
+    //filled their map from the bookings; a new flight starts with its (empty) map complete
+    private boolean seatMapReady=true;
+
 }
@@ -0,0 +1,39 @@
+package com.flight.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//stored outcome of a request sent with an Idempotency-Key, the id is "<operation>:<key>"
+//written first without a result as the claim of the instance running the request, then replaced by the outcome
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("idempotency_keys")
+public class IdempotencyRecord 
+{
+    @Id
+    private String id;
+
+    //hash of the request body, a key reused for a different request is rejected
+    private String fingerprint;
+
+    //null while the request is still running
+    private String result;
+
+    //mongo ttl index, the document is removed once this time has passed
+    @Indexed(expireAfter="0s")
+    private LocalDateTime expiresAt;
+
+    public boolean pending() 
+    {
+        return result==null;
+    }
+}
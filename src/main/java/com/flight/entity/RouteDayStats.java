@@ -0,0 +1,88 @@
+package com.flight.entity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//load factor, bookings and revenue of one airline on one route for one departure day
+//computed by the route_day_stats aggregation over flights and bookings, and kept in route_day_stats
+//for finished days by AirlineAnalyticsService's rollup so dashboards read those instead of the live collections
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("route_day_stats")
+@CompoundIndex(name="airline_day",def="{'airlineCode':1,'day':1}")
+public class RouteDayStats 
+{
+    //airline:from:to:day, so rolling a day up again replaces its rows
+    @Id
+    private String id;
+
+    private String airlineCode;
+    private AIRPORT_CODE fromCity;
+    private AIRPORT_CODE toCity;
+    //the rollup finds a day's old rows of every airline, airline_day cannot serve that
+    @Indexed
+    private LocalDate day;
+
+    private long flights;
+    private long totalSeats;
+    //totalSeats-availableSeats, includes seats still held and not booked yet
+    private long seatsSold;
+    //1 - availableSeats/totalSeats over all the flights of the route that day, weighted by seats
+    private double loadFactor;
+
+    private long bookings;
+    private long seatsBooked;
+    //price x seatsBooked, at the flight's current price
+    private double revenue;
+
+    public static RouteDayStats of(Flight flight, List<Booking> bookings) 
+    {
+        RouteDayStats stats=new RouteDayStats();
+        stats.setAirlineCode(flight.getAirlineCode());
+        stats.setFromCity(flight.getFromCity());
+        stats.setToCity(flight.getToCity());
+        stats.setDay(flight.getDepartureTime().toLocalDate());
+        stats.setFlights(1);
+        stats.setTotalSeats(flight.getTotalSeats());
+        stats.setSeatsSold(flight.getTotalSeats()-flight.getAvailableSeats());
+        stats.setBookings(bookings.size());
+        stats.setSeatsBooked(bookings.stream().mapToLong(Booking::getSeatsBooked).sum());
+        stats.setRevenue((double)flight.getPrice()*stats.getSeatsBooked());
+        stats.setLoadFactor(loadFactor(stats.getSeatsSold(),stats.getTotalSeats()));
+        return stats;
+    }
+
+    //adds the counts of another flight on the same route and day
+    public RouteDayStats merge(RouteDayStats other) 
+    {
+        flights+=other.flights;
+        totalSeats+=other.totalSeats;
+        seatsSold+=other.seatsSold;
+        bookings+=other.bookings;
+        seatsBooked+=other.seatsBooked;
+        revenue+=other.revenue;
+        loadFactor=loadFactor(seatsSold,totalSeats);
+        return this;
+    }
+
+    public String key() 
+    {
+        return airlineCode+":"+fromCity+":"+toCity+":"+day;
+    }
+
+    private static double loadFactor(long seatsSold, long totalSeats) 
+    {
+        return totalSeats==0 ? 0 : (double)seatsSold/totalSeats;
+    }
+}
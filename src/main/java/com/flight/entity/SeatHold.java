@@ -0,0 +1,35 @@
+package com.flight.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//seats taken off a flight for a while so the user can finish the booking, the id is the hold token
+//the seats are already reserved on the Flight, converting the hold into a booking or letting it expire removes it
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("seat_holds")
+public class SeatHold 
+{
+    @Id
+    private String token;
+
+    private String flightId;
+
+    private String userId;
+
+    private List<String> seatNumbers;
+
+    //the expiry sweeper scans on this
+    @Indexed
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,99 @@
+package com.flight.entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.flight.exception.BusinessException;
+
+//bitmap layout of Flight.seatMap
+//seat "A70" -> word "A1" (row letter + 70/64), bit 70%64 = 6
+//a claim/release touches one long per word so conflict checks cost the same no matter how many bookings exist
+
+public final class SeatMap 
+{
+	public static final int BITS_PER_WORD=64;
+	private static final int MAX_SEAT_DIGITS=4;
+
+	private SeatMap() 
+	{
+	}
+
+	public static String wordKey(String seatNumber) 
+	{
+		return seatNumber.charAt(0)+String.valueOf(seatIndex(seatNumber)/BITS_PER_WORD);
+	}
+
+	public static int bit(String seatNumber) 
+	{
+		return seatIndex(seatNumber)%BITS_PER_WORD;
+	}
+
+	//word key -> mask with one bit per requested seat
+	public static Map<String,Long> masks(Collection<String> seatNumbers) 
+	{
+		Map<String,Long> masks=new LinkedHashMap<>();
+		for (String seat:seatNumbers) 
+		{
+			masks.merge(wordKey(seat),1L<<bit(seat),(a,b)->a|b);
+		}
+		return masks;
+	}
+
+	public static boolean isOccupied(Map<String,Long> seatMap, String seatNumber) 
+	{
+		if (seatMap==null) 
+		{
+			return false;
+		}
+		Long word=seatMap.get(wordKey(seatNumber));
+		return word!=null && (word & (1L<<bit(seatNumber)))!=0;
+	}
+
+	//decodes the bitmap back to seat numbers, sorted by row letter then number
+	public static List<String> occupiedSeats(Map<String,Long> seatMap) 
+	{
+		List<String> seats=new ArrayList<>();
+		if (seatMap==null) 
+		{
+			return seats;
+		}
+		for (Map.Entry<String,Long> entry:new TreeMap<>(seatMap).entrySet()) 
+		{
+			char row=entry.getKey().charAt(0);
+			int base=Integer.parseInt(entry.getKey().substring(1))*BITS_PER_WORD;
+			long word=entry.getValue()==null ? 0L : entry.getValue();
+			while (word!=0) 
+			{
+				int bit=Long.numberOfTrailingZeros(word);
+				seats.add(row+String.valueOf(base+bit));
+				word&=word-1;
+			}
+		}
+		return seats;
+	}
+
+	private static int seatIndex(String seatNumber) 
+	{
+		//same grammar as PassengerRequest.seatNumber: one capital letter followed by digits
+		if (seatNumber==null || seatNumber.length()<2 || seatNumber.length()>MAX_SEAT_DIGITS+1
+				|| seatNumber.charAt(0)<'A' || seatNumber.charAt(0)>'Z') 
+		{
+			throw new BusinessException("invalid seat format: "+seatNumber);
+		}
+		int index=0;
+		for (int i=1;i<seatNumber.length();i++) 
+		{
+			char c=seatNumber.charAt(i);
+			if (c<'0' || c>'9') 
+			{
+				throw new BusinessException("invalid seat format: "+seatNumber);
+			}
+			index=index*10+(c-'0');
+		}
+		return index;
+	}
+}
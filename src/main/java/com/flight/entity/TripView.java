@@ -0,0 +1,72 @@
+package com.flight.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//read model for a user's trip list: one document per live booking with the flight details copied in,
+//so history is a single range read on user_departure instead of a flight and passenger lookup per booking
+//written by TripViewProjection, never the source of truth, TripViewBackfill rebuilds it from bookings and flights
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("trip_views")
+@CompoundIndex(name="user_departure",def="{'userId':1,'departureTime':1}")
+public class TripView 
+{
+    //the booking's pnr, so writing the view again for the same booking replaces it
+    @Id
+    private String pnr;
+
+    private String userId;
+
+    private String flightId;
+
+    private String airlineCode;
+    private String flightNumber;
+    private AIRPORT_CODE fromCity;
+    private AIRPORT_CODE toCity;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private FLIGHT_STATUS status;
+
+    private int seatsBooked;
+    private MEAL_TYPE mealType;
+    private FLIGHT_TYPE flightType;
+    private List<String> passengerNames;
+    private List<String> seatNumbers;
+
+    public static TripView of(Booking booking, List<Passenger> passengers, Flight flight) 
+    {
+        TripView view=new TripView();
+        view.setPnr(booking.getPnr());
+        view.setUserId(booking.getUserId());
+        view.setFlightId(booking.getFlightId());
+        view.setSeatsBooked(booking.getSeatsBooked());
+        view.setMealType(booking.getMealType());
+        view.setFlightType(booking.getFlightType());
+        view.setPassengerNames(passengers.stream().map(Passenger::getName).toList());
+        view.setSeatNumbers(passengers.stream().map(Passenger::getSeatNumber).toList());
+        view.applyFlight(flight);
+        return view;
+    }
+
+    private void applyFlight(Flight flight) 
+    {
+        airlineCode=flight.getAirlineCode();
+        flightNumber=flight.getFlightNumber();
+        fromCity=flight.getFromCity();
+        toCity=flight.getToCity();
+        departureTime=flight.getDepartureTime();
+        arrivalTime=flight.getArrivalTime();
+        status=flight.getStatus();
+    }
+}
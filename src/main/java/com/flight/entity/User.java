@@ -1,6 +1,7 @@
 package com.flight.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Email;
@@ -23,5 +24,6 @@ public class User
 
     @Email(message="Invalid email format")
     @NotBlank(message="Email is required")
+    @Indexed(unique=true)
     private String email;
 }
\ No newline at end of file
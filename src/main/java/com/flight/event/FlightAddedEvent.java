@@ -0,0 +1,8 @@
+package com.flight.event;
+
+import com.flight.entity.Flight;
+
+//published after a new flight is saved
+public record FlightAddedEvent(Flight flight) 
+{
+}
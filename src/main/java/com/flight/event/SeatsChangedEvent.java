@@ -0,0 +1,8 @@
+package com.flight.event;
+
+import com.flight.entity.Flight;
+
+//published after availableSeats/seatMap of a flight changed, carries the updated flight
+public record SeatsChangedEvent(Flight flight) 
+{
+}
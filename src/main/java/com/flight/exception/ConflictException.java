@@ -0,0 +1,11 @@
+package com.flight.exception;
+
+//used if the same request is still being processed elsewhere
+
+public class ConflictException extends RuntimeException 
+{
+    public ConflictException(String message) 
+    {
+        super(message);
+    }
+}
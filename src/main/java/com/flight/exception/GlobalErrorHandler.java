@@ -41,6 +41,13 @@ public class GlobalErrorHandler
         return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(error));
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public Mono<ResponseEntity<Map<String, String>>> handleConflict(ConflictException ex) 
+    {
+        Map<String,String> error =Map.of(ERROR,ex.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(error));
+    }
+
     @ExceptionHandler(SeatUnavailableException.class)
     public Mono<ResponseEntity<Map<String, String>>> handleSeatUnavailable(SeatUnavailableException ex) 
     {
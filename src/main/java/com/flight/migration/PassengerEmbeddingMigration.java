@@ -0,0 +1,74 @@
+package com.flight.migration;
+
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Passenger;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.PassengerRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//one-off move of the old passengers collection into Booking.passengers
+//enable with flight.migration.embed-passengers=true, runs once the beans are up and before the web server starts,
+//so the instance running it takes no traffic until it is done, and a failed run stops the startup
+//per booking: embed passengers -> delete the passenger documents -> drop passengerIds
+//a booking keeps passengerIds until the last step, so an interrupted run picks it up again and repeats the steps,
+//each of which is safe to repeat; seat maps are filled by SeatMapBackfill, not here
+//rollout:
+//1. deploy this version everywhere with the flag off, it books, reads and cancels bookings in either layout
+//2. start one more instance (or restart one) with the flag on, it moves every old booking before it serves, the
+//   others keep serving meanwhile; the moves are updates, not saves, so a booking cancelled meanwhile stays cancelled
+//3. turn the flag off again
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name="flight.migration.embed-passengers",havingValue="true")
+public class PassengerEmbeddingMigration implements SmartInitializingSingleton 
+{
+	private static final int CONCURRENCY=8;
+
+	private final BookingRepository bookingRepo;
+	private final PassengerRepository passengerRepo;
+	public PassengerEmbeddingMigration(BookingRepository bookingRepo,PassengerRepository passengerRepo) 
+	{
+		this.bookingRepo=bookingRepo;
+		this.passengerRepo=passengerRepo;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() 
+	{
+		Long migrated=migrate().block();
+		log.info("Embedded passengers into {} bookings",migrated);
+	}
+
+	public Mono<Long> migrate() 
+	{
+		return bookingRepo.findAll()
+				.filter(this::needsMigration)
+				.flatMap(this::migrateBooking,CONCURRENCY)
+				.count();
+	}
+
+	private boolean needsMigration(Booking booking) 
+	{
+		return booking.getPassengerIds()!=null;
+	}
+
+	//an earlier interrupted run may already have embedded the passengers and deleted their documents
+	private Mono<Booking> migrateBooking(Booking booking) 
+	{
+		Mono<List<Passenger>> passengers=booking.getPassengers()!=null ? Mono.just(booking.getPassengers())
+				: passengerRepo.findByBookingId(booking.getId()).collectList();
+		return passengers.flatMap(found->bookingRepo.embedPassengers(booking.getId(),found))
+				.then(Mono.defer(()->passengerRepo.deleteByBookingId(booking.getId())))
+				.then(Mono.defer(()->bookingRepo.clearPassengerIds(booking.getId())))
+				.thenReturn(booking);
+	}
+}
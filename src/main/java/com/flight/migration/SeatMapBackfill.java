@@ -0,0 +1,69 @@
+package com.flight.migration;
+
+import java.util.List;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.Passenger;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.PassengerRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//fills Flight.seatMap of flights stored before seat maps existed from the seats of their bookings
+//always on: such a flight cannot be booked until this has run (reserveSeats checks seatMapReady), so it starts
+//with the app and does not hold up startup, the rest of the app is usable meanwhile.
+//only flights not marked ready are filled, once they are all done a restart costs one flights scan that finds nothing
+
+@Slf4j
+@Component
+public class SeatMapBackfill 
+{
+	private final FlightRepository flightRepo;
+	private final BookingRepository bookingRepo;
+	private final PassengerRepository passengerRepo;
+	public SeatMapBackfill(FlightRepository flightRepo,BookingRepository bookingRepo,PassengerRepository passengerRepo) 
+	{
+		this.flightRepo=flightRepo;
+		this.bookingRepo=bookingRepo;
+		this.passengerRepo=passengerRepo;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() 
+	{
+		backfill().subscribe(filled->log.info("Seat maps filled for {} flights",filled),
+				ex->log.error("Seat map backfill failed: {}",ex.getMessage()));
+	}
+
+	public Mono<Long> backfill() 
+	{
+		return flightRepo.findBySeatMapReadyNot(true)
+				.concatMap(this::fill)
+				.count();
+	}
+
+	private Mono<Flight> fill(Flight flight) 
+	{
+		return bookingRepo.findByFlightId(flight.getId())
+				.concatMap(this::seatNumbers)
+				.flatMapIterable(seats->seats)
+				.collectList()
+				.flatMap(seats->flightRepo.initSeatMap(flight.getId(),seats))
+				.thenReturn(flight);
+	}
+
+	//bookings not yet moved by PassengerEmbeddingMigration still keep their passengers in the passengers collection
+	private Mono<List<String>> seatNumbers(Booking booking) 
+	{
+		return (booking.getPassengers()!=null ? Mono.just(booking.getPassengers())
+				: passengerRepo.findByBookingId(booking.getId()).collectList())
+				.map(passengers->passengers.stream().map(Passenger::getSeatNumber).toList());
+	}
+}
@@ -0,0 +1,96 @@
+package com.flight.migration;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.Passenger;
+import com.flight.entity.TripView;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.PassengerRepository;
+import com.flight.repository.TripViewRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//fills trip_views from bookings and flights, for bookings made before the read model existed or to repair views
+//after failed projection writes; enable with flight.migration.backfill-trip-views=true, runs before traffic
+//bookings are read in pages, each page costs one flight lookup for all its flights and one bulk view write
+//views are keyed by pnr so a second run overwrites instead of duplicating, views of bookings that no longer
+//exist are removed at the end
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name="flight.migration.backfill-trip-views",havingValue="true")
+public class TripViewBackfill implements ApplicationRunner 
+{
+	private static final int PAGE=500;
+
+	private final BookingRepository bookingRepo;
+	private final PassengerRepository passengerRepo;
+	private final FlightRepository flightRepo;
+	private final TripViewRepository viewRepo;
+	public TripViewBackfill(BookingRepository bookingRepo,PassengerRepository passengerRepo,FlightRepository flightRepo,
+			TripViewRepository viewRepo) 
+	{
+		this.bookingRepo=bookingRepo;
+		this.passengerRepo=passengerRepo;
+		this.flightRepo=flightRepo;
+		this.viewRepo=viewRepo;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) 
+	{
+		Long written=backfill().block();
+		log.info("Backfilled {} trip views",written);
+	}
+
+	public Mono<Long> backfill() 
+	{
+		return bookingRepo.findAll()
+				.buffer(PAGE)
+				.concatMap(this::writePage)
+				.reduce(0L,Long::sum)
+				.flatMap(written->removeOrphans().thenReturn(written));
+	}
+
+	private Mono<Long> writePage(List<Booking> bookings) 
+	{
+		List<String> flightIds=bookings.stream().map(Booking::getFlightId).distinct().toList();
+		return flightRepo.findAllById(flightIds)
+				.collectMap(Flight::getId,Function.identity())
+				.flatMapMany(flights->Flux.fromIterable(bookings)
+						.filter(booking->flights.containsKey(booking.getFlightId()))
+						.concatMap(booking->passengers(booking).map(passengers->TripView.of(booking,passengers,flights.get(booking.getFlightId())))))
+				.collectList()
+				.flatMap(views->viewRepo.saveAll(views).count());
+	}
+
+	//bookings not yet moved by PassengerEmbeddingMigration still keep theirs in the passengers collection
+	private Mono<List<Passenger>> passengers(Booking booking) 
+	{
+		return booking.getPassengers()!=null ? Mono.just(booking.getPassengers())
+				: passengerRepo.findByBookingId(booking.getId()).collectList();
+	}
+
+	private Mono<Void> removeOrphans() 
+	{
+		return viewRepo.findAll()
+				.buffer(PAGE)
+				.concatMap(views->bookingRepo.findByPnrIn(views.stream().map(TripView::getPnr).toList())
+						.map(Booking::getPnr)
+						.collect(Collectors.toSet())
+						.flatMapMany(live->viewRepo.deleteAll(views.stream().filter(view->!live.contains(view.getPnr())).toList())))
+				.then();
+	}
+}
@@ -1,10 +1,17 @@
 package com.flight.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.flight.entity.Airline;
 
+import reactor.core.publisher.Flux;
+
 @Repository
-public interface AirlineRepository extends ReactiveMongoRepository<Airline,String> {
+public interface AirlineRepository extends ReactiveMongoRepository<Airline,String> 
+{
+	//keyset pagination over the airline code, first page and the pages after a cursor
+	Flux<Airline> findAllByOrderByCodeAsc(Limit limit);
+	Flux<Airline> findByCodeGreaterThanOrderByCodeAsc(String code,Limit limit);
 }
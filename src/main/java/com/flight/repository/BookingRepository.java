@@ -1,9 +1,15 @@
 package com.flight.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import com.flight.entity.Booking;
+import com.flight.entity.Passenger;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -12,8 +18,27 @@ import reactor.core.publisher.Mono;
 public interface BookingRepository extends ReactiveMongoRepository<Booking,String> 
 {
 	Mono<Booking> findByPnr(String pnr);  //find booking using unique pnr code
+
+	Flux<Booking> findByPnrIn(Collection<String> pnrs);
     
 	Flux<Booking> findByUserId(String userId);  //get all bookings of a prticular user
     
 	Flux<Booking> findByFlightId(String flightId); // get all bookings for a particular flight
+
+	//number of bookings removed, 0 when a concurrent cancel already took it
+	Mono<Long> deleteByPnr(String pnr);
+
+	//every booking with only the pnr read, to fill the existence filter
+	@Query(value="{}",fields="{'pnr':1}")
+	Flux<Booking> findAllPnrs();
+
+	//embeds the passengers of a booking still pointing at the passengers collection, an update and not a save
+	//so a booking cancelled meanwhile is not written back; number of bookings changed
+	@Query("{'_id':?0,'passengerIds':{'$ne':null}}")
+	@Update("{'$set':{'passengers':?1}}")
+	Mono<Long> embedPassengers(String id, List<Passenger> passengers);
+
+	@Query("{'_id':?0}")
+	@Update("{'$unset':{'passengerIds':1}}")
+	Mono<Long> clearPassengerIds(String id);
 }
@@ -1,5 +1,9 @@
 package com.flight.repository;
 
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,8 +13,17 @@ import com.flight.entity.Flight;
 import reactor.core.publisher.Flux;
 
 @Repository
-public interface FlightRepository extends ReactiveMongoRepository<Flight, String>
+public interface FlightRepository extends ReactiveMongoRepository<Flight, String>,FlightRepositoryCustom
 {
     Flux<Flight> findByFromCityAndToCity(AIRPORT_CODE from,AIRPORT_CODE to);
+    //route flights departing inside the range, served by the route_departure compound index
+    Flux<Flight> findByFromCityAndToCityAndDepartureTimeBetween(AIRPORT_CODE from,AIRPORT_CODE to,Range<LocalDateTime> departure);
     Flux<Flight> findByAirlineCode(String airlineCode);
+    //upcoming flights, used to build the in-memory route graph
+    Flux<Flight> findByDepartureTimeAfter(LocalDateTime time);
+    //$ne also matches flights stored before the field existed
+    Flux<Flight> findBySeatMapReadyNot(boolean ready);
+    //keyset pagination of an airline's flights over _id, served by the airline_id compound index
+    Flux<Flight> findByAirlineCodeOrderByIdAsc(String airlineCode,Limit limit);
+    Flux<Flight> findByAirlineCodeAndIdGreaterThanOrderByIdAsc(String airlineCode,String id,Limit limit);
 }
@@ -0,0 +1,44 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Range;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Flight;
+import com.flight.entity.RouteDayStats;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//seat inventory updates done on the server in one atomic findAndModify
+public interface FlightRepositoryCustom 
+{
+	//claims the seats in Flight.seatMap and decrements availableSeats only if enough seats remain, none of the seats
+	//is taken and the seat map is ready, emits the updated flight or empty if the condition failed
+	Mono<Flight> reserveSeats(String flightId, Collection<String> seatNumbers);
+
+	//clears the seats and gives them back, never raising availableSeats above totalSeats
+	Mono<Flight> releaseSeats(String flightId, Collection<String> seatNumbers);
+
+	//route flights departing inside the range ordered by departure, only the given fields are read from the database
+	Flux<Flight> findOnRoute(AIRPORT_CODE from, AIRPORT_CODE to, Range<LocalDateTime> departure, Collection<String> fields);
+
+	//sets the seat bits of all the flight's bookings and marks its seat map ready, repeating it changes nothing
+	Mono<Void> initSeatMap(String flightId, Collection<String> seatNumbers);
+
+	//the airline's flights departing inside the range joined with their bookings and grouped per route and departure day,
+	//ordered by day then route, rows come out as the server produces them
+	Flux<RouteDayStats> routeDayStats(String airlineCode, Range<LocalDateTime> departure);
+
+	//unordered bulk insert, the server goes on after a flight it rejects and writes the rest
+	//ids are filled in before the write, emits one failure per flight that was not written
+	Flux<InsertFailure> insertUnordered(List<Flight> flights);
+
+	//index is the flight's position in the list given to insertUnordered
+	record InsertFailure(int index, String reason) 
+	{
+	}
+}
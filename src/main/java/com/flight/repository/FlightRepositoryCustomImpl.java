@@ -0,0 +1,202 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.LookupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.RouteDayStats;
+import com.flight.entity.SeatMap;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class FlightRepositoryCustomImpl implements FlightRepositoryCustom 
+{
+	private static final String ID="_id";
+	private static final String AVAILABLE_SEATS="availableSeats";
+	private static final String TOTAL_SEATS="totalSeats";
+	private static final String SEAT_MAP="seatMap.";
+	private static final String SEAT_VERSION="seatVersion";
+	private static final String SEAT_MAP_READY="seatMapReady";
+	private static final String DEPARTURE_TIME="departureTime";
+	private static final String AIRLINE_CODE="airlineCode";
+	private static final String FROM_CITY="fromCity";
+	private static final String TO_CITY="toCity";
+	private static final String PRICE="price";
+	private static final String FLIGHT_ID="flightId";
+	private static final String SEATS_BOOKED="seatsBooked";
+	private static final String BOOKINGS="bookings";
+	private static final String DAY="day";
+	private static final String SOLD="sold";
+
+	private final ReactiveMongoTemplate mongoTemplate;
+	public FlightRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) 
+	{
+		this.mongoTemplate=mongoTemplate;
+	}
+
+	@Override
+	public Mono<Flight> reserveSeats(String flightId, Collection<String> seatNumbers) 
+	{
+		int seats=seatNumbers.size();
+		//a flight whose map still misses its older bookings would accept their seats
+		Criteria criteria=Criteria.where(ID).is(flightId).and(AVAILABLE_SEATS).gte(seats).and(SEAT_MAP_READY).is(true);
+		Update update=new Update().inc(AVAILABLE_SEATS,-seats).inc(SEAT_VERSION,1);
+		for (Map.Entry<String,Long> word:SeatMap.masks(seatNumbers).entrySet()) 
+		{
+			//matches a missing word as well, so the first claim on a row needs no setup
+			criteria.and(SEAT_MAP+word.getKey()).not().bits().anySet(positions(word.getValue()));
+			update.bitwise(SEAT_MAP+word.getKey()).or(word.getValue());
+		}
+		return mongoTemplate.findAndModify(new Query(criteria),update,FindAndModifyOptions.options().returnNew(true),Flight.class);
+	}
+
+	@Override
+	public Mono<Flight> releaseSeats(String flightId, Collection<String> seatNumbers) 
+	{
+		int seats=seatNumbers.size();
+		//availableSeats+seats<=totalSeats, so a repeated release cannot overfill the flight
+		Criteria withinCapacity=Criteria.expr(ComparisonOperators.Lte
+				.valueOf(ArithmeticOperators.Add.valueOf(AVAILABLE_SEATS).add(seats))
+				.lessThanEqualTo(TOTAL_SEATS));
+		Query query=new Query(Criteria.where(ID).is(flightId).andOperator(withinCapacity));
+		Update update=new Update().inc(AVAILABLE_SEATS,seats).inc(SEAT_VERSION,1);
+		for (Map.Entry<String,Long> word:SeatMap.masks(seatNumbers).entrySet()) 
+		{
+			update.bitwise(SEAT_MAP+word.getKey()).and(~word.getValue());
+		}
+		return mongoTemplate.findAndModify(query,update,FindAndModifyOptions.options().returnNew(true),Flight.class);
+	}
+
+	@Override
+	public Flux<Flight> findOnRoute(AIRPORT_CODE from, AIRPORT_CODE to, Range<LocalDateTime> departure, Collection<String> fields) 
+	{
+		//same shape as the derived route/date query so it stays on the route_departure index
+		Criteria criteria=Criteria.where("fromCity").is(from).and("toCity").is(to).and(DEPARTURE_TIME)
+				.gte(departure.getLowerBound().getValue().orElseThrow())
+				.lt(departure.getUpperBound().getValue().orElseThrow());
+		Query query=new Query(criteria).with(Sort.by(DEPARTURE_TIME));
+		query.fields().include(fields.toArray(String[]::new));
+		return mongoTemplate.find(query,Flight.class);
+	}
+
+	@Override
+	public Mono<Void> initSeatMap(String flightId, Collection<String> seatNumbers) 
+	{
+		Update update=new Update().inc(SEAT_VERSION,1).set(SEAT_MAP_READY,true);
+		for (Map.Entry<String,Long> word:SeatMap.masks(seatNumbers).entrySet()) 
+		{
+			update.bitwise(SEAT_MAP+word.getKey()).or(word.getValue());
+		}
+		return mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(flightId)),update,Flight.class).then();
+	}
+
+	@Override
+	public Flux<RouteDayStats> routeDayStats(String airlineCode, Range<LocalDateTime> departure) 
+	{
+		Criteria criteria=Criteria.where(AIRLINE_CODE).is(airlineCode).and(DEPARTURE_TIME)
+				.gte(departure.getLowerBound().getValue().orElseThrow())
+				.lt(departure.getUpperBound().getValue().orElseThrow());
+		//LocalDateTime is stored as the instant in the default zone, days are cut in that zone too
+		DateOperators.Timezone zone=DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+		//written out as a document, the sub pipeline is rendered against the flight fields and would reject seatsBooked
+		AggregationOperation perFlight=context->new Document("$group",new Document(ID,null)
+				.append(BOOKINGS,new Document("$sum",1))
+				.append(SEATS_BOOKED,new Document("$sum","$"+SEATS_BOOKED)));
+		ArithmeticOperators.Subtract seatsSold=ArithmeticOperators.valueOf(TOTAL_SEATS).subtract(AVAILABLE_SEATS);
+		Aggregation aggregation=Aggregation.newAggregation(
+				//airline_departure index
+				Aggregation.match(criteria),
+				Aggregation.project(AIRLINE_CODE,FROM_CITY,TO_CITY,TOTAL_SEATS,AVAILABLE_SEATS,PRICE)
+						.and(DateOperators.dateOf(DEPARTURE_TIME).withTimezone(zone).truncate(DAY)).as(DAY)
+						.and(ConvertOperators.valueOf(ID).convertToString()).as(FLIGHT_ID),
+				//per flight booking count and seats on the flightId index, one small document instead of the bookings
+				LookupOperation.newLookup().from(mongoTemplate.getCollectionName(Booking.class)).localField(FLIGHT_ID).foreignField(FLIGHT_ID)
+						.pipeline(perFlight)
+						.as(SOLD),
+				//flights without bookings have nothing to unwind and are kept with no sold fields, which $sum skips
+				Aggregation.unwind(SOLD,true),
+				Aggregation.group(AIRLINE_CODE,FROM_CITY,TO_CITY,DAY)
+						.count().as("flights")
+						.sum(TOTAL_SEATS).as(TOTAL_SEATS)
+						.sum(AVAILABLE_SEATS).as(AVAILABLE_SEATS)
+						.sum(SOLD+"."+BOOKINGS).as(BOOKINGS)
+						.sum(SOLD+"."+SEATS_BOOKED).as(SEATS_BOOKED)
+						.sum(ArithmeticOperators.valueOf(PRICE).multiplyBy(SOLD+"."+SEATS_BOOKED)).as("revenue"),
+				Aggregation.project(AIRLINE_CODE,FROM_CITY,TO_CITY,DAY,"flights",TOTAL_SEATS,BOOKINGS,SEATS_BOOKED,"revenue")
+						.andExclude(ID)
+						.and(seatsSold).as("seatsSold")
+						//every flight has totalSeats>=1, so the group total is never 0
+						.and(ArithmeticOperators.valueOf(seatsSold).divideBy(TOTAL_SEATS)).as("loadFactor"),
+				Aggregation.sort(Sort.by(DAY,FROM_CITY,TO_CITY)));
+		return mongoTemplate.aggregate(aggregation,mongoTemplate.getCollectionName(Flight.class),RouteDayStats.class);
+	}
+
+	@Override
+	public Flux<InsertFailure> insertUnordered(List<Flight> flights) 
+	{
+		//the bulk insert does not hand ids back, callers publish the written flights with theirs
+		flights.stream().filter(flight->flight.getId()==null).forEach(flight->flight.setId(new ObjectId().toHexString()));
+		return mongoTemplate.bulkOps(BulkMode.UNORDERED,Flight.class).insert(flights).execute()
+				.thenMany(Flux.<InsertFailure>empty())
+				.onErrorResume(ex->writeErrors(ex)!=null,ex->Flux.fromIterable(writeErrors(ex))
+						.map(error->new InsertFailure(error.getIndex(),error.getMessage())));
+	}
+
+	//per document errors of a bulk write, whether or not the driver exception was translated; null for any other failure
+	private static List<BulkWriteError> writeErrors(Throwable ex) 
+	{
+		for (Throwable cause=ex;cause!=null;cause=cause.getCause()) 
+		{
+			if (cause instanceof BulkOperationException bulk) 
+			{
+				return bulk.getErrors();
+			}
+			if (cause instanceof MongoBulkWriteException bulk) 
+			{
+				return bulk.getWriteErrors();
+			}
+		}
+		return null;
+	}
+
+	//$bitsAnySet with a numeric mask only accepts 32 bit values, bit positions work for the whole long
+	private static List<Integer> positions(long mask) 
+	{
+		List<Integer> positions=new ArrayList<>();
+		while (mask!=0) 
+		{
+			positions.add(Long.numberOfTrailingZeros(mask));
+			mask&=mask-1;
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,11 @@
+package com.flight.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends ReactiveMongoRepository<IdempotencyRecord,String>,IdempotencyRecordRepositoryCustom 
+{
+}
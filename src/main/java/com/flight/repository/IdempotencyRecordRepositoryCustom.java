@@ -0,0 +1,16 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import com.flight.entity.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+public interface IdempotencyRecordRepositoryCustom 
+{
+	//stores the claim unless a record with its id is still live at `now`, true when this caller got the key
+	Mono<Boolean> claim(IdempotencyRecord claim, LocalDateTime now);
+
+	//removes the record only while it is an unfinished claim, a stored result is never dropped
+	Mono<Void> releaseClaim(String id);
+}
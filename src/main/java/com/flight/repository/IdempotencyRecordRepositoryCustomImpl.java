@@ -0,0 +1,43 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.flight.entity.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+//the claim is one upsert on _id: it replaces an expired record or inserts a new one, a live record makes
+//the insert fail on the _id index, so of two instances racing for a key exactly one gets it
+public class IdempotencyRecordRepositoryCustomImpl implements IdempotencyRecordRepositoryCustom 
+{
+	private static final String ID="_id";
+	private static final String EXPIRES_AT="expiresAt";
+	private static final String RESULT="result";
+
+	private final ReactiveMongoTemplate mongoTemplate;
+	public IdempotencyRecordRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) 
+	{
+		this.mongoTemplate=mongoTemplate;
+	}
+
+	@Override
+	public Mono<Boolean> claim(IdempotencyRecord claim, LocalDateTime now) 
+	{
+		Query expired=new Query(Criteria.where(ID).is(claim.getId()).and(EXPIRES_AT).lte(now));
+		return mongoTemplate.findAndReplace(expired,claim,FindAndReplaceOptions.options().upsert())
+				.thenReturn(true)
+				.onErrorResume(DuplicateKeyException.class,ex->Mono.just(false));
+	}
+
+	@Override
+	public Mono<Void> releaseClaim(String id) 
+	{
+		return mongoTemplate.remove(new Query(Criteria.where(ID).is(id).and(RESULT).is(null)),IdempotencyRecord.class).then();
+	}
+}
@@ -0,0 +1,20 @@
+package com.flight.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.RouteDayStats;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface RouteDayStatsRepository extends ReactiveMongoRepository<RouteDayStats,String> 
+{
+	//rolled up rows of one airline and day on the airline_day index, in the order the live aggregation returns them
+	Flux<RouteDayStats> findByAirlineCodeAndDayOrderByFromCityAscToCityAsc(String airlineCode,LocalDate day);
+
+	//every airline's rows of the day on the day index
+	Flux<RouteDayStats> findByDay(LocalDate day);
+}
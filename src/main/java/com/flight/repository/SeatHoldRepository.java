@@ -0,0 +1,18 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.SeatHold;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface SeatHoldRepository extends ReactiveMongoRepository<SeatHold,String>,SeatHoldRepositoryCustom 
+{
+	//oldest expired holds first, one sweeper batch
+	Flux<SeatHold> findByExpiresAtLessThanEqualOrderByExpiresAtAsc(LocalDateTime time, Limit limit);
+}
@@ -0,0 +1,16 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import com.flight.entity.SeatHold;
+
+import reactor.core.publisher.Mono;
+
+public interface SeatHoldRepositoryCustom 
+{
+	//removes and returns the hold if it has not expired at `now`, empty otherwise
+	Mono<SeatHold> claimActive(String token, LocalDateTime now);
+
+	//removes and returns the hold if it has expired at `now`, empty if it was converted or already swept
+	Mono<SeatHold> claimExpired(String token, LocalDateTime now);
+}
@@ -0,0 +1,36 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.flight.entity.SeatHold;
+
+import reactor.core.publisher.Mono;
+
+//findAndRemove makes booking and sweeper mutually exclusive, whoever removes the hold owns its seats
+public class SeatHoldRepositoryCustomImpl implements SeatHoldRepositoryCustom 
+{
+	private static final String ID="_id";
+	private static final String EXPIRES_AT="expiresAt";
+
+	private final ReactiveMongoTemplate mongoTemplate;
+	public SeatHoldRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) 
+	{
+		this.mongoTemplate=mongoTemplate;
+	}
+
+	@Override
+	public Mono<SeatHold> claimActive(String token, LocalDateTime now) 
+	{
+		return mongoTemplate.findAndRemove(new Query(Criteria.where(ID).is(token).and(EXPIRES_AT).gt(now)),SeatHold.class);
+	}
+
+	@Override
+	public Mono<SeatHold> claimExpired(String token, LocalDateTime now) 
+	{
+		return mongoTemplate.findAndRemove(new Query(Criteria.where(ID).is(token).and(EXPIRES_AT).lte(now)),SeatHold.class);
+	}
+}
@@ -0,0 +1,19 @@
+package com.flight.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.TripView;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface TripViewRepository extends ReactiveMongoRepository<TripView,String> 
+{
+	//all on the user_departure index, whole trip list or the part after / before a point in time
+	Flux<TripView> findByUserIdOrderByDepartureTimeAsc(String userId);
+	Flux<TripView> findByUserIdAndDepartureTimeGreaterThanEqualOrderByDepartureTimeAsc(String userId,LocalDateTime time);
+	Flux<TripView> findByUserIdAndDepartureTimeLessThanOrderByDepartureTimeDesc(String userId,LocalDateTime time);
+}
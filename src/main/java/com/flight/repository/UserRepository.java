@@ -1,14 +1,25 @@
 package com.flight.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.flight.entity.User;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface UserRepository extends ReactiveMongoRepository<User,String> 
+public interface UserRepository extends ReactiveMongoRepository<User,String>,UserRepositoryCustom 
 {
 	Mono<User> findByEmail(String email);
+
+	//keyset pagination over _id, first page and the pages after a cursor
+	Flux<User> findAllByOrderByIdAsc(Limit limit);
+	Flux<User> findByIdGreaterThanOrderByIdAsc(String id,Limit limit);
+
+	//every user with only _id read, to fill the existence filter
+	@Query(value="{}",fields="{'_id':1}")
+	Flux<User> findAllIds();
 }
@@ -0,0 +1,13 @@
+package com.flight.repository;
+
+import com.flight.entity.Booking;
+
+import reactor.core.publisher.Flux;
+
+//user reads answered by one aggregation on the server instead of a round trip per collection
+public interface UserRepositoryCustom 
+{
+	//bookings of the user with this email, at most limit of them when limit is not null
+	//empty both for an unknown email and for a user without bookings
+	Flux<Booking> findBookingsByEmail(String email, Integer limit);
+}
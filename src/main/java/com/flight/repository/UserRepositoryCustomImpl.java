@@ -0,0 +1,52 @@
+package com.flight.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.LookupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.flight.entity.Booking;
+import com.flight.entity.User;
+
+import reactor.core.publisher.Flux;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom 
+{
+	private static final String ID="_id";
+	private static final String EMAIL="email";
+	private static final String USER_ID="userId";
+	private static final String BOOKINGS="bookings";
+
+	private final ReactiveMongoTemplate mongoTemplate;
+	public UserRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) 
+	{
+		this.mongoTemplate=mongoTemplate;
+	}
+
+	//$match on the unique email index, then $lookup into bookings through the userId index
+	//$lookup straight before $unwind is coalesced by the server, bookings are never collected into one
+	//user document so the 16MB limit does not apply and the cursor streams them in batches as they are requested
+	@Override
+	public Flux<Booking> findBookingsByEmail(String email, Integer limit) 
+	{
+		List<AggregationOperation> stages=new ArrayList<>();
+		stages.add(Aggregation.match(Criteria.where(EMAIL).is(email)));
+		stages.add(Aggregation.limit(1));
+		//users._id is an ObjectId while bookings.userId holds its hex string
+		stages.add(Aggregation.addFields().addField(USER_ID).withValueOf(ConvertOperators.valueOf(ID).convertToString()).build());
+		//localField/foreignField together with a pipeline needs MongoDB 5.0
+		LookupOperation lookup=limit==null
+				? LookupOperation.newLookup().from(mongoTemplate.getCollectionName(Booking.class)).localField(USER_ID).foreignField(USER_ID).as(BOOKINGS)
+				: LookupOperation.newLookup().from(mongoTemplate.getCollectionName(Booking.class)).localField(USER_ID).foreignField(USER_ID)
+						.pipeline(Aggregation.limit(limit)).as(BOOKINGS);
+		stages.add(lookup);
+		stages.add(Aggregation.unwind(BOOKINGS));
+		stages.add(Aggregation.replaceRoot(BOOKINGS));
+		return mongoTemplate.aggregate(Aggregation.newAggregation(stages),mongoTemplate.getCollectionName(User.class),Booking.class);
+	}
+}
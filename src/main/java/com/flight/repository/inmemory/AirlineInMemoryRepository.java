@@ -0,0 +1,36 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.Airline;
+import com.flight.repository.AirlineRepository;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+@Profile("inmemory")
+public class AirlineInMemoryRepository extends InMemoryRepository<Airline> implements AirlineRepository 
+{
+	public AirlineInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,Airline::getCode,Airline::setCode,airline->new Airline(airline.getCode(),airline.getName()));
+	}
+
+	//the code is the id, so the id order is the code order
+	@Override
+	public Flux<Airline> findAllByOrderByCodeAsc(Limit limit) 
+	{
+		return many(()->limited(rowsAfter(null),limit));
+	}
+
+	@Override
+	public Flux<Airline> findByCodeGreaterThanOrderByCodeAsc(String code, Limit limit) 
+	{
+		return many(()->limited(rowsAfter(code),limit));
+	}
+}
@@ -0,0 +1,104 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Passenger;
+import com.flight.repository.BookingRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("inmemory")
+public class BookingInMemoryRepository extends InMemoryRepository<Booking> implements BookingRepository 
+{
+	//pnr is unique like Booking.pnr's @Indexed(unique=true), a clash raises DuplicateKeyException
+	private final SecondaryIndex<Booking,String> byPnr;
+	private final SecondaryIndex<Booking,String> byUser;
+	private final SecondaryIndex<Booking,String> byFlight;
+	public BookingInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,Booking::getId,Booking::setId,BookingInMemoryRepository::copy);
+		byPnr=index("pnr",Booking::getPnr,true);
+		byUser=index("userId",Booking::getUserId,false);
+		byFlight=index("flightId",Booking::getFlightId,false);
+	}
+
+	@Override
+	public Mono<Booking> findByPnr(String pnr) 
+	{
+		return one(()->lookup(byPnr,pnr).findFirst().orElse(null));
+	}
+
+	@Override
+	public Flux<Booking> findByPnrIn(Collection<String> pnrs) 
+	{
+		return many(()->pnrs.stream().distinct().flatMap(pnr->lookup(byPnr,pnr)));
+	}
+
+	@Override
+	public Flux<Booking> findByUserId(String userId) 
+	{
+		return many(()->lookup(byUser,userId));
+	}
+
+	@Override
+	public Flux<Booking> findByFlightId(String flightId) 
+	{
+		return many(()->lookup(byFlight,flightId));
+	}
+
+	@Override
+	public Mono<Long> deleteByPnr(String pnr) 
+	{
+		return many(()->lookup(byPnr,pnr))
+				.filter(booking->remove(booking.getId(),row->pnr.equals(row.getPnr()))!=null)
+				.count();
+	}
+
+	@Override
+	public Flux<Booking> findAllPnrs() 
+	{
+		return many(this::rows);
+	}
+
+	@Override
+	public Mono<Long> embedPassengers(String id, List<Passenger> passengers) 
+	{
+		return modify(id,booking-> 
+		{
+			if (booking.getPassengerIds()==null) 
+			{
+				return null;
+			}
+			booking.setPassengers(new ArrayList<>(passengers.stream().map(PassengerInMemoryRepository::copy).toList()));
+			return booking;
+		}).map(booking->1L).defaultIfEmpty(0L);
+	}
+
+	@Override
+	public Mono<Long> clearPassengerIds(String id) 
+	{
+		return modify(id,booking-> 
+		{
+			booking.setPassengerIds(null);
+			return booking;
+		}).map(booking->1L).defaultIfEmpty(0L);
+	}
+
+	private static Booking copy(Booking booking) 
+	{
+		return new Booking(booking.getId(),booking.getPnr(),booking.getUserId(),booking.getFlightId(),booking.getSeatsBooked(),
+				booking.getMealType(),booking.getFlightType(),
+				booking.getPassengers()==null ? null : new ArrayList<>(booking.getPassengers().stream().map(PassengerInMemoryRepository::copy).toList()),
+				booking.getPassengerIds()==null ? null : new ArrayList<>(booking.getPassengerIds()));
+	}
+}
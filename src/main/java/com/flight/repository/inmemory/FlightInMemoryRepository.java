@@ -0,0 +1,186 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Flight;
+import com.flight.entity.RouteDayStats;
+import com.flight.entity.SeatMap;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.FlightRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("inmemory")
+public class FlightInMemoryRepository extends InMemoryRepository<Flight> implements FlightRepository 
+{
+	private static final Comparator<Flight> BY_DEPARTURE=Comparator.comparing(Flight::getDepartureTime);
+	//day then route, enums by name like the strings mongo sorts
+	private static final Comparator<RouteDayStats> BY_DAY_ROUTE=Comparator.comparing(RouteDayStats::getDay)
+			.thenComparing(stats->stats.getFromCity().name())
+			.thenComparing(stats->stats.getToCity().name());
+
+	//same keys as the route_departure compound index and the airlineCode lookups
+	private final SecondaryIndex<Flight,Route> byRoute;
+	private final SecondaryIndex<Flight,String> byAirline;
+	//answers routeDayStats
+	private final BookingRepository bookings;
+	public FlightInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency, BookingRepository bookings) 
+	{
+		super(latency,Flight::getId,Flight::setId,FlightInMemoryRepository::copy);
+		byRoute=index("route",flight->new Route(flight.getFromCity(),flight.getToCity()),false);
+		byAirline=index("airlineCode",Flight::getAirlineCode,false);
+		this.bookings=bookings;
+	}
+
+	@Override
+	public Flux<Flight> findByFromCityAndToCity(AIRPORT_CODE from, AIRPORT_CODE to) 
+	{
+		return many(()->lookup(byRoute,new Route(from,to)));
+	}
+
+	@Override
+	public Flux<Flight> findByFromCityAndToCityAndDepartureTimeBetween(AIRPORT_CODE from, AIRPORT_CODE to, Range<LocalDateTime> departure) 
+	{
+		return many(()->lookup(byRoute,new Route(from,to))
+				.filter(flight->departure.contains(flight.getDepartureTime(),LocalDateTime::compareTo)));
+	}
+
+	@Override
+	public Flux<Flight> findByAirlineCode(String airlineCode) 
+	{
+		return many(()->lookup(byAirline,airlineCode));
+	}
+
+	@Override
+	public Flux<Flight> findByDepartureTimeAfter(LocalDateTime time) 
+	{
+		return many(()->rows().filter(flight->flight.getDepartureTime().isAfter(time)));
+	}
+
+	@Override
+	public Flux<Flight> findBySeatMapReadyNot(boolean ready) 
+	{
+		return many(()->rows().filter(flight->flight.isSeatMapReady()!=ready));
+	}
+
+	@Override
+	public Flux<Flight> findByAirlineCodeOrderByIdAsc(String airlineCode, Limit limit) 
+	{
+		return many(()->limited(lookup(byAirline,airlineCode),limit));
+	}
+
+	@Override
+	public Flux<Flight> findByAirlineCodeAndIdGreaterThanOrderByIdAsc(String airlineCode, String id, Limit limit) 
+	{
+		return many(()->limited(lookup(byAirline,airlineCode).filter(flight->flight.getId().compareTo(id)>0),limit));
+	}
+
+	//---- FlightRepositoryCustom, each one a single atomic row update like the findAndModify it replaces
+
+	@Override
+	public Mono<Flight> reserveSeats(String flightId, Collection<String> seatNumbers) 
+	{
+		return modify(flightId,flight-> 
+		{
+			if (!flight.isSeatMapReady() || flight.getAvailableSeats()<seatNumbers.size()
+					|| seatNumbers.stream().anyMatch(seat->SeatMap.isOccupied(flight.getSeatMap(),seat))) 
+			{
+				return null;
+			}
+			SeatMap.masks(seatNumbers).forEach((word,mask)->flight.getSeatMap().merge(word,mask,(a,b)->a|b));
+			flight.setAvailableSeats(flight.getAvailableSeats()-seatNumbers.size());
+			flight.setSeatVersion(flight.getSeatVersion()+1);
+			return flight;
+		});
+	}
+
+	@Override
+	public Mono<Flight> releaseSeats(String flightId, Collection<String> seatNumbers) 
+	{
+		return modify(flightId,flight-> 
+		{
+			if (flight.getAvailableSeats()+seatNumbers.size()>flight.getTotalSeats()) 
+			{
+				return null;
+			}
+			SeatMap.masks(seatNumbers).forEach((word,mask)->flight.getSeatMap().computeIfPresent(word,(key,bits)->bits & ~mask));
+			flight.setAvailableSeats(flight.getAvailableSeats()+seatNumbers.size());
+			flight.setSeatVersion(flight.getSeatVersion()+1);
+			return flight;
+		});
+	}
+
+	//the projection is not applied, whole rows cost nothing extra here
+	@Override
+	public Flux<Flight> findOnRoute(AIRPORT_CODE from, AIRPORT_CODE to, Range<LocalDateTime> departure, Collection<String> fields) 
+	{
+		LocalDateTime lower=departure.getLowerBound().getValue().orElseThrow();
+		LocalDateTime upper=departure.getUpperBound().getValue().orElseThrow();
+		return many(()->lookup(byRoute,new Route(from,to))
+				.filter(flight->!flight.getDepartureTime().isBefore(lower) && flight.getDepartureTime().isBefore(upper))
+				.sorted(BY_DEPARTURE));
+	}
+
+	@Override
+	public Mono<Void> initSeatMap(String flightId, Collection<String> seatNumbers) 
+	{
+		return modify(flightId,flight-> 
+		{
+			SeatMap.masks(seatNumbers).forEach((word,mask)->flight.getSeatMap().merge(word,mask,(a,b)->a|b));
+			flight.setSeatVersion(flight.getSeatVersion()+1);
+			flight.setSeatMapReady(true);
+			return flight;
+		}).then();
+	}
+
+	//the aggregation done in memory: stats per flight from its bookings, then merged per route and day
+	@Override
+	public Flux<RouteDayStats> routeDayStats(String airlineCode, Range<LocalDateTime> departure) 
+	{
+		LocalDateTime lower=departure.getLowerBound().getValue().orElseThrow();
+		LocalDateTime upper=departure.getUpperBound().getValue().orElseThrow();
+		return many(()->lookup(byAirline,airlineCode)
+				.filter(flight->!flight.getDepartureTime().isBefore(lower) && flight.getDepartureTime().isBefore(upper)))
+				.concatMap(flight->bookings.findByFlightId(flight.getId()).collectList().map(sold->RouteDayStats.of(flight,sold)))
+				.collect(Collectors.toMap(RouteDayStats::key,stats->stats,RouteDayStats::merge))
+				.flatMapIterable(byKey->byKey.values().stream().sorted(BY_DAY_ROUTE).toList());
+	}
+
+	//one insert per flight, a rejected one does not stop the rest like an unordered bulk write
+	@Override
+	public Flux<InsertFailure> insertUnordered(List<Flight> flights) 
+	{
+		return Flux.range(0,flights.size())
+				.concatMap(index->insert(flights.get(index)).then(Mono.<InsertFailure>empty())
+						.onErrorResume(DuplicateKeyException.class,ex->Mono.just(new InsertFailure(index,ex.getMessage()))));
+	}
+
+	private static Flight copy(Flight flight) 
+	{
+		Map<String,Long> seatMap=flight.getSeatMap()==null ? new HashMap<>() : new HashMap<>(flight.getSeatMap());
+		return new Flight(flight.getId(),flight.getAirlineCode(),flight.getFlightNumber(),flight.getFromCity(),flight.getToCity(),
+				flight.getDepartureTime(),flight.getArrivalTime(),flight.getTotalSeats(),flight.getAvailableSeats(),
+				flight.getPrice(),flight.getStatus(),seatMap,flight.getSeatVersion(),flight.isSeatMapReady());
+	}
+
+	private record Route(AIRPORT_CODE from, AIRPORT_CODE to) 
+	{
+	}
+}
@@ -0,0 +1,38 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.IdempotencyRecord;
+import com.flight.repository.IdempotencyRecordRepository;
+
+import reactor.core.publisher.Mono;
+
+//only used with flight.idempotency.store=mongo, expired records stay until overwritten, MongoIdempotencyStore already skips them
+
+@Repository
+@Profile("inmemory")
+public class IdempotencyRecordInMemoryRepository extends InMemoryRepository<IdempotencyRecord> implements IdempotencyRecordRepository 
+{
+	public IdempotencyRecordInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,IdempotencyRecord::getId,IdempotencyRecord::setId,
+				record->new IdempotencyRecord(record.getId(),record.getFingerprint(),record.getResult(),record.getExpiresAt()));
+	}
+
+	@Override
+	public Mono<Boolean> claim(IdempotencyRecord claim, LocalDateTime now) 
+	{
+		return upsert(claim.getId(),existing->existing!=null && existing.getExpiresAt().isAfter(now) ? null : claim).hasElement();
+	}
+
+	@Override
+	public Mono<Void> releaseClaim(String id) 
+	{
+		return removeIf(id,IdempotencyRecord::pending).then();
+	}
+}
@@ -0,0 +1,130 @@
+package com.flight.repository.inmemory;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//findBy(Example, ...) over the rows an example matched, query(sort) hands back those rows in that order
+//projections are not applied, whole rows cost nothing extra here
+
+final class InMemoryFluentQuery<S,R> implements FluentQuery.ReactiveFluentQuery<R> 
+{
+	private static final SpelAwareProxyProjectionFactory PROJECTIONS=new SpelAwareProxyProjectionFactory();
+
+	private final Function<Sort,Flux<S>> query;
+	private final Sort sort;
+	private final int limit;
+	private final Class<R> type;
+	InMemoryFluentQuery(Function<Sort,Flux<S>> query, Sort sort, int limit, Class<R> type) 
+	{
+		this.query=query;
+		this.sort=sort;
+		this.limit=limit;
+		this.type=type;
+	}
+
+	@Override
+	public ReactiveFluentQuery<R> sortBy(Sort sort) 
+	{
+		return new InMemoryFluentQuery<>(query,this.sort.and(sort),limit,type);
+	}
+
+	@Override
+	public ReactiveFluentQuery<R> limit(int limit) 
+	{
+		return new InMemoryFluentQuery<>(query,sort,limit,type);
+	}
+
+	@Override
+	public <X> ReactiveFluentQuery<X> as(Class<X> type) 
+	{
+		return new InMemoryFluentQuery<>(query,sort,limit,type);
+	}
+
+	@Override
+	public ReactiveFluentQuery<R> project(Collection<String> properties) 
+	{
+		return this;
+	}
+
+	@Override
+	public Mono<R> one() 
+	{
+		return all().take(2).collectList().flatMap(found->found.size()>1
+				? Mono.error(new IncorrectResultSizeDataAccessException(1,found.size()))
+				: Mono.justOrEmpty(found.stream().findFirst()));
+	}
+
+	@Override
+	public Mono<R> first() 
+	{
+		return all().next();
+	}
+
+	@Override
+	public Flux<R> all() 
+	{
+		return rows(sort).map(this::convert);
+	}
+
+	@Override
+	public Mono<Page<R>> page(Pageable pageable) 
+	{
+		if (pageable.isUnpaged()) 
+		{
+			return all().collectList().map(content->new PageImpl<>(content,pageable,content.size()));
+		}
+		return rows(sort.and(pageable.getSort())).map(this::convert).collectList().map(content-> 
+		{
+			int from=(int)Math.min(pageable.getOffset(),content.size());
+			int to=Math.min(from+pageable.getPageSize(),content.size());
+			return new PageImpl<>(content.subList(from,to),pageable,content.size());
+		});
+	}
+
+	@Override
+	public Mono<Long> count() 
+	{
+		return rows(sort).count();
+	}
+
+	@Override
+	public Mono<Boolean> exists() 
+	{
+		return rows(sort).hasElements();
+	}
+
+	private Flux<S> rows(Sort order) 
+	{
+		Flux<S> found=query.apply(order);
+		return limit>0 ? found.take(limit) : found;
+	}
+
+	//the row itself when it already is the requested type, else an interface projection or a copy of the matching properties
+	@SuppressWarnings("unchecked")
+	private R convert(S row) 
+	{
+		if (type.isInstance(row)) 
+		{
+			return (R)row;
+		}
+		if (type.isInterface()) 
+		{
+			return PROJECTIONS.createProjection(type,row);
+		}
+		R target=BeanUtils.instantiateClass(type);
+		BeanUtils.copyProperties(row,target);
+		return target;
+	}
+}
@@ -0,0 +1,468 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//concurrent map standing in for one mongo collection, used by the inmemory profile
+//every write is one ConcurrentHashMap.compute on the row, so a row update and its index entries change together
+//rows are copied going in and coming out, callers can mutate what they get like a freshly decoded document
+//the optional latency is added before every call to look like a database round trip
+
+public abstract class InMemoryRepository<T> implements ReactiveMongoRepository<T,String> 
+{
+	private final Map<String,T> rows=new ConcurrentHashMap<>();
+	//ids in order, keyset pagination and findAll walk this like the _id index
+	private final ConcurrentSkipListSet<String> ids=new ConcurrentSkipListSet<>();
+	private final List<SecondaryIndex<T,?>> indexes=new ArrayList<>();
+
+	private final Duration latency;
+	private final Function<T,String> idOf;
+	private final BiConsumer<T,String> setId;
+	private final UnaryOperator<T> copy;
+	protected InMemoryRepository(Duration latency,Function<T,String> idOf,BiConsumer<T,String> setId,UnaryOperator<T> copy) 
+	{
+		this.latency=latency;
+		this.idOf=idOf;
+		this.setId=setId;
+		this.copy=copy;
+	}
+
+	//registers an index, call from the subclass constructor before the repository is used
+	protected <K> SecondaryIndex<T,K> index(String name,Function<T,K> key,boolean unique) 
+	{
+		SecondaryIndex<T,K> index=new SecondaryIndex<>(name,key,unique);
+		indexes.add(index);
+		return index;
+	}
+
+	//---- helpers for the derived queries of the subclasses
+
+	protected Mono<T> one(Supplier<T> read) 
+	{
+		return delayed(Mono.fromSupplier(()->copyOf(read.get())));
+	}
+
+	protected Flux<T> many(Supplier<Stream<T>> read) 
+	{
+		return delayed(Flux.defer(()->Flux.fromStream(read.get().map(copy))));
+	}
+
+	//stored rows in id order, not copied, only for reading inside one()/many()
+	protected Stream<T> rows() 
+	{
+		return ids.stream().map(rows::get).filter(Objects::nonNull);
+	}
+
+	//rows whose key is `key`, the row is checked again since a concurrent write may have moved it
+	protected <K> Stream<T> lookup(SecondaryIndex<T,K> index,K key) 
+	{
+		return index.ids(key).stream().sorted().map(rows::get)
+				.filter(row->row!=null && Objects.equals(index.key.apply(row),key));
+	}
+
+	//rows after the cursor in id order, the in-memory form of an _id > cursor range scan
+	protected Stream<T> rowsAfter(String cursor) 
+	{
+		return (cursor==null ? ids : ids.tailSet(cursor,false)).stream().map(rows::get).filter(Objects::nonNull);
+	}
+
+	protected static <X> Stream<X> limited(Stream<X> rows,Limit limit) 
+	{
+		return limit.isUnlimited() ? rows : rows.limit(limit.max());
+	}
+
+	//atomically replaces the row with change(copy of the row), change returns null to leave it as it is
+	//emits the new row, empty if the row is missing or the change was declined
+	protected Mono<T> modify(String id,UnaryOperator<T> change) 
+	{
+		return delayed(Mono.fromSupplier(()-> 
+		{
+			AtomicReference<T> written=new AtomicReference<>();
+			write(id,old-> 
+			{
+				T next=old==null ? null : change.apply(copy.apply(old));
+				written.set(next);
+				return next==null ? old : next;
+			});
+			return copyOf(written.get());
+		}));
+	}
+
+	//atomically stores change(copy of the row, null when there is none), change returns null to leave it as it is
+	//emits the stored row, empty if the change was declined
+	protected Mono<T> upsert(String id,UnaryOperator<T> change) 
+	{
+		return delayed(Mono.fromSupplier(()-> 
+		{
+			AtomicReference<T> written=new AtomicReference<>();
+			write(id,old-> 
+			{
+				T next=change.apply(copyOf(old));
+				written.set(next==null ? null : copy.apply(next));
+				return next==null ? old : written.get();
+			});
+			return copyOf(written.get());
+		}));
+	}
+
+	//atomically removes the row if it matches, emits the removed row
+	protected Mono<T> removeIf(String id,Predicate<T> condition) 
+	{
+		return delayed(Mono.fromSupplier(()->copyOf(remove(id,condition))));
+	}
+
+	protected T remove(String id,Predicate<T> condition) 
+	{
+		AtomicReference<T> removed=new AtomicReference<>();
+		write(id,old-> 
+		{
+			if (old==null || !condition.test(old)) 
+			{
+				return old;
+			}
+			removed.set(old);
+			return null;
+		});
+		return removed.get();
+	}
+
+	//---- ReactiveCrudRepository
+
+	@Override
+	public <S extends T> Mono<S> save(S entity) 
+	{
+		return delayed(Mono.fromSupplier(()->store(entity,false)));
+	}
+
+	@Override
+	public <S extends T> Flux<S> saveAll(Iterable<S> entities) 
+	{
+		return Flux.fromIterable(entities).concatMap(this::save);
+	}
+
+	@Override
+	public <S extends T> Flux<S> saveAll(Publisher<S> entities) 
+	{
+		return Flux.from(entities).concatMap(this::save);
+	}
+
+	@Override
+	public <S extends T> Mono<S> insert(S entity) 
+	{
+		return delayed(Mono.fromSupplier(()->store(entity,true)));
+	}
+
+	@Override
+	public <S extends T> Flux<S> insert(Iterable<S> entities) 
+	{
+		return Flux.fromIterable(entities).concatMap(this::insert);
+	}
+
+	@Override
+	public <S extends T> Flux<S> insert(Publisher<S> entities) 
+	{
+		return Flux.from(entities).concatMap(this::insert);
+	}
+
+	@Override
+	public Mono<T> findById(String id) 
+	{
+		return one(()->rows.get(id));
+	}
+
+	@Override
+	public Mono<T> findById(Publisher<String> id) 
+	{
+		return Mono.from(id).flatMap(this::findById);
+	}
+
+	@Override
+	public Mono<Boolean> existsById(String id) 
+	{
+		return delayed(Mono.fromSupplier(()->rows.containsKey(id)));
+	}
+
+	@Override
+	public Mono<Boolean> existsById(Publisher<String> id) 
+	{
+		return Mono.from(id).flatMap(this::existsById);
+	}
+
+	@Override
+	public Flux<T> findAll() 
+	{
+		return many(this::rows);
+	}
+
+	@Override
+	public Flux<T> findAllById(Iterable<String> ids) 
+	{
+		return many(()->stream(ids).distinct().map(rows::get).filter(Objects::nonNull));
+	}
+
+	@Override
+	public Flux<T> findAllById(Publisher<String> ids) 
+	{
+		return Flux.from(ids).collectList().flatMapMany(this::findAllById);
+	}
+
+	@Override
+	public Mono<Long> count() 
+	{
+		return delayed(Mono.fromSupplier(()->(long)rows.size()));
+	}
+
+	@Override
+	public Mono<Void> deleteById(String id) 
+	{
+		return delayed(Mono.fromRunnable(()->remove(id,row->true)));
+	}
+
+	@Override
+	public Mono<Void> deleteById(Publisher<String> id) 
+	{
+		return Mono.from(id).flatMap(this::deleteById);
+	}
+
+	@Override
+	public Mono<Void> delete(T entity) 
+	{
+		return deleteById(idOf.apply(entity));
+	}
+
+	@Override
+	public Mono<Void> deleteAllById(Iterable<? extends String> ids) 
+	{
+		return delayed(Mono.fromRunnable(()->ids.forEach(id->remove(id,row->true))));
+	}
+
+	@Override
+	public Mono<Void> deleteAll(Iterable<? extends T> entities) 
+	{
+		return delayed(Mono.fromRunnable(()->entities.forEach(entity->remove(idOf.apply(entity),row->true))));
+	}
+
+	@Override
+	public Mono<Void> deleteAll(Publisher<? extends T> entities) 
+	{
+		return Flux.from(entities).concatMap(this::delete).then();
+	}
+
+	@Override
+	public Mono<Void> deleteAll() 
+	{
+		return delayed(Mono.fromRunnable(()->ids.forEach(id->remove(id,row->true))));
+	}
+
+	//---- sort and query by example, rows read through their bean properties, see PropertyMatching
+
+	@Override
+	public Flux<T> findAll(Sort sort) 
+	{
+		return many(()->rows().sorted(PropertyMatching.comparator(sort)));
+	}
+
+	@Override
+	public <S extends T> Mono<S> findOne(Example<S> example) 
+	{
+		return findBy(example,FluentQuery.ReactiveFluentQuery::one);
+	}
+
+	@Override
+	public <S extends T> Flux<S> findAll(Example<S> example) 
+	{
+		return findAll(example,Sort.unsorted());
+	}
+
+	@Override
+	public <S extends T> Flux<S> findAll(Example<S> example,Sort sort) 
+	{
+		Predicate<T> matching=PropertyMatching.matching(example);
+		return many(()->rows().filter(matching).sorted(PropertyMatching.comparator(sort))).cast(example.getProbeType());
+	}
+
+	@Override
+	public <S extends T> Mono<Long> count(Example<S> example) 
+	{
+		return findAll(example).count();
+	}
+
+	@Override
+	public <S extends T> Mono<Boolean> exists(Example<S> example) 
+	{
+		return findAll(example).hasElements();
+	}
+
+	@Override
+	public <S extends T,R,P extends Publisher<R>> P findBy(Example<S> example,Function<FluentQuery.ReactiveFluentQuery<S>,P> queryFunction) 
+	{
+		return queryFunction.apply(new InMemoryFluentQuery<>(sort->findAll(example,sort),Sort.unsorted(),0,example.getProbeType()));
+	}
+
+	//---- storage
+
+	@SuppressWarnings("unchecked")
+	private <S extends T> S store(S entity,boolean insert) 
+	{
+		if (idOf.apply(entity)==null) 
+		{
+			setId.accept(entity,new ObjectId().toHexString());
+		}
+		String id=idOf.apply(entity);
+		T row=copy.apply(entity);
+		write(id,old-> 
+		{
+			if (insert && old!=null) 
+			{
+				throw new DuplicateKeyException("duplicate key "+id+" in "+getClass().getSimpleName());
+			}
+			return row;
+		});
+		//like the mongo repositories the saved instance is handed back, with its id filled in
+		return entity;
+	}
+
+	//the only place rows change: index entries of the new row are claimed first (a unique clash throws
+	//and leaves everything as it was), then the old row's entries are released
+	private void write(String id,UnaryOperator<T> change) 
+	{
+		rows.compute(id,(key,old)-> 
+		{
+			T next=change.apply(old);
+			if (next==old) 
+			{
+				return old;
+			}
+			List<SecondaryIndex<T,?>> claimed=new ArrayList<>();
+			try 
+			{
+				for (SecondaryIndex<T,?> index:indexes) 
+				{
+					index.claim(key,old,next);
+					claimed.add(index);
+				}
+			}
+			catch (DuplicateKeyException ex) 
+			{
+				claimed.forEach(index->index.release(key,next,old));
+				throw ex;
+			}
+			indexes.forEach(index->index.release(key,old,next));
+			if (old==null) 
+			{
+				ids.add(key);
+			}
+			else if (next==null)
+			{
+				ids.remove(key);
+			}
+			return next;
+		});
+	}
+
+	private <X> Mono<X> delayed(Mono<X> call) 
+	{
+		return latency.isZero() ? call : Mono.delay(latency).then(call);
+	}
+
+	private <X> Flux<X> delayed(Flux<X> call) 
+	{
+		return latency.isZero() ? call : Mono.delay(latency).thenMany(call);
+	}
+
+	private T copyOf(T row) 
+	{
+		return row==null ? null : copy.apply(row);
+	}
+
+	private static <X> Stream<X> stream(Iterable<X> values) 
+	{
+		List<X> list=new ArrayList<>();
+		values.forEach(list::add);
+		return list.stream();
+	}
+
+	//key -> ids of the rows with that key, a unique index allows one id per key
+	//null keys are not indexed, same as a sparse index
+	protected static final class SecondaryIndex<T,K> 
+	{
+		private final String name;
+		private final Function<T,K> key;
+		private final boolean unique;
+		private final Map<K,Set<String>> entries=new ConcurrentHashMap<>();
+		private SecondaryIndex(String name,Function<T,K> key,boolean unique) 
+		{
+			this.name=name;
+			this.key=key;
+			this.unique=unique;
+		}
+
+		private Set<String> ids(K value) 
+		{
+			return value==null ? Set.of() : entries.getOrDefault(value,Set.of());
+		}
+
+		//adds the id under the new row's key, only runs inside the row's compute
+		private void claim(String id,T old,T next) 
+		{
+			K to=next==null ? null : key.apply(next);
+			if (to==null || (old!=null && to.equals(key.apply(old)))) 
+			{
+				return;
+			}
+			entries.compute(to,(value,owners)-> 
+			{
+				if (owners==null) 
+				{
+					owners=ConcurrentHashMap.newKeySet();
+				}
+				else if (unique && !owners.isEmpty() && !owners.contains(id))
+				{
+					throw new DuplicateKeyException("duplicate key "+value+" on index "+name);
+				}
+				owners.add(id);
+				return owners;
+			});
+		}
+
+		//drops the id from the old row's key once the row no longer has it
+		private void release(String id,T old,T next) 
+		{
+			K from=old==null ? null : key.apply(old);
+			if (from==null || (next!=null && from.equals(key.apply(next)))) 
+			{
+				return;
+			}
+			entries.computeIfPresent(from,(value,owners)-> 
+			{
+				owners.remove(id);
+				return owners.isEmpty() ? null : owners;
+			});
+		}
+	}
+}
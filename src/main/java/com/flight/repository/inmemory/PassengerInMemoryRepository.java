@@ -0,0 +1,45 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.Passenger;
+import com.flight.repository.PassengerRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("inmemory")
+public class PassengerInMemoryRepository extends InMemoryRepository<Passenger> implements PassengerRepository 
+{
+	private final SecondaryIndex<Passenger,String> byBooking;
+	public PassengerInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,Passenger::getId,Passenger::setId,PassengerInMemoryRepository::copy);
+		byBooking=index("bookingId",Passenger::getBookingId,false);
+	}
+
+	@Override
+	public Flux<Passenger> findByBookingId(String bookingId) 
+	{
+		return many(()->lookup(byBooking,bookingId));
+	}
+
+	@Override
+	public Mono<Void> deleteByBookingId(String bookingId) 
+	{
+		return many(()->lookup(byBooking,bookingId))
+				.doOnNext(passenger->remove(passenger.getId(),row->bookingId.equals(row.getBookingId())))
+				.then();
+	}
+
+	static Passenger copy(Passenger passenger) 
+	{
+		return new Passenger(passenger.getId(),passenger.getName(),passenger.getGender(),passenger.getAge(),
+				passenger.getSeatNumber(),passenger.getBookingId());
+	}
+}
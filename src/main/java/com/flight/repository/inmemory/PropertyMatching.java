@@ -0,0 +1,128 @@
+package com.flight.repository.inmemory;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.PropertySpecifier;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.Sort;
+
+//sort and query by example over stored rows, read through their bean properties like the mapper reads documents
+//a probe matches the way the mongo example mapper builds its query: every set property of the probe, primitives included,
+//nested beans compared as a whole value, strings by the matcher's StringMatcher
+
+final class PropertyMatching 
+{
+	private PropertyMatching() 
+	{
+	}
+
+	//nulls first like mongo, enums by name like the strings they are stored as
+	static <T> Comparator<T> comparator(Sort sort) 
+	{
+		Comparator<T> order=(a,b)->0;
+		for (Sort.Order by:sort) 
+		{
+			Comparator<T> next=(a,b)->compare(read(a,by.getProperty()),read(b,by.getProperty()),by.isIgnoreCase());
+			order=order.thenComparing(by.isAscending() ? next : next.reversed());
+		}
+		return order;
+	}
+
+	static <T> Predicate<T> matching(Example<? extends T> example) 
+	{
+		Object probe=example.getProbe();
+		ExampleMatcher matcher=example.getMatcher();
+		List<Predicate<T>> checks=new ArrayList<>();
+		for (PropertyDescriptor property:BeanUtils.getPropertyDescriptors(example.getProbeType())) 
+		{
+			String path=property.getName();
+			if (property.getReadMethod()==null || "class".equals(path) || matcher.isIgnoredPath(path)) 
+			{
+				continue;
+			}
+			PropertySpecifier specifier=matcher.getPropertySpecifiers().getForPath(path);
+			Object value=specifier==null ? read(probe,path) : specifier.transformValue(Optional.ofNullable(read(probe,path))).orElse(null);
+			if (value==null && matcher.getNullHandler()==ExampleMatcher.NullHandler.IGNORE
+					|| value instanceof Collection<?> values && values.isEmpty()
+					|| value instanceof Map<?,?> entries && entries.isEmpty()) 
+			{
+				continue;
+			}
+			checks.add(row->matches(read(row,path),value,matcher,specifier));
+		}
+		Class<?> type=example.getProbeType();
+		Predicate<T> all=matcher.isAllMatching()
+				? row->checks.stream().allMatch(check->check.test(row))
+				: row->checks.isEmpty() || checks.stream().anyMatch(check->check.test(row));
+		return row->type.isInstance(row) && all.test(row);
+	}
+
+	private static boolean matches(Object actual, Object expected, ExampleMatcher matcher, PropertySpecifier specifier) 
+	{
+		if (!(expected instanceof String wanted)) 
+		{
+			return Objects.equals(actual,expected);
+		}
+		if (!(actual instanceof String value)) 
+		{
+			return false;
+		}
+		StringMatcher how=specifier==null || specifier.getStringMatcher()==null ? matcher.getDefaultStringMatcher() : specifier.getStringMatcher();
+		boolean ignoreCase=specifier==null || specifier.getIgnoreCase()==null ? matcher.isIgnoreCaseEnabled() : specifier.getIgnoreCase();
+		return switch (how) 
+		{
+			case STARTING->value.regionMatches(ignoreCase,0,wanted,0,wanted.length());
+			case ENDING->value.regionMatches(ignoreCase,value.length()-wanted.length(),wanted,0,wanted.length());
+			case CONTAINING->ignoreCase ? value.toLowerCase().contains(wanted.toLowerCase()) : value.contains(wanted);
+			case REGEX->Pattern.compile(wanted,ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(value).find();
+			default->ignoreCase ? value.equalsIgnoreCase(wanted) : value.equals(wanted);
+		};
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	private static int compare(Object a, Object b, boolean ignoreCase) 
+	{
+		if (a==null || b==null) 
+		{
+			return a==null ? (b==null ? 0 : -1) : 1;
+		}
+		if (a instanceof Enum<?> x && b instanceof Enum<?> y) 
+		{
+			return x.name().compareTo(y.name());
+		}
+		if (ignoreCase && a instanceof String x && b instanceof String y) 
+		{
+			return x.compareToIgnoreCase(y);
+		}
+		return ((Comparable)a).compareTo(b);
+	}
+
+	//dotted paths walk nested beans, a null on the way reads as null
+	private static Object read(Object row, String path) 
+	{
+		BeanWrapper bean=PropertyAccessorFactory.forBeanPropertyAccess(row);
+		try 
+		{
+			return bean.getPropertyValue(path);
+		}
+		catch (NullValueInNestedPathException ex) 
+		{
+			return null;
+		}
+	}
+}
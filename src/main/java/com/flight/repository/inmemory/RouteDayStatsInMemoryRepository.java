@@ -0,0 +1,51 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.RouteDayStats;
+import com.flight.repository.RouteDayStatsRepository;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+@Profile("inmemory")
+public class RouteDayStatsInMemoryRepository extends InMemoryRepository<RouteDayStats> implements RouteDayStatsRepository 
+{
+	//enums sort by name like the strings they are stored as
+	private static final Comparator<RouteDayStats> BY_ROUTE=Comparator.comparing((RouteDayStats stats)->stats.getFromCity().name())
+			.thenComparing(stats->stats.getToCity().name());
+
+	private final SecondaryIndex<RouteDayStats,String> byAirlineDay;
+	private final SecondaryIndex<RouteDayStats,LocalDate> byDay;
+	public RouteDayStatsInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,RouteDayStats::getId,RouteDayStats::setId,RouteDayStatsInMemoryRepository::copy);
+		byAirlineDay=index("airline_day",stats->stats.getAirlineCode()+":"+stats.getDay(),false);
+		byDay=index("day",RouteDayStats::getDay,false);
+	}
+
+	@Override
+	public Flux<RouteDayStats> findByAirlineCodeAndDayOrderByFromCityAscToCityAsc(String airlineCode, LocalDate day) 
+	{
+		return many(()->lookup(byAirlineDay,airlineCode+":"+day).sorted(BY_ROUTE));
+	}
+
+	@Override
+	public Flux<RouteDayStats> findByDay(LocalDate day) 
+	{
+		return many(()->lookup(byDay,day));
+	}
+
+	private static RouteDayStats copy(RouteDayStats stats) 
+	{
+		return new RouteDayStats(stats.getId(),stats.getAirlineCode(),stats.getFromCity(),stats.getToCity(),stats.getDay(),
+				stats.getFlights(),stats.getTotalSeats(),stats.getSeatsSold(),stats.getLoadFactor(),
+				stats.getBookings(),stats.getSeatsBooked(),stats.getRevenue());
+	}
+}
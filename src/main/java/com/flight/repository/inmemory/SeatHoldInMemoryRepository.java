@@ -0,0 +1,48 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.SeatHold;
+import com.flight.repository.SeatHoldRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("inmemory")
+public class SeatHoldInMemoryRepository extends InMemoryRepository<SeatHold> implements SeatHoldRepository 
+{
+	public SeatHoldInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,SeatHold::getToken,SeatHold::setToken,hold->new SeatHold(hold.getToken(),hold.getFlightId(),hold.getUserId(),
+				hold.getSeatNumbers()==null ? null : new ArrayList<>(hold.getSeatNumbers()),hold.getExpiresAt()));
+	}
+
+	//live holds are few, a scan stands in for the expiresAt index
+	@Override
+	public Flux<SeatHold> findByExpiresAtLessThanEqualOrderByExpiresAtAsc(LocalDateTime time, Limit limit) 
+	{
+		return many(()->limited(rows().filter(hold->!hold.getExpiresAt().isAfter(time))
+				.sorted(Comparator.comparing(SeatHold::getExpiresAt)),limit));
+	}
+
+	@Override
+	public Mono<SeatHold> claimActive(String token, LocalDateTime now) 
+	{
+		return removeIf(token,hold->hold.getExpiresAt().isAfter(now));
+	}
+
+	@Override
+	public Mono<SeatHold> claimExpired(String token, LocalDateTime now) 
+	{
+		return removeIf(token,hold->!hold.getExpiresAt().isAfter(now));
+	}
+}
@@ -0,0 +1,56 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.TripView;
+import com.flight.repository.TripViewRepository;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+@Profile("inmemory")
+public class TripViewInMemoryRepository extends InMemoryRepository<TripView> implements TripViewRepository 
+{
+	private static final Comparator<TripView> BY_DEPARTURE=Comparator.comparing(TripView::getDepartureTime);
+
+	private final SecondaryIndex<TripView,String> byUser;
+	public TripViewInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency) 
+	{
+		super(latency,TripView::getPnr,TripView::setPnr,TripViewInMemoryRepository::copy);
+		byUser=index("userId",TripView::getUserId,false);
+	}
+
+	@Override
+	public Flux<TripView> findByUserIdOrderByDepartureTimeAsc(String userId) 
+	{
+		return many(()->lookup(byUser,userId).sorted(BY_DEPARTURE));
+	}
+
+	@Override
+	public Flux<TripView> findByUserIdAndDepartureTimeGreaterThanEqualOrderByDepartureTimeAsc(String userId, LocalDateTime time) 
+	{
+		return many(()->lookup(byUser,userId).filter(view->!view.getDepartureTime().isBefore(time)).sorted(BY_DEPARTURE));
+	}
+
+	@Override
+	public Flux<TripView> findByUserIdAndDepartureTimeLessThanOrderByDepartureTimeDesc(String userId, LocalDateTime time) 
+	{
+		return many(()->lookup(byUser,userId).filter(view->view.getDepartureTime().isBefore(time)).sorted(BY_DEPARTURE.reversed()));
+	}
+
+	private static TripView copy(TripView view) 
+	{
+		return new TripView(view.getPnr(),view.getUserId(),view.getFlightId(),view.getAirlineCode(),view.getFlightNumber(),
+				view.getFromCity(),view.getToCity(),view.getDepartureTime(),view.getArrivalTime(),view.getStatus(),
+				view.getSeatsBooked(),view.getMealType(),view.getFlightType(),
+				view.getPassengerNames()==null ? null : new ArrayList<>(view.getPassengerNames()),
+				view.getSeatNumbers()==null ? null : new ArrayList<>(view.getSeatNumbers()));
+	}
+}
@@ -0,0 +1,65 @@
+package com.flight.repository.inmemory;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import com.flight.entity.Booking;
+import com.flight.entity.User;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.UserRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("inmemory")
+public class UserInMemoryRepository extends InMemoryRepository<User> implements UserRepository 
+{
+	//email is unique like User.email's @Indexed(unique=true)
+	private final SecondaryIndex<User,String> byEmail;
+	//answers findBookingsByEmail
+	private final BookingRepository bookings;
+	public UserInMemoryRepository(@Value("${flight.inmemory.latency:0ms}") Duration latency, BookingRepository bookings) 
+	{
+		super(latency,User::getId,User::setId,user->new User(user.getId(),user.getName(),user.getEmail()));
+		byEmail=index("email",User::getEmail,true);
+		this.bookings=bookings;
+	}
+
+	@Override
+	public Mono<User> findByEmail(String email) 
+	{
+		return one(()->lookup(byEmail,email).findFirst().orElse(null));
+	}
+
+	@Override
+	public Flux<User> findAllByOrderByIdAsc(Limit limit) 
+	{
+		return many(()->limited(rowsAfter(null),limit));
+	}
+
+	@Override
+	public Flux<User> findByIdGreaterThanOrderByIdAsc(String id, Limit limit) 
+	{
+		return many(()->limited(rowsAfter(id),limit));
+	}
+
+	@Override
+	public Flux<User> findAllIds() 
+	{
+		return many(this::rows);
+	}
+
+	//---- UserRepositoryCustom, the join the aggregation does on the server
+
+	@Override
+	public Flux<Booking> findBookingsByEmail(String email, Integer limit) 
+	{
+		Flux<Booking> found=findByEmail(email).flatMapMany(user->bookings.findByUserId(user.getId()));
+		return limit==null ? found : found.take(limit);
+	}
+}
@@ -33,4 +33,7 @@ public class BookingRequest
     
     @NotEmpty(message="passengers cannot be empty")
     private List<PassengerRequest> passengers;
+
+    //optional, books the seats of this hold instead of claiming them fresh
+    private String holdToken;
 }
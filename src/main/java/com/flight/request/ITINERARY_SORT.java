@@ -0,0 +1,7 @@
+package com.flight.request;
+
+public enum ITINERARY_SORT 
+{
+    DURATION,
+    PRICE
+}
@@ -0,0 +1,36 @@
+package com.flight.request;
+
+import java.time.LocalDate;
+
+import com.flight.entity.AIRPORT_CODE;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ItinerarySearchRequest 
+{
+    @NotNull(message="from is required")
+    private AIRPORT_CODE from;
+
+    @NotNull(message="to is required")
+    private AIRPORT_CODE to;
+
+    //day of the first departure
+    @NotNull(message="date is required")
+    private LocalDate date;
+
+    @Min(value=0,message="maxStops must be >= 0")
+    @Max(value=2,message="maxStops must be <= 2")
+    private int maxStops=1;
+
+    private ITINERARY_SORT sortBy=ITINERARY_SORT.DURATION;
+
+    @Min(value=1,message="limit must be >= 1")
+    @Max(value=20,message="limit must be <= 20")
+    private int limit=5;
+}
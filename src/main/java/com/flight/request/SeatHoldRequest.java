@@ -0,0 +1,19 @@
+package com.flight.request;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SeatHoldRequest 
+{
+    @NotBlank(message="userId is required")
+    private String userId;
+
+    @NotEmpty(message="seatNumbers cannot be empty")
+    private List<@NotBlank(message="seatNumber is required") String> seatNumbers;
+}
@@ -0,0 +1,9 @@
+package com.flight.request;
+
+//which part of a user's trip list to return, split at the current time
+public enum TRIP_FILTER 
+{
+    ALL,
+    UPCOMING,
+    PAST
+}
@@ -0,0 +1,35 @@
+package com.flight.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//outcome of one item of /bookings/batch, index is the item's position in the submitted batch
+//either pnr or error is set
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingBatchResult 
+{
+    private long index;
+
+    private String flightId;
+
+    private String pnr;
+
+    private String error;
+
+    public static BookingBatchResult success(long index, String flightId, String pnr) 
+    {
+        return new BookingBatchResult(index,flightId,pnr,null);
+    }
+
+    public static BookingBatchResult failure(long index, String flightId, String error) 
+    {
+        return new BookingBatchResult(index,flightId,null,error);
+    }
+}
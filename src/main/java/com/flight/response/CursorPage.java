@@ -0,0 +1,74 @@
+package com.flight.response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import com.flight.exception.BusinessException;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//one page of a keyset (cursor) paginated list ordered by id
+//nextCursor is opaque to clients, pass it back as ?cursor= to get the following page, null on the last page
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> 
+{
+    public static final int DEFAULT_SIZE=20;
+    public static final int MAX_SIZE=100;
+
+    private List<T> items;
+
+    private String nextCursor;
+
+    //repositories are asked for size+1 rows, the extra row only tells whether another page exists
+    public static <T> CursorPage<T> of(List<T> fetched, int size, Function<T,String> idOf) 
+    {
+        if (fetched.size()<=size) 
+        {
+            return new CursorPage<>(fetched,null);
+        }
+        List<T> items=fetched.subList(0,size);
+        return new CursorPage<>(items,encodeCursor(idOf.apply(items.get(size-1))));
+    }
+
+    public static int pageSize(Integer requested) 
+    {
+        if (requested==null) 
+        {
+            return DEFAULT_SIZE;
+        }
+        if (requested<1) 
+        {
+            throw new BusinessException("size must be >= 1");
+        }
+        return Math.min(requested,MAX_SIZE);
+    }
+
+    public static String encodeCursor(String lastId) 
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //null/blank cursor means first page
+    public static String decodeCursor(String cursor) 
+    {
+        if (cursor==null || cursor.isBlank()) 
+        {
+            return null;
+        }
+        try 
+        {
+            return new String(Base64.getUrlDecoder().decode(cursor),StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException ex) 
+        {
+            throw new BusinessException("invalid cursor");
+        }
+    }
+}
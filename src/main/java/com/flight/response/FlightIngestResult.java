@@ -0,0 +1,42 @@
+package com.flight.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//one line of the /flights/bulk response stream
+//either a rejected input line (line + error) or a progress report (counters + throughput), the last report has done=true
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlightIngestResult 
+{
+    private Long line;
+
+    private String error;
+
+    private Long accepted;
+
+    private Long rejected;
+
+    private Long elapsedMillis;
+
+    private Double flightsPerSecond;
+
+    private Boolean done;
+
+    public static FlightIngestResult lineError(long line, String error) 
+    {
+        return new FlightIngestResult(line,error,null,null,null,null,null);
+    }
+
+    public static FlightIngestResult progress(long accepted, long rejected, long elapsedMillis, boolean done) 
+    {
+        double rate=elapsedMillis==0 ? accepted : accepted*1000.0/elapsedMillis;
+        return new FlightIngestResult(null,null,accepted,rejected,elapsedMillis,rate,done);
+    }
+}
@@ -0,0 +1,87 @@
+package com.flight.response;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.FLIGHT_STATUS;
+import com.flight.entity.Flight;
+import com.flight.exception.BusinessException;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//search result row holding only the columns the client asked for via ?fields=, the rest stay null and are not written
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlightSummary 
+{
+    public static final List<String> FIELDS=List.of("id","airlineCode","flightNumber","fromCity","toCity",
+            "departureTime","arrivalTime","totalSeats","availableSeats","price","status");
+    public static final List<String> DEFAULT_FIELDS=List.of("id","flightNumber","departureTime","arrivalTime",
+            "availableSeats","price");
+
+    private String id;
+    private String airlineCode;
+    private String flightNumber;
+    private AIRPORT_CODE fromCity;
+    private AIRPORT_CODE toCity;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private Integer totalSeats;
+    private Integer availableSeats;
+    private Float price;
+    private FLIGHT_STATUS status;
+
+    //comma separated field list, blank means DEFAULT_FIELDS, id is always included
+    public static Set<String> parseFields(String fields) 
+    {
+        Set<String> parsed=new LinkedHashSet<>();
+        parsed.add("id");
+        if (fields==null || fields.isBlank()) 
+        {
+            parsed.addAll(DEFAULT_FIELDS);
+            return parsed;
+        }
+        for (String field:Arrays.stream(fields.split(",")).map(String::trim).filter(f->!f.isEmpty()).toList()) 
+        {
+            if (!FIELDS.contains(field)) 
+            {
+                throw new BusinessException("unknown field: "+field);
+            }
+            parsed.add(field);
+        }
+        return parsed;
+    }
+
+    //copies only the requested fields, a projected Flight has defaults (0, null) in the others
+    public static FlightSummary of(Flight flight, Set<String> fields) 
+    {
+        FlightSummary summary=new FlightSummary();
+        for (String field:fields) 
+        {
+            switch (field) 
+            {
+                case "id" -> summary.setId(flight.getId());
+                case "airlineCode" -> summary.setAirlineCode(flight.getAirlineCode());
+                case "flightNumber" -> summary.setFlightNumber(flight.getFlightNumber());
+                case "fromCity" -> summary.setFromCity(flight.getFromCity());
+                case "toCity" -> summary.setToCity(flight.getToCity());
+                case "departureTime" -> summary.setDepartureTime(flight.getDepartureTime());
+                case "arrivalTime" -> summary.setArrivalTime(flight.getArrivalTime());
+                case "totalSeats" -> summary.setTotalSeats(flight.getTotalSeats());
+                case "availableSeats" -> summary.setAvailableSeats(flight.getAvailableSeats());
+                case "price" -> summary.setPrice(flight.getPrice());
+                case "status" -> summary.setStatus(flight.getStatus());
+                default -> throw new BusinessException("unknown field: "+field);
+            }
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,28 @@
+package com.flight.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//a direct or connecting journey, legs in travel order
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Itinerary 
+{
+    private List<FlightSummary> legs;
+
+    private int stops;
+
+    private LocalDateTime departureTime;
+
+    private LocalDateTime arrivalTime;
+
+    private long durationMinutes;
+
+    private double totalPrice;
+}
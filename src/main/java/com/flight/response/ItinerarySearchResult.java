@@ -0,0 +1,21 @@
+package com.flight.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//best itineraries found, complete=false when the latency budget ran out before the search space was exhausted
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItinerarySearchResult 
+{
+    private List<Itinerary> itineraries;
+
+    private boolean complete;
+
+    private long elapsedMicros;
+}
@@ -0,0 +1,35 @@
+package com.flight.response;
+
+import java.util.List;
+
+import com.flight.entity.Flight;
+import com.flight.entity.SeatMap;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//seat count and taken seats of a flight, pushed to availability stream watchers
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatAvailability 
+{
+    private String flightId;
+
+    private int availableSeats;
+
+    private int totalSeats;
+
+    private List<String> occupiedSeats;
+
+    //Flight.seatVersion, a higher one is the newer snapshot
+    private long seatVersion;
+
+    public static SeatAvailability of(Flight flight) 
+    {
+        return new SeatAvailability(flight.getId(),flight.getAvailableSeats(),flight.getTotalSeats(),
+                SeatMap.occupiedSeats(flight.getSeatMap()),flight.getSeatVersion());
+    }
+}
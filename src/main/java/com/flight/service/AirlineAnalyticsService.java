@@ -0,0 +1,213 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Service;
+
+import com.flight.entity.Airline;
+import com.flight.entity.RouteDayStats;
+import com.flight.exception.BusinessException;
+import com.flight.repository.AirlineRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.RouteDayStatsRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//load factor, bookings and revenue per airline, route and departure day
+//any range is aggregated in the database when asked for and streamed back as the rows come
+//the previous day is rolled up once into route_day_stats and served from there through a small cache,
+//so dashboards polling it never touch flights or bookings
+
+@Slf4j
+@Service
+public class AirlineAnalyticsService implements MeterBinder 
+{
+	private final FlightRepository flightRepo;
+	private final AirlineRepository airlineRepo;
+	private final RouteDayStatsRepository statsRepo;
+	private final int maxDays;
+	private final Duration rollupInterval;
+	private final Cache<RollupKey,List<RouteDayStats>> rollups;
+	//last previous day this instance rolled up, until it matches the current one that day is answered live
+	private final AtomicReference<LocalDate> rolledUp=new AtomicReference<>();
+	private final LongAdder liveReads=new LongAdder();
+	private final LongAdder rollupReads=new LongAdder();
+	private Disposable roller;
+
+	public AirlineAnalyticsService(FlightRepository flightRepo,AirlineRepository airlineRepo,RouteDayStatsRepository statsRepo,
+			@Value("${flight.analytics.max-days:92}") int maxDays,
+			@Value("${flight.analytics.rollup-interval:10m}") Duration rollupInterval,
+			@Value("${flight.analytics.rollup-cache-size:1000}") long rollupCacheSize) 
+	{
+		this.flightRepo=flightRepo;
+		this.airlineRepo=airlineRepo;
+		this.statsRepo=statsRepo;
+		this.maxDays=maxDays;
+		this.rollupInterval=rollupInterval;
+		//keyed by day as well, yesterday's entries are never read again after midnight and age out
+		this.rollups=Caffeine.newBuilder()
+				.maximumSize(rollupCacheSize)
+				.expireAfterWrite(Duration.ofDays(1))
+				.recordStats()
+				.build();
+	}
+
+	//from and to are departure days, both included
+	public Flux<RouteDayStats> routeDays(String airlineCode, LocalDate from, LocalDate to) 
+	{
+		return routeDays(airlineCode,from,to,LocalDate.now());
+	}
+
+	Flux<RouteDayStats> routeDays(String airlineCode, LocalDate from, LocalDate to, LocalDate today) 
+	{
+		if (to.isBefore(from)) 
+		{
+			return Flux.error(new BusinessException("to must not be before from"));
+		}
+		if (ChronoUnit.DAYS.between(from,to)>=maxDays) 
+		{
+			return Flux.error(new BusinessException("At most "+maxDays+" days per request"));
+		}
+		LocalDate yesterday=today.minusDays(1);
+		if (from.equals(yesterday) && to.equals(yesterday)) 
+		{
+			return previousDay(airlineCode,today);
+		}
+		return live(airlineCode,from,to);
+	}
+
+	public Flux<RouteDayStats> previousDay(String airlineCode) 
+	{
+		return previousDay(airlineCode,LocalDate.now());
+	}
+
+	Flux<RouteDayStats> previousDay(String airlineCode, LocalDate today) 
+	{
+		LocalDate day=today.minusDays(1);
+		if (!day.equals(rolledUp.get())) 
+		{
+			//just started or just past midnight, the rollup has not run yet
+			return live(airlineCode,day,day);
+		}
+		RollupKey key=new RollupKey(airlineCode,day);
+		List<RouteDayStats> cached=rollups.getIfPresent(key);
+		if (cached!=null) 
+		{
+			return Flux.fromIterable(cached);
+		}
+		rollupReads.increment();
+		return statsRepo.findByAirlineCodeAndDayOrderByFromCityAscToCityAsc(airlineCode,day)
+				.collectList()
+				.doOnNext(rows->rollups.put(key,rows))
+				.flatMapIterable(rows->rows);
+	}
+
+	//aggregates every airline's flights of the day into route_day_stats, airline by airline on the airline_departure index
+	//running it again replaces the rows, routes that no longer have flights that day are removed, emits the row count
+	public Mono<Long> rollup(LocalDate day) 
+	{
+		Range<LocalDateTime> departure=departure(day,day);
+		Set<String> written=ConcurrentHashMap.newKeySet();
+		Flux<RouteDayStats> rows=airlineRepo.findAll()
+				.map(Airline::getCode)
+				.concatMap(code->flightRepo.routeDayStats(code,departure))
+				.doOnNext(stats->stats.setId(stats.key()));
+		return statsRepo.saveAll(rows)
+				.doOnNext(saved->written.add(saved.getId()))
+				.count()
+				.flatMap(count->statsRepo.findByDay(day)
+						.filter(stale->!written.contains(stale.getId()))
+						.concatMap(statsRepo::delete)
+						.then(Mono.just(count)))
+				.doOnSuccess(count->rollups.asMap().keySet().removeIf(key->key.day().equals(day)));
+	}
+
+	//rolls up the day before today unless this instance already did, emits nothing when there was nothing to do
+	Mono<Long> rollupPreviousDay(LocalDate today) 
+	{
+		LocalDate day=today.minusDays(1);
+		if (day.equals(rolledUp.get())) 
+		{
+			return Mono.empty();
+		}
+		return rollup(day).doOnNext(count-> 
+		{
+			rolledUp.set(day);
+			log.info("Rolled up {} route/day rows for {}",count,day);
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void startRollups() 
+	{
+		//checks every interval, so the first tick after midnight rolls up the day that just ended
+		//a failed run (e.g. mongo down) is logged and the next tick tries again
+		roller=Flux.interval(Duration.ZERO,rollupInterval)
+				.onBackpressureDrop()
+				.concatMap(tick->rollupPreviousDay(LocalDate.now())
+						.onErrorResume(ex-> 
+						{
+							log.warn("Route/day rollup failed: {}",ex.getMessage());
+							return Mono.empty();
+						}))
+				.subscribe();
+	}
+
+	@PreDestroy
+	public void stopRollups() 
+	{
+		if (roller!=null) 
+		{
+			roller.dispose();
+		}
+	}
+
+	private Flux<RouteDayStats> live(String airlineCode, LocalDate from, LocalDate to) 
+	{
+		return Flux.defer(()-> 
+		{
+			liveReads.increment();
+			return flightRepo.routeDayStats(airlineCode,departure(from,to));
+		});
+	}
+
+	private static Range<LocalDateTime> departure(LocalDate from, LocalDate to) 
+	{
+		return Range.rightOpen(from.atStartOfDay(),to.plusDays(1).atStartOfDay());
+	}
+
+	//cache.* under cache=routeDayRollup, plus how often the live collections and the rollup collection were read
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		CaffeineCacheMetrics.monitor(registry,rollups,"routeDayRollup");
+		FunctionCounter.builder("flight.analytics.reads",liveReads,LongAdder::sum).tag("source","live").register(registry);
+		FunctionCounter.builder("flight.analytics.reads",rollupReads,LongAdder::sum).tag("source","rollup").register(registry);
+	}
+
+	record RollupKey(String airlineCode, LocalDate day) 
+	{
+	}
+}
@@ -0,0 +1,98 @@
+package com.flight.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//fixed size bloom filter over strings, safe for concurrent put/mightContain
+//k bit positions come from two 64 bit hashes (h1 + i*h2), sized from the expected key count and target fpp
+
+final class BloomFilter 
+{
+	private final AtomicLongArray words;
+	private final long bits;
+	private final int hashes;
+	private final LongAdder bitsSet=new LongAdder();
+	private BloomFilter(long bits, int hashes) 
+	{
+		this.words=new AtomicLongArray((int)((bits+63)>>>6));
+		this.bits=bits;
+		this.hashes=hashes;
+	}
+
+	static BloomFilter create(long expectedKeys, double fpp) 
+	{
+		long keys=Math.max(expectedKeys,1);
+		long bits=Math.max(64,(long)Math.ceil(-keys*Math.log(fpp)/(Math.log(2)*Math.log(2))));
+		int hashes=Math.max(1,(int)Math.round((double)bits/keys*Math.log(2)));
+		return new BloomFilter(bits,hashes);
+	}
+
+	void put(String key) 
+	{
+		long h1=hash(key);
+		long h2=mix(h1+0x9E3779B97F4A7C15L)|1;
+		for (int i=0;i<hashes;i++) 
+		{
+			long bit=Math.floorMod(h1+i*h2,bits);
+			long mask=1L<<bit;
+			long before=words.getAndAccumulate((int)(bit>>>6),mask,(word,m)->word|m);
+			if ((before & mask)==0) 
+			{
+				bitsSet.increment();
+			}
+		}
+	}
+
+	boolean mightContain(String key) 
+	{
+		long h1=hash(key);
+		long h2=mix(h1+0x9E3779B97F4A7C15L)|1;
+		for (int i=0;i<hashes;i++) 
+		{
+			long bit=Math.floorMod(h1+i*h2,bits);
+			if ((words.get((int)(bit>>>6)) & (1L<<bit))==0) 
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//chance that a key never put is reported present, from how full the filter is right now
+	double expectedFpp() 
+	{
+		return Math.pow((double)bitsSet.sum()/bits,hashes);
+	}
+
+	long bits() 
+	{
+		return bits;
+	}
+
+	int hashes() 
+	{
+		return hashes;
+	}
+
+	//fnv-1a over the chars, then a murmur3 finaliser so nearby ids spread over the whole range
+	private static long hash(String key) 
+	{
+		long hash=0xcbf29ce484222325L;
+		for (int i=0;i<key.length();i++) 
+		{
+			hash^=key.charAt(i);
+			hash*=0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long h) 
+	{
+		h^=h>>>33;
+		h*=0xff51afd7ed558ccdL;
+		h^=h>>>33;
+		h*=0xc4ceb9fe1a85ec53L;
+		h^=h>>>33;
+		return h;
+	}
+}
@@ -0,0 +1,186 @@
+package com.flight.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.flight.exception.BusinessException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//bloom filter in front of one kind of key: a key the filter has never seen is reported absent without a query,
+//anything else still goes to the repository to confirm
+//until the first load finishes every key counts as maybe present, so nothing is rejected on a cold filter
+//keys are added before their insert and stay pending until it ends, a rebuild copies the pending keys and
+//adds made while it scans go to both filters, so a rebuild never drops a key that is being written
+//deleted keys stay in the filter as false positives until the next rebuild
+
+public class ExistenceFilter 
+{
+	private final String name;
+	private final double fpp;
+	private final long minCapacity;
+	private volatile BloomFilter active;
+	private volatile BloomFilter building;
+	private volatile long loadedKeys;
+	private final ConcurrentMap<String,Integer> pending=new ConcurrentHashMap<>();
+	private final AtomicBoolean rebuilding=new AtomicBoolean();
+	private final LongAdder absent=new LongAdder();
+	private final LongAdder present=new LongAdder();
+	private final LongAdder falsePositives=new LongAdder();
+
+	public ExistenceFilter(String name, double fpp, long minCapacity) 
+	{
+		this.name=name;
+		this.fpp=fpp;
+		this.minCapacity=minCapacity;
+	}
+
+	//the query's result, or empty straight away when the key is definitely absent
+	public <T> Mono<T> lookup(String key, Supplier<Mono<T>> query) 
+	{
+		return Mono.defer(()-> 
+		{
+			BloomFilter filter=active;
+			if (filter==null || key==null) 
+			{
+				return query.get();
+			}
+			if (!filter.mightContain(key)) 
+			{
+				absent.increment();
+				return Mono.empty();
+			}
+			return query.get().doOnSuccess(found->(found==null ? falsePositives : present).increment());
+		});
+	}
+
+	public <T> Mono<T> inserting(String key, Mono<T> insert) 
+	{
+		return Mono.defer(()-> 
+		{
+			add(key);
+			return insert.doFinally(signal->done(key));
+		});
+	}
+
+	public <T> Flux<T> inserting(Collection<String> keys, Flux<T> insert) 
+	{
+		return Flux.defer(()-> 
+		{
+			keys.forEach(this::add);
+			return insert.doFinally(signal->keys.forEach(this::done));
+		});
+	}
+
+	//sized for twice the current count so the filter has room to grow before the next rebuild
+	public Mono<Long> rebuild(Mono<Long> count, Flux<String> keys) 
+	{
+		return Mono.defer(()-> 
+		{
+			if (!rebuilding.compareAndSet(false,true)) 
+			{
+				return Mono.error(new BusinessException("Rebuild of the "+name+" filter already running"));
+			}
+			return count.map(total->BloomFilter.create(Math.max(minCapacity,total*2),fpp))
+					.flatMap(next-> 
+					{
+						building=next;
+						pending.keySet().forEach(next::put);
+						return keys.doOnNext(next::put).count().doOnNext(loaded-> 
+						{
+							active=next;
+							loadedKeys=loaded;
+						});
+					})
+					.doFinally(signal-> 
+					{
+						building=null;
+						rebuilding.set(false);
+					});
+		});
+	}
+
+	//building is read before active: an add that misses the filter being built lands in the one replacing it
+	private void add(String key) 
+	{
+		pending.merge(key,1,Integer::sum);
+		BloomFilter next=building;
+		if (next!=null) 
+		{
+			next.put(key);
+		}
+		BloomFilter filter=active;
+		if (filter!=null) 
+		{
+			filter.put(key);
+		}
+	}
+
+	private void done(String key) 
+	{
+		pending.computeIfPresent(key,(k,count)->count==1 ? null : count-1);
+	}
+
+	boolean loaded() 
+	{
+		return active!=null;
+	}
+
+	//share of keys that do not exist but still needed a query: false positives / (false positives + rejected)
+	double observedFpp() 
+	{
+		long wasted=falsePositives.sum();
+		long total=wasted+absent.sum();
+		return total==0 ? 0 : (double)wasted/total;
+	}
+
+	public Map<String,Object> stats() 
+	{
+		BloomFilter filter=active;
+		Map<String,Object> result=new LinkedHashMap<>();
+		result.put("loaded",filter!=null);
+		result.put("keys",loadedKeys);
+		result.put("bits",filter==null ? 0 : filter.bits());
+		result.put("hashes",filter==null ? 0 : filter.hashes());
+		result.put("rejected",absent.sum());
+		result.put("confirmed",present.sum());
+		result.put("falsePositives",falsePositives.sum());
+		result.put("observedFpp",observedFpp());
+		result.put("expectedFpp",filter==null ? 0 : filter.expectedFpp());
+		return result;
+	}
+
+	void bindTo(MeterRegistry registry) 
+	{
+		check(registry,"absent",absent);
+		check(registry,"present",present);
+		check(registry,"false-positive",falsePositives);
+		Gauge.builder("flight.existence.false-positive-rate",this,ExistenceFilter::observedFpp)
+				.tag("filter",name)
+				.description("observed false positives / lookups of keys that do not exist")
+				.register(registry);
+		Gauge.builder("flight.existence.expected-false-positive-rate",this,filter->filter.active==null ? 0 : filter.active.expectedFpp())
+				.tag("filter",name)
+				.description("false positive rate implied by how full the filter is")
+				.register(registry);
+	}
+
+	private void check(MeterRegistry registry, String result, LongAdder count) 
+	{
+		FunctionCounter.builder("flight.existence.checks",count,LongAdder::sum)
+				.tag("filter",name)
+				.tag("result",result)
+				.description("lookups by existence filter outcome")
+				.register(registry);
+	}
+}
@@ -0,0 +1,99 @@
+package com.flight.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.User;
+import com.flight.exception.BusinessException;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+//existence filters for user ids and pnrs, so made up ids and retried cancels of gone bookings 404 without mongo
+//loaded once the app is up and on demand through rebuild(), e.g. after bulk deletes or writes from outside the app
+//single instance only: a filter learns about the writes of its own instance, a user or pnr created on another one
+//would be a definite miss here, so flight.existence-filter.enabled is off by default and the filters then stay
+//cold, every lookup going to the database
+//metrics per filter=user|pnr: flight.existence.checks{result}, flight.existence.false-positive-rate,
+//flight.existence.expected-false-positive-rate
+
+@Slf4j
+@Component
+public class ExistenceFilters implements MeterBinder 
+{
+	private final UserRepository userRepo;
+	private final BookingRepository bookingRepo;
+	private final boolean enabled;
+	private final ExistenceFilter users;
+	private final ExistenceFilter pnrs;
+
+	public ExistenceFilters(UserRepository userRepo,BookingRepository bookingRepo,
+			@Value("${flight.existence-filter.enabled:false}") boolean enabled,
+			@Value("${flight.existence-filter.fpp:0.01}") double fpp,
+			@Value("${flight.existence-filter.min-capacity:100000}") long minCapacity) 
+	{
+		this.userRepo=userRepo;
+		this.bookingRepo=bookingRepo;
+		this.enabled=enabled;
+		this.users=new ExistenceFilter("user",fpp,minCapacity);
+		this.pnrs=new ExistenceFilter("pnr",fpp,minCapacity);
+	}
+
+	public ExistenceFilter users() 
+	{
+		return users;
+	}
+
+	public ExistenceFilter pnrs() 
+	{
+		return pnrs;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() 
+	{
+		if (!enabled) 
+		{
+			log.info("Existence filters disabled, user and pnr lookups go to the database");
+			return;
+		}
+		rebuild().subscribe(stats->log.info("Existence filters loaded: {}",stats),
+				ex->log.error("Existence filter load failed, lookups go to the database: {}",ex.getMessage()));
+	}
+
+	public Mono<Map<String,Map<String,Object>>> rebuild() 
+	{
+		if (!enabled) 
+		{
+			return Mono.error(new BusinessException("Existence filters are disabled"));
+		}
+		return Mono.defer(()->users.rebuild(userRepo.count(),userRepo.findAllIds().map(User::getId)))
+				.then(Mono.defer(()->pnrs.rebuild(bookingRepo.count(),bookingRepo.findAllPnrs().map(Booking::getPnr))))
+				.then(Mono.fromSupplier(this::stats));
+	}
+
+	public Map<String,Map<String,Object>> stats() 
+	{
+		Map<String,Map<String,Object>> result=new LinkedHashMap<>();
+		result.put("users",users.stats());
+		result.put("pnrs",pnrs.stats());
+		return result;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		users.bindTo(registry);
+		pnrs.bindTo(registry);
+	}
+}
@@ -0,0 +1,192 @@
+package com.flight.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.flight.entity.Airline;
+import com.flight.entity.Flight;
+import com.flight.event.FlightAddedEvent;
+import com.flight.exception.BusinessException;
+import com.flight.repository.AirlineRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.FlightRepositoryCustom.InsertFailure;
+import com.flight.response.FlightIngestResult;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+//bulk schedule loading from ndjson, one flight per line
+//lines are taken BATCH_SIZE at a time: airlines of the batch resolved in one query, valid flights written in one
+//unordered bulk insert, a flight the server rejects is reported on its own line and the rest of the batch still lands
+//the next batch is only requested once the previous one is stored, which keeps memory flat for any input size
+
+@Slf4j
+@Service
+public class FlightIngestionService 
+{
+	static final int BATCH_SIZE=500;
+
+	private final FlightRepository flightRepo;
+	private final AirlineRepository airlineRepo;
+	private final ApplicationEventPublisher events;
+	private final Validator validator;
+	private final JsonMapper jsonMapper;
+	public FlightIngestionService(FlightRepository flightRepo,AirlineRepository airlineRepo,
+			ApplicationEventPublisher events,Validator validator,JsonMapper jsonMapper) 
+	{
+		this.flightRepo=flightRepo;
+		this.airlineRepo=airlineRepo;
+		this.events=events;
+		this.validator=validator;
+		this.jsonMapper=jsonMapper;
+	}
+
+	public Flux<FlightIngestResult> ingest(Flux<String> lines) 
+	{
+		return Flux.defer(()-> 
+		{
+			Progress progress=new Progress(System.currentTimeMillis());
+			return lines.index((index,text)->new Line(index+1,text))
+					.filter(line->!line.text().isBlank())
+					.map(this::parse)
+					.buffer(BATCH_SIZE)
+					.concatMap(batch->ingestBatch(batch,progress))
+					.concatWith(Mono.fromSupplier(()->progress.report(true)));
+		});
+	}
+
+	private ParsedLine parse(Line line) 
+	{
+		try 
+		{
+			Flight flight=jsonMapper.readValue(line.text(),Flight.class);
+			Set<ConstraintViolation<Flight>> violations=validator.validate(flight);
+			if (!violations.isEmpty()) 
+			{
+				return new ParsedLine(line.number(),null,violations.stream().map(ConstraintViolation::getMessage).sorted()
+						.collect(Collectors.joining("; ")));
+			}
+			return new ParsedLine(line.number(),flight,null);
+		}
+		catch (JacksonException ex) 
+		{
+			return new ParsedLine(line.number(),null,"malformed json: "+ex.getOriginalMessage());
+		}
+	}
+
+	private Flux<FlightIngestResult> ingestBatch(List<ParsedLine> batch, Progress progress) 
+	{
+		Set<String> airlineCodes=batch.stream().filter(line->line.flight()!=null)
+				.map(line->line.flight().getAirlineCode()).collect(Collectors.toSet());
+		return airlineRepo.findAllById(airlineCodes).map(Airline::getCode).collect(Collectors.toSet())
+				.flatMapMany(knownAirlines-> 
+				{
+					List<FlightIngestResult> errors=new ArrayList<>();
+					List<Flight> valid=new ArrayList<>();
+					List<Long> validLines=new ArrayList<>();
+					for (ParsedLine line:batch) 
+					{
+						String error=line.error()!=null ? line.error() : check(line.flight(),knownAirlines);
+						if (error!=null) 
+						{
+							errors.add(FlightIngestResult.lineError(line.number(),error));
+							continue;
+						}
+						FlightRules.resetInventory(line.flight());
+						valid.add(line.flight());
+						validLines.add(line.number());
+					}
+					progress.rejected.addAndGet(errors.size());
+					return Flux.fromIterable(errors).concatWith(store(valid,validLines,progress))
+							.concatWith(Mono.fromSupplier(()->progress.report(false)));
+				});
+	}
+
+	private String check(Flight flight, Set<String> knownAirlines) 
+	{
+		if (!knownAirlines.contains(flight.getAirlineCode())) 
+		{
+			return "Airline not found";
+		}
+		try 
+		{
+			FlightRules.validateSchedule(flight);
+			return null;
+		}
+		catch (BusinessException ex) 
+		{
+			return ex.getMessage();
+		}
+	}
+
+	private Flux<FlightIngestResult> store(List<Flight> flights, List<Long> lines, Progress progress) 
+	{
+		if (flights.isEmpty()) 
+		{
+			return Flux.empty();
+		}
+		return flightRepo.insertUnordered(flights)
+				.collectMap(InsertFailure::index,InsertFailure::reason)
+				.flatMapMany(failed-> 
+				{
+					List<FlightIngestResult> errors=new ArrayList<>();
+					for (int i=0;i<flights.size();i++) 
+					{
+						if (failed.containsKey(i)) 
+						{
+							errors.add(FlightIngestResult.lineError(lines.get(i),"insert failed: "+failed.get(i)));
+						}
+						else 
+						{
+							events.publishEvent(new FlightAddedEvent(flights.get(i)));
+						}
+					}
+					progress.accepted.addAndGet(flights.size()-errors.size());
+					progress.rejected.addAndGet(errors.size());
+					return Flux.fromIterable(errors);
+				})
+				//the write as a whole failed, nothing of the batch is known to be stored
+				.onErrorResume(ex-> 
+				{
+					log.error("Bulk insert of {} flights failed: {}",flights.size(),ex.getMessage());
+					progress.rejected.addAndGet(flights.size());
+					return Flux.fromIterable(lines).map(line->FlightIngestResult.lineError(line,"insert failed: "+ex.getMessage()));
+				});
+	}
+
+	private record Line(long number, String text) 
+	{
+	}
+
+	private record ParsedLine(long number, Flight flight, String error) 
+	{
+	}
+
+	private static final class Progress 
+	{
+		private final long startedAt;
+		private final AtomicLong accepted=new AtomicLong();
+		private final AtomicLong rejected=new AtomicLong();
+
+		private Progress(long startedAt) 
+		{
+			this.startedAt=startedAt;
+		}
+
+		private FlightIngestResult report(boolean done) 
+		{
+			return FlightIngestResult.progress(accepted.get(),rejected.get(),System.currentTimeMillis()-startedAt,done);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.flight.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.flight.entity.Flight;
+import com.flight.entity.SeatMap;
+import com.flight.exception.BusinessException;
+import com.flight.exception.SeatUnavailableException;
+import com.flight.request.PassengerRequest;
+
+//schedule rules every new flight must pass, shared by addFlight and the bulk ingestion,
+//and the seat checks every booking request goes through
+
+final class FlightRules 
+{
+	private FlightRules() 
+	{
+	}
+
+	static void validateSchedule(Flight flight) 
+	{
+		if (flight.getFromCity().equals(flight.getToCity())) 
+		{
+			throw new BusinessException("source and destination must be different");
+		}
+		if (flight.getArrivalTime().isBefore(flight.getDepartureTime())) 
+		{
+			throw new BusinessException("arrival time must be after departure time");
+		}
+		if (flight.getDepartureTime().isBefore(LocalDateTime.now())) 
+		{
+			throw new BusinessException("Flight departure time must be in the future");
+		}
+	}
+
+	//a new flight starts with every seat free, whatever the client sent
+	static void resetInventory(Flight flight) 
+	{
+		flight.setAvailableSeats(flight.getTotalSeats());
+		flight.setSeatMap(new HashMap<>());
+	}
+
+	static void validatePassengerDuplicateRequest(List<PassengerRequest> passengers) 
+	{
+		Set<String> seats=new HashSet<>();
+		for (PassengerRequest passengerReq:passengers) 
+		{
+			if (!seats.add(passengerReq.getSeatNumber())) 
+			{
+				throw new BusinessException("Duplicate seat in request: "+passengerReq.getSeatNumber());
+			}
+		}
+	}
+
+	static void checkSeatConflicts(Map<String,Long> seatMap, List<PassengerRequest> newPassengers) 
+	{
+		for (PassengerRequest passengerReq:newPassengers) 
+		{
+			if (SeatMap.isOccupied(seatMap,passengerReq.getSeatNumber())) 
+			{
+				throw new SeatUnavailableException("Seat already booked: "+passengerReq.getSeatNumber());
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Flight;
+import com.flight.event.FlightAddedEvent;
+import com.flight.event.SeatsChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Flux;
+
+//route/date search results kept in process, bounded by size and ttl
+//entries are dropped when a flight is added on that route and day or its seats change
+
+@Component
+public class FlightSearchCache implements MeterBinder 
+{
+	//invalidation count per slot of routes and days, bounded unlike a map per key,
+	//two searches sharing a slot only cost each other a put now and then
+	private static final int GENERATION_SLOTS=1024;
+
+	private final Cache<SearchKey,List<Flight>> cache;
+	private final AtomicLong invalidations=new AtomicLong();
+	private final AtomicLongArray generations=new AtomicLongArray(GENERATION_SLOTS);
+
+	public FlightSearchCache(@Value("${flight.search-cache.max-size:10000}") long maxSize,
+			@Value("${flight.search-cache.ttl:30s}") Duration ttl) 
+	{
+		this.cache=Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	public Flux<Flight> get(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date, Supplier<Flux<Flight>> loader) 
+	{
+		SearchKey key=new SearchKey(from,to,date);
+		List<Flight> cached=cache.getIfPresent(key);
+		if (cached!=null) 
+		{
+			return Flux.fromIterable(cached);
+		}
+		//a result loaded while its route and day was invalidated may already be stale, so it is not stored
+		int slot=slot(key);
+		long seenGeneration=generations.get(slot);
+		return loader.get().collectList()
+				.doOnNext(flights-> 
+				{
+					if (generations.get(slot)==seenGeneration) 
+					{
+						cache.put(key,flights);
+					}
+				})
+				.flatMapIterable(flights->flights);
+	}
+
+	//cached full result or null, never loads
+	public List<Flight> peek(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date) 
+	{
+		return cache.getIfPresent(new SearchKey(from,to,date));
+	}
+
+	@EventListener
+	public void onFlightAdded(FlightAddedEvent event) 
+	{
+		invalidate(event.flight());
+	}
+
+	@EventListener
+	public void onSeatsChanged(SeatsChangedEvent event) 
+	{
+		invalidate(event.flight());
+	}
+
+	public void invalidate(Flight flight) 
+	{
+		if (flight.getDepartureTime()==null) 
+		{
+			return;
+		}
+		SearchKey key=new SearchKey(flight.getFromCity(),flight.getToCity(),flight.getDepartureTime().toLocalDate());
+		invalidations.incrementAndGet();
+		generations.incrementAndGet(slot(key));
+		cache.invalidate(key);
+	}
+
+	//enum hash codes change from run to run, ordinals keep the slots stable
+	private static int slot(SearchKey key) 
+	{
+		int hash=Objects.hash(key.from().ordinal(),key.to().ordinal(),key.date());
+		return (hash^(hash>>>16)) & (GENERATION_SLOTS-1);
+	}
+
+	public Map<String,Long> stats() 
+	{
+		CacheStats stats=cache.stats();
+		Map<String,Long> result=new LinkedHashMap<>();
+		result.put("size",cache.estimatedSize());
+		result.put("hits",stats.hitCount());
+		result.put("misses",stats.missCount());
+		result.put("evictions",stats.evictionCount());
+		result.put("invalidations",invalidations.get());
+		return result;
+	}
+
+	//cache.gets/puts/evictions/size under cache=flightSearch, plus the invalidation count
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		CaffeineCacheMetrics.monitor(registry,cache,"flightSearch");
+		FunctionCounter.builder("flight.search.cache.invalidations",invalidations,AtomicLong::get).register(registry);
+	}
+
+	record SearchKey(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date) 
+	{
+	}
+}
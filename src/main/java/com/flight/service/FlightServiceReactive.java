@@ -3,12 +3,18 @@ package com.flight.service;
 import com.flight.entity.AIRPORT_CODE;
 import com.flight.entity.Booking;
 import com.flight.entity.Flight;
+import com.flight.entity.TripView;
 import com.flight.request.BookingRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.response.BookingBatchResult;
+import com.flight.response.CursorPage;
+import com.flight.response.FlightSummary;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.Set;
 
 public interface FlightServiceReactive 
 {
@@ -16,10 +22,16 @@ public interface FlightServiceReactive
 
     Flux<Flight> searchFlights(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date);
 
+    //search returning only the requested columns, see FlightSummary.FIELDS
+    Flux<FlightSummary> searchFlights(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date, Set<String> fields);
+
     Mono<Flight> getFlightById(String flightId);
 
     Mono<String> bookTicket(String flightId,BookingRequest request);
 
+    //one result per request (pnr or error), requests are grouped by flight and flights booked in parallel
+    Flux<BookingBatchResult> bookTickets(Flux<BookingRequest> requests);
+
     Mono<Booking> getTicket(String pnr);
 
     Flux<Booking> getBookingHistoryByUserId(String userId);
@@ -28,5 +40,16 @@ public interface FlightServiceReactive
     
     Flux<Booking> getBookingHistoryByEmail(String email);
 
+    //at most limit bookings, null for all of them
+    Flux<Booking> getBookingHistoryByEmail(String email, Integer limit);
+
+    //trip list from the trip_views read model: flight details, seats and passenger names, sorted by departure
+    Flux<TripView> getTrips(String userId, TRIP_FILTER filter);
+
+    Flux<TripView> getTripsByEmail(String email, TRIP_FILTER filter);
+
     Flux<Flight> getFlightsByAirline(String airlineCode);
+
+    //keyset paginated variant, cursor is the nextCursor of the previous page or null for the first one
+    Mono<CursorPage<Flight>> getFlightsByAirline(String airlineCode, String cursor, Integer size);
 }
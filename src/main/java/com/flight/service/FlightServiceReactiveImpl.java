@@ -4,17 +4,30 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.stream.Collectors;
 
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
 import org.springframework.stereotype.Service;
 
 import com.flight.entity.AIRPORT_CODE;
 import com.flight.entity.Booking;
 import com.flight.entity.Flight;
 import com.flight.entity.Passenger;
+import com.flight.entity.SeatMap;
+import com.flight.entity.TripView;
+import com.flight.entity.User;
+import com.flight.event.FlightAddedEvent;
+import com.flight.event.SeatsChangedEvent;
 import com.flight.exception.BusinessException;
 import com.flight.exception.NotFoundException;
 import com.flight.exception.SeatUnavailableException;
@@ -25,10 +38,18 @@ import com.flight.repository.PassengerRepository;
 import com.flight.repository.UserRepository;
 import com.flight.request.BookingRequest;
 import com.flight.request.PassengerRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.response.BookingBatchResult;
+import com.flight.response.CursorPage;
+import com.flight.response.FlightSummary;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 @Slf4j
 @Service
@@ -36,21 +57,49 @@ public class FlightServiceReactiveImpl implements FlightServiceReactive
 {
 
     private static final int CANCELLATION_LIMIT_HOURS=24;
+    private static final String NOT_ENOUGH_SEATS="Not enough seats available";
+    private static final String SEATS_TAKEN="Requested seats are no longer available";
+    //flights of one batch booked in parallel
+    private static final int BATCH_FLIGHT_CONCURRENCY=4;
+    //batch items booked together, a window closes when full or after the wait
+    private static final int BATCH_WINDOW=500;
+    private static final Duration BATCH_WINDOW_WAIT=Duration.ofMillis(100);
+    //inserts tried with fresh pnrs before a duplicate key is given up on
+    private static final int PNR_ATTEMPTS=3;
 
     private final FlightRepository flightRepo;
     private final BookingRepository bookingRepo;
     private final PassengerRepository passengerRepo;
     private final AirlineRepository airlineRepo;
     private final UserRepository userRepo;
+    private final FlightSearchCache searchCache;
+    private final ApplicationEventPublisher events;
+    private final Validator validator;
+    private final SeatHoldService seatHolds;
+    private final PnrGenerator pnrGenerator;
+    private final LookupCoalescer coalescer;
+    private final ExistenceFilters existence;
+    private final TripViewProjection trips;
     
     public FlightServiceReactiveImpl(FlightRepository flightRepo,BookingRepository bookingRepo,
-    		PassengerRepository passengerRepo,AirlineRepository airlineRepo,UserRepository userRepo) 
+    		PassengerRepository passengerRepo,AirlineRepository airlineRepo,UserRepository userRepo,
+    		FlightSearchCache searchCache,ApplicationEventPublisher events,Validator validator,
+    		SeatHoldService seatHolds,PnrGenerator pnrGenerator,LookupCoalescer coalescer,
+    		ExistenceFilters existence,TripViewProjection trips) 
     {
         this.flightRepo =flightRepo;
         this.bookingRepo= bookingRepo;
         this.passengerRepo= passengerRepo;
         this.airlineRepo= airlineRepo;
         this.userRepo= userRepo;
+        this.searchCache= searchCache;
+        this.events= events;
+        this.validator= validator;
+        this.seatHolds= seatHolds;
+        this.pnrGenerator= pnrGenerator;
+        this.coalescer= coalescer;
+        this.existence= existence;
+        this.trips= trips;
     }
 
     @Override
@@ -60,105 +109,353 @@ public class FlightServiceReactiveImpl implements FlightServiceReactive
                 .switchIfEmpty(Mono.error(new NotFoundException("Airline not found")))
                 .flatMap(al -> 
                 {
-                	if (flight.getFromCity().equals(flight.getToCity())) {
-                        return Mono.error(new BusinessException("source and destination must be different"));
-                    }
-                    if (flight.getArrivalTime().isBefore(flight.getDepartureTime())) {
-                        return Mono.error(new BusinessException("arrival time must be after departure time"));
-                    }
-                    if (flight.getDepartureTime().isBefore(LocalDateTime.now())) {
-                        return Mono.error(new BusinessException("Flight departure time must be in the future"));
-                    }
-                    flight.setAvailableSeats(flight.getTotalSeats());
-                    return flightRepo.save(flight);
+                    FlightRules.validateSchedule(flight);
+                    FlightRules.resetInventory(flight);
+                    return flightRepo.save(flight)
+                            .doOnNext(saved->events.publishEvent(new FlightAddedEvent(saved)));
                 });
     }
     
     
     @Override
     public Flux<Flight> searchFlights(AIRPORT_CODE from,AIRPORT_CODE to,LocalDate date) {
-        return flightRepo.findByFromCityAndToCity(from,to)
-                .filter(flight->flight.getDepartureTime().toLocalDate().equals(date));
+        //[start of day, start of next day) so only that day's flights leave the database
+        Range<LocalDateTime> day=Range.rightOpen(date.atStartOfDay(),date.plusDays(1).atStartOfDay());
+        return searchCache.get(from,to,date,()->flightRepo.findByFromCityAndToCityAndDepartureTimeBetween(from,to,day));
+    }
+
+    @Override
+    public Flux<FlightSummary> searchFlights(AIRPORT_CODE from, AIRPORT_CODE to, LocalDate date, Set<String> fields) 
+    {
+        //a cached full result is projected in memory, otherwise only the requested columns are read
+        List<Flight> cached=searchCache.peek(from,to,date);
+        Flux<Flight> flights=cached!=null ? Flux.fromIterable(cached) : flightRepo.findOnRoute(from,to,
+                Range.rightOpen(date.atStartOfDay(),date.plusDays(1).atStartOfDay()),fields);
+        return flights.map(flight->FlightSummary.of(flight,fields));
     }
 
     @Override
     public Mono<Flight> getFlightById(String flightId) 
     {
-        return flightRepo.findById(flightId).switchIfEmpty(Mono.error(new NotFoundException("Flight not found")));
+        //concurrent reads of the same flight share one findById, each caller maps the empty result on its own
+        return coalescer.flight(flightId,()->flightRepo.findById(flightId))
+                .switchIfEmpty(Mono.error(new NotFoundException("Flight not found")));
     }
 
     @Override
     public Mono<String> bookTicket(String flightId, BookingRequest request) 
     {
-    	return userRepo.findById(request.getUserId())
+    	return existence.users().lookup(request.getUserId(),()->userRepo.findById(request.getUserId()))
                 .switchIfEmpty(Mono.error(new NotFoundException("User not found")))
                 .then(flightRepo.findById(flightId)
                 .switchIfEmpty(Mono.error(new NotFoundException("Flight not found")))
                 .flatMap(flight->
                 {    
-                	//check if passenger count =seats boooked
-                    if (request.getPassengers().size()!= request.getSeatsBooked()) 
+                    validatePassengers(request);
+                    if (request.getHoldToken()!=null) 
                     {
-                        return Mono.error(new BusinessException("Passengers count must be equal to seats booked"));
+                        return bookHeldSeats(flight,request);
                     }
-                    //check seat availability
-                    if (flight.getAvailableSeats()<request.getSeatsBooked()) 
+                    //fast fail on the loaded copy, the atomic reserve below is what actually guards seats and count
+                    checkAvailability(flight.getAvailableSeats(),flight.getSeatMap(),request);
+                    return reserveAndSave(flightId,request);
+                }));
+    }
+
+    @Override
+    public Flux<BookingBatchResult> bookTickets(Flux<BookingRequest> requests) 
+    {
+        //the body is taken a window at a time, so at most BATCH_WINDOW items are held whatever the batch size
+        return requests.index((index,request)->new BatchItem(index,request))
+                .bufferTimeout(BATCH_WINDOW,BATCH_WINDOW_WAIT)
+                .concatMap(this::bookWindow);
+    }
+
+    private Flux<BookingBatchResult> bookWindow(List<BatchItem> items) 
+    {
+        List<BookingBatchResult> rejected=new ArrayList<>();
+        Map<String,List<BatchItem>> byFlight=new LinkedHashMap<>();
+        for (BatchItem item:items) 
+        {
+            String problem=checkRequest(item.request());
+            if (problem!=null) 
+            {
+                rejected.add(BookingBatchResult.failure(item.index(),item.request().getFlightId(),problem));
+            }
+            else 
+            {
+                byFlight.computeIfAbsent(item.request().getFlightId(),id->new ArrayList<>()).add(item);
+            }
+        }
+        Set<String> userIds=new HashSet<>();
+        byFlight.values().forEach(list->list.forEach(item->userIds.add(item.request().getUserId())));
+        //users are resolved once per window, then each flight is one pass over its items
+        return Flux.fromIterable(rejected).concatWith(userRepo.findAllById(userIds).map(User::getId).collect(Collectors.toSet())
+                .flatMapMany(knownUsers->Flux.fromIterable(byFlight.entrySet())
+                        .flatMap(group->bookFlightBatch(group.getKey(),group.getValue(),knownUsers),BATCH_FLIGHT_CONCURRENCY))
+                //each flight settles its own errors, so only the user lookup gets here: this window's items fail, the next window goes on
+                .onErrorResume(ex->Flux.fromIterable(byFlight.values()).flatMapIterable(list->list)
+                        .map(item->BookingBatchResult.failure(item.index(),item.request().getFlightId(),ex.getMessage()))));
+    }
+
+    private Flux<BookingBatchResult> bookFlightBatch(String flightId, List<BatchItem> items, Set<String> knownUsers) 
+    {
+        return flightRepo.findById(flightId)
+                .flatMapMany(flight-> 
+                {
+                    List<BatchItem> accepted=new ArrayList<>();
+                    List<BookingBatchResult> rejected=new ArrayList<>();
+                    //seats and count as they will be after the accepted items, so items also conflict with each other
+                    Map<String,Long> seatMap=new HashMap<>(flight.getSeatMap()==null ? Map.of() : flight.getSeatMap());
+                    int availableSeats=flight.getAvailableSeats();
+                    for (BatchItem item:items) 
                     {
-                        return Mono.error(new SeatUnavailableException("Not enough seats available"));
+                        BookingRequest request=item.request();
+                        if (!knownUsers.contains(request.getUserId())) 
+                        {
+                            rejected.add(BookingBatchResult.failure(item.index(),flightId,"User not found"));
+                            continue;
+                        }
+                        try 
+                        {
+                            checkAvailability(availableSeats,seatMap,request);
+                        }
+                        catch (BusinessException|SeatUnavailableException ex) 
+                        {
+                            rejected.add(BookingBatchResult.failure(item.index(),flightId,ex.getMessage()));
+                            continue;
+                        }
+                        SeatMap.masks(seatNumbers(request.getPassengers())).forEach((word,mask)->seatMap.merge(word,mask,(a,b)->a|b));
+                        availableSeats-=request.getSeatsBooked();
+                        accepted.add(item);
                     }
-                    //check for duplicate passengers in the request
-                    validatePassengerDuplicateRequest(request.getPassengers());
-                    //check seat conflicts with existing bookings
-                    return checkSeatConflicts(flightId,request.getPassengers()).then(saveNewBooking(flight,request));
-                }));
+                    return Flux.fromIterable(rejected).concatWith(commitFlightBatch(flightId,accepted));
+                })
+                .switchIfEmpty(Flux.defer(()->Flux.fromIterable(items)
+                        .map(item->BookingBatchResult.failure(item.index(),flightId,"Flight not found"))))
+                //the flight could not be read (commitFlightBatch does not fail), its items fail and the other flights go on
+                .onErrorResume(ex->Flux.fromIterable(items)
+                        .map(item->BookingBatchResult.failure(item.index(),flightId,ex.getMessage())));
+    }
+
+    private Flux<BookingBatchResult> commitFlightBatch(String flightId, List<BatchItem> accepted) 
+    {
+        if (accepted.isEmpty()) 
+        {
+            return Flux.empty();
+        }
+        List<String> allSeats=accepted.stream().flatMap(item->seatNumbers(item.request().getPassengers()).stream()).toList();
+        List<Booking> bookings=accepted.stream().map(item->newBooking(flightId,item.request())).toList();
+        //one seat update and one bulk insert for every accepted item of the flight
+        return reserveSeats(flightId,allSeats)
+                .flatMapMany(updated->insertBookings(bookings,PNR_ATTEMPTS)
+                        .flatMapMany(inserted-> 
+                        {
+                            //only the seats of bookings that were not written go back, the written ones stay sold
+                            List<String> unsold=inserted.failed().stream()
+                                    .flatMap(booking->booking.getPassengers().stream().map(Passenger::getSeatNumber)).toList();
+                            Mono<Void> release=unsold.isEmpty() ? Mono.empty() : releaseSeats(flightId,unsold).then();
+                            Mono<Void> views=inserted.written().isEmpty() ? Mono.empty() : trips.booked(inserted.written(),updated);
+                            Set<String> written=inserted.written().stream().map(Booking::getId).collect(Collectors.toSet());
+                            return release.then(views).thenMany(Flux.range(0,accepted.size())
+                                    .map(i->written.contains(bookings.get(i).getId())
+                                            ? BookingBatchResult.success(accepted.get(i).index(),flightId,bookings.get(i).getPnr())
+                                            : BookingBatchResult.failure(accepted.get(i).index(),flightId,inserted.error().getMessage())));
+                        })
+                        //not known which bookings were written, so the seats stay reserved rather than risk selling them twice
+                        .onErrorResume(ex->Flux.fromIterable(accepted)
+                                .map(item->BookingBatchResult.failure(item.index(),flightId,ex.getMessage()))))
+                //the flight changed since it was read, so settle the items one by one
+                .onErrorResume(SeatUnavailableException.class,ex->Flux.fromIterable(accepted)
+                        .concatMap(item->reserveAndSave(flightId,item.request())
+                                .map(pnr->BookingBatchResult.success(item.index(),flightId,pnr))
+                                .onErrorResume(err->Mono.just(BookingBatchResult.failure(item.index(),flightId,err.getMessage())))))
+                //the seat update itself failed, nothing was inserted
+                .onErrorResume(ex->!(ex instanceof SeatUnavailableException),ex->Flux.fromIterable(accepted)
+                        .map(item->BookingBatchResult.failure(item.index(),flightId,ex.getMessage())));
+    }
+
+    //bean validation plus the passenger rules, null when the request is fine
+    private String checkRequest(BookingRequest request) 
+    {
+        Set<ConstraintViolation<BookingRequest>> violations=validator.validate(request);
+        if (!violations.isEmpty()) 
+        {
+            return violations.stream().map(v->v.getPropertyPath()+": "+v.getMessage()).sorted().collect(Collectors.joining("; "));
+        }
+        if (request.getHoldToken()!=null) 
+        {
+            return "holdToken is not supported in batch bookings";
+        }
+        try 
+        {
+            validatePassengers(request);
+            return null;
+        }
+        catch (BusinessException ex) 
+        {
+            return ex.getMessage();
+        }
+    }
+
+    private void validatePassengers(BookingRequest request) 
+    {
+        //check if passenger count =seats boooked
+        if (request.getPassengers().size()!= request.getSeatsBooked()) 
+        {
+            throw new BusinessException("Passengers count must be equal to seats booked");
+        }
+        //check for duplicate passengers in the request
+        FlightRules.validatePassengerDuplicateRequest(request.getPassengers());
+    }
+
+    private void checkAvailability(int availableSeats, Map<String,Long> seatMap, BookingRequest request) 
+    {
+        //check seat availability
+        if (availableSeats<request.getSeatsBooked()) 
+        {
+            throw new SeatUnavailableException(NOT_ENOUGH_SEATS);
+        }
+        //check seat conflicts against the flight's seat map
+        FlightRules.checkSeatConflicts(seatMap,request.getPassengers());
+    }
+
+    //claim the seats and take them off the flight in one atomic update, then write the booking
+    private Mono<String> reserveAndSave(String flightId, BookingRequest request) 
+    {
+        List<String> seatNumbers=seatNumbers(request.getPassengers());
+        return reserveSeats(flightId,seatNumbers)
+                .flatMap(updated->saveNewBooking(updated,request)
+                        //booking could not be written so give the seats back
+                        .onErrorResume(ex->releaseSeats(flightId,seatNumbers)
+                                .then(Mono.error(ex))));
+    }
+
+    //the hold already reserved these seats on the flight, so no conflict check and no second reserve
+    private Mono<String> bookHeldSeats(Flight flight, BookingRequest request) 
+    {
+        String flightId=flight.getId();
+        return seatHolds.claim(request.getHoldToken(),flightId,request)
+                .flatMap(hold-> 
+                {
+                    Booking booking=newBooking(flightId,request);
+                    return insertBooking(booking)
+                            .onErrorResume(ex->releaseSeats(flightId,hold.getSeatNumbers())
+                                    .then(Mono.error(ex)))
+                            .flatMap(pnr->trips.booked(booking,flight).thenReturn(pnr));
+                });
+    }
+
+    private Mono<Flight> reserveSeats(String flightId, List<String> seatNumbers) 
+    {
+        //the loaded copy looked fine, so an unmatched update means a concurrent booking won the seats
+        return flightRepo.reserveSeats(flightId,seatNumbers)
+                .switchIfEmpty(Mono.error(new SeatUnavailableException(SEATS_TAKEN)))
+                .doOnNext(updated->events.publishEvent(new SeatsChangedEvent(updated)));
+    }
+
+    private Mono<Flight> releaseSeats(String flightId, List<String> seatNumbers) 
+    {
+        return flightRepo.releaseSeats(flightId,seatNumbers)
+                .doOnNext(updated->events.publishEvent(new SeatsChangedEvent(updated)));
     }
 
     private Mono<String> saveNewBooking(Flight flight,BookingRequest req) 
     {
-        String pnr=generateRandomPNR();
+        //passengers are embedded so the whole booking is a single insert
+        Booking booking=newBooking(flight.getId(),req);
+        return insertBooking(booking).flatMap(pnr->trips.booked(booking,flight).thenReturn(pnr));
+    }
+
+    //a pnr collision fails on the unique index, the booking is retried under a new pnr
+    private Mono<String> insertBooking(Booking booking) 
+    {
+        return Mono.defer(()->existence.pnrs().inserting(booking.getPnr(),bookingRepo.insert(booking)))
+                .retryWhen(Retry.max(PNR_ATTEMPTS-1)
+                        .filter(DuplicateKeyException.class::isInstance)
+                        .doBeforeRetry(signal->booking.setPnr(pnrGenerator.next())))
+                .onErrorMap(Exceptions::isRetryExhausted,Throwable::getCause)
+                .map(Booking::getPnr);
+    }
+
+    //a bulk insert stops at the first failure with the bookings before it already written, so ids are set
+    //up front to find out which made it, after a duplicate pnr only the rest are retried under new pnrs
+    //errors other than the lookup of what was written end up in BatchInsert, never as an error signal
+    private Mono<BatchInsert> insertBookings(List<Booking> bookings, int attempts) 
+    {
+        bookings.forEach(booking-> 
+        {
+            if (booking.getId()==null) 
+            {
+                booking.setId(new ObjectId().toHexString());
+            }
+        });
+        return existence.pnrs().inserting(bookings.stream().map(Booking::getPnr).toList(),bookingRepo.insert(bookings))
+                .then(Mono.fromSupplier(()->new BatchInsert(bookings,List.of(),null)))
+                .onErrorResume(ex->bookingRepo.findAllById(bookings.stream().map(Booking::getId).toList())
+                        .map(Booking::getId)
+                        .collect(Collectors.toSet())
+                        .flatMap(writtenIds-> 
+                        {
+                            List<Booking> written=bookings.stream().filter(b->writtenIds.contains(b.getId())).toList();
+                            List<Booking> rest=bookings.stream().filter(b->!writtenIds.contains(b.getId())).toList();
+                            if (rest.isEmpty() || attempts<=1 || !(ex instanceof DuplicateKeyException)) 
+                            {
+                                return Mono.just(new BatchInsert(written,rest,ex));
+                            }
+                            rest.forEach(booking->booking.setPnr(pnrGenerator.next()));
+                            return insertBookings(rest,attempts-1).map(retried->retried.after(written));
+                        }));
+    }
+
+    //outcome of a bulk insert: the bookings written and the ones that were not, with the error that stopped them
+    private record BatchInsert(List<Booking> written, List<Booking> failed, Throwable error) 
+    {
+        BatchInsert after(List<Booking> earlier) 
+        {
+            List<Booking> all=new ArrayList<>(earlier);
+            all.addAll(written);
+            return new BatchInsert(all,failed,error);
+        }
+    }
+
+    private Booking newBooking(String flightId,BookingRequest req) 
+    {
         Booking booking =new Booking();
-        booking.setPnr(pnr);
-        booking.setFlightId(flight.getId());
+        booking.setPnr(pnrGenerator.next());
+        booking.setFlightId(flightId);
         booking.setUserId(req.getUserId());
         booking.setSeatsBooked(req.getSeatsBooked());
         booking.setMealType(req.getMealType());
         booking.setFlightType(req.getFlightType());
-        booking.setPassengerIds(new ArrayList<>());  //initialize empty list
-
-        return bookingRepo.save(booking)
-                .flatMap(savedBooking ->
-                    savePassengersAndCollectIds(savedBooking.getId(),req.getPassengers())
-                        .flatMap(passengerIds-> 
-                        {
-                            savedBooking.setPassengerIds(passengerIds);
-                            flight.setAvailableSeats(flight.getAvailableSeats()-req.getSeatsBooked());
-                            return bookingRepo.save(savedBooking)
-                                    .then(flightRepo.save(flight))
-                                    .thenReturn(savedBooking.getPnr());
-                        })
-                );
+        booking.setPassengers(toPassengers(req.getPassengers()));
+        return booking;
     }
     
-    private Mono<List<String>> savePassengersAndCollectIds(String bookingId, List<PassengerRequest> list) 
+    private List<Passenger> toPassengers(List<PassengerRequest> list) 
     {
-        return Flux.fromIterable(list).flatMap(req-> 
-                {
-                    Passenger passenger = new Passenger();
-                    passenger.setName(req.getName());
-                    passenger.setGender(req.getGender());
-                    passenger.setAge(req.getAge());
-                    passenger.setSeatNumber(req.getSeatNumber());
-                    passenger.setBookingId(bookingId);
-                    return passengerRepo.save(passenger);
-                })
-                .map(Passenger::getId)
-                .collectList();
+        List<Passenger> passengers=new ArrayList<>(list.size());
+        for (PassengerRequest req:list) 
+        {
+            Passenger passenger = new Passenger();
+            passenger.setName(req.getName());
+            passenger.setGender(req.getGender());
+            passenger.setAge(req.getAge());
+            passenger.setSeatNumber(req.getSeatNumber());
+            passengers.add(passenger);
+        }
+        return passengers;
     }
 
     @Override
     public Mono<Booking> getTicket(String pnr) 
     {
-        return bookingRepo.findByPnr(pnr).switchIfEmpty(Mono.error(new NotFoundException("PNR not found")));
+        if (!PnrGenerator.mayExist(pnr)) 
+        {
+            return Mono.error(new NotFoundException("PNR not found"));
+        }
+        return coalescer.ticket(pnr,()->existence.pnrs().lookup(pnr,()->bookingRepo.findByPnr(pnr)))
+                .switchIfEmpty(Mono.error(new NotFoundException("PNR not found")));
     }
 
     @Override
@@ -170,7 +467,12 @@ public class FlightServiceReactiveImpl implements FlightServiceReactive
     @Override
     public Mono<Void> cancelBooking(String pnr) 
     {
-        return bookingRepo.findByPnr(pnr)
+        if (!PnrGenerator.mayExist(pnr)) 
+        {
+            return Mono.error(new NotFoundException("Invalid PNR"));
+        }
+        //retried cancels of made up or already cancelled pnrs mostly stop at the filter
+        return existence.pnrs().lookup(pnr,()->bookingRepo.findByPnr(pnr))
                 .switchIfEmpty(Mono.error(new NotFoundException("Invalid PNR")))
                 .flatMap(booking-> 
                 {
@@ -181,61 +483,96 @@ public class FlightServiceReactiveImpl implements FlightServiceReactive
                                 {
                                     return Mono.error(new BusinessException("Cannot cancel within 24 hours of departure"));
                                 }
-                                flight.setAvailableSeats(flight.getAvailableSeats()+booking.getSeatsBooked());
-                                return passengerRepo.deleteByBookingId(booking.getId())
-                                        .then(bookingRepo.delete(booking))
-                                        .then(flightRepo.save(flight))
-                                        .then();
+                                if (booking.getPassengers()!=null) 
+                                {
+                                    List<String> seats=booking.getPassengers().stream().map(Passenger::getSeatNumber).toList();
+                                    return removeBooking(pnr)
+                                            .then(Mono.defer(()->releaseSeats(flight.getId(),seats)))
+                                            .then(trips.cancelled(pnr));
+                                }
+                                //booking written before passengers were embedded and not migrated yet
+                                return passengerRepo.findByBookingId(booking.getId())
+                                        .map(Passenger::getSeatNumber)
+                                        .collectList()
+                                        .flatMap(seats->removeBooking(pnr)
+                                                .then(Mono.defer(()->passengerRepo.deleteByBookingId(booking.getId())))
+                                                .then(Mono.defer(()->releaseSeats(flight.getId(),seats)))
+                                                .then(trips.cancelled(pnr)));
                             });
                 });
     }
 
 
-    private Mono<Void> checkSeatConflicts(String flightId, List<PassengerRequest> newPassengers) 
+    //only the cancel that actually removes the booking gives the seats back, a concurrent duplicate
+    //cancel finds nothing to remove and fails like a cancel of an unknown pnr
+    private Mono<Long> removeBooking(String pnr) 
     {
-        return bookingRepo.findByFlightId(flightId)
-                .flatMap(booking-> passengerRepo.findByBookingId(booking.getId())).map(Passenger::getSeatNumber).collectList()
-                .flatMap(existingSeats-> 
-                {
-                    for (PassengerRequest passengerReq :newPassengers) 
-                    {
-                        if (existingSeats.contains(passengerReq.getSeatNumber())) 
-                        {
-                            return Mono.error(new SeatUnavailableException("Seat already booked: "+passengerReq.getSeatNumber()));
-                        }
-                    }
-                    return Mono.empty();
-                });
+        return bookingRepo.deleteByPnr(pnr)
+                .filter(removed->removed>0)
+                .switchIfEmpty(Mono.error(new NotFoundException("Invalid PNR")));
+    }
+
+    private List<String> seatNumbers(List<PassengerRequest> passengers) 
+    {
+        return passengers.stream().map(PassengerRequest::getSeatNumber).toList();
     }
     
-    private void validatePassengerDuplicateRequest(List<PassengerRequest> passengers) 
+    @Override
+    public Flux<Booking> getBookingHistoryByEmail(String email) 
     {
-        Set<String> seats = new HashSet<>();
-        for (PassengerRequest passengerReq:passengers) 
-        {
-            if (!seats.add(passengerReq.getSeatNumber())) 
-            {
-                throw new BusinessException("Duplicate seat in request: "+passengerReq.getSeatNumber());
-            }
-        }
+        return getBookingHistoryByEmail(email,null);
     }
 
-    private String generateRandomPNR() 
+    @Override
+    public Flux<Booking> getBookingHistoryByEmail(String email, Integer limit) 
     {
-        return "PNR"+UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        if (limit!=null && limit<1) 
+        {
+            return Flux.error(new BusinessException("limit must be >= 1"));
+        }
+        //user and bookings joined in one aggregation, streamed as the client reads them
+        return userRepo.findBookingsByEmail(email,limit)
+                //no rows is either an unknown email or a user without bookings, only then is the user looked up
+                .switchIfEmpty(Flux.defer(()->userRepo.findByEmail(email)
+                        .switchIfEmpty(Mono.error(new NotFoundException("User not found with email: "+email)))
+                        .thenMany(Flux.empty())));
     }
     
     @Override
-    public Flux<Booking> getBookingHistoryByEmail(String email) 
+    public Flux<TripView> getTrips(String userId, TRIP_FILTER filter) 
+    {
+        return trips.trips(userId,filter);
+    }
+
+    @Override
+    public Flux<TripView> getTripsByEmail(String email, TRIP_FILTER filter) 
     {
         return userRepo.findByEmail(email)
                 .switchIfEmpty(Mono.error(new NotFoundException("User not found with email: "+email)))
-                .flatMapMany(user->bookingRepo.findByUserId(user.getId()));
+                .flatMapMany(user->trips.trips(user.getId(),filter));
     }
-    
+
     @Override
     public Flux<Flight> getFlightsByAirline(String airlineCode) 
     {
         return flightRepo.findByAirlineCode(airlineCode);
     }
+
+    @Override
+    public Mono<CursorPage<Flight>> getFlightsByAirline(String airlineCode, String cursor, Integer size) 
+    {
+        return Mono.defer(()-> 
+        {
+            int pageSize=CursorPage.pageSize(size);
+            String after=CursorPage.decodeCursor(cursor);
+            Limit limit=Limit.of(pageSize+1);
+            Flux<Flight> rows=after==null ? flightRepo.findByAirlineCodeOrderByIdAsc(airlineCode,limit)
+                    : flightRepo.findByAirlineCodeAndIdGreaterThanOrderByIdAsc(airlineCode,after,limit);
+            return rows.collectList().map(fetched->CursorPage.of(fetched,pageSize,Flight::getId));
+        });
+    }
+
+    private record BatchItem(long index, BookingRequest request) 
+    {
+    }
 }
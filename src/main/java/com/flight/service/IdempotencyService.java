@@ -0,0 +1,154 @@
+package com.flight.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.flight.entity.IdempotencyRecord;
+import com.flight.exception.BusinessException;
+import com.flight.exception.ConflictException;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import tools.jackson.databind.json.JsonMapper;
+
+//runs a write at most once per Idempotency-Key: a retry gets the stored result, a duplicate that
+//arrives while the first is still running joins it instead of running again.
+//the key is claimed in the store before the write runs, so a duplicate sent to another instance finds the claim
+//and waits for the stored result (409 once flight.idempotency.wait has passed) instead of running the write too.
+//a claim lives for flight.idempotency.claim-timeout, then a crashed instance's key can be claimed again
+//only successes are stored, a failed attempt drops its claim and can be retried with the same key
+
+@Service
+public class IdempotencyService 
+{
+	private static final int MAX_KEY_LENGTH=255;
+	private static final Duration POLL=Duration.ofMillis(100);
+
+	private final IdempotencyStore store;
+	private final JsonMapper jsonMapper;
+	private final Duration ttl;
+	private final Duration claimTimeout;
+	private final Duration wait;
+	private final Map<String,InFlight> inFlight=new ConcurrentHashMap<>();
+
+	public IdempotencyService(IdempotencyStore store,JsonMapper jsonMapper,
+			@Value("${flight.idempotency.ttl:24h}") Duration ttl,
+			@Value("${flight.idempotency.claim-timeout:1m}") Duration claimTimeout,
+			@Value("${flight.idempotency.wait:10s}") Duration wait) 
+	{
+		this.store=store;
+		this.jsonMapper=jsonMapper;
+		this.ttl=ttl;
+		this.claimTimeout=claimTimeout;
+		this.wait=wait;
+	}
+
+	private record InFlight(String fingerprint, Mono<String> result) 
+	{
+	}
+
+	//no key means a plain, non idempotent call
+	public Mono<String> execute(String operation, String key, Object request, Supplier<Mono<String>> action) 
+	{
+		if (key==null) 
+		{
+			return Mono.defer(action);
+		}
+		return Mono.defer(()-> 
+		{
+			if (key.isBlank() || key.length()>MAX_KEY_LENGTH) 
+			{
+				return Mono.error(new BusinessException("Idempotency-Key must be 1-"+MAX_KEY_LENGTH+" characters"));
+			}
+			String id=operation+":"+key;
+			String fingerprint=fingerprint(request);
+			InFlight running=inFlight.computeIfAbsent(id,k->new InFlight(fingerprint,run(k,fingerprint,action)));
+			if (!running.fingerprint().equals(fingerprint)) 
+			{
+				return Mono.error(reused());
+			}
+			return running.result();
+		});
+	}
+
+	private Mono<String> run(String id, String fingerprint, Supplier<Mono<String>> action) 
+	{
+		return Mono.defer(()->attempt(id,fingerprint,action))
+				//another instance holds the key, read again until its result is stored
+				.retryWhen(Retry.fixedDelay(Math.max(1,wait.toMillis()/POLL.toMillis()),POLL)
+						.filter(InProgress.class::isInstance)
+						.onRetryExhaustedThrow((spec,signal)->new ConflictException("Request with this Idempotency-Key is still being processed")))
+				//stored now (or failed), later calls go to the store
+				.doFinally(signal->inFlight.remove(id))
+				//one execution shared by every caller, it also finishes if the first caller goes away
+				.cache();
+	}
+
+	private Mono<String> attempt(String id, String fingerprint, Supplier<Mono<String>> action) 
+	{
+		return store.find(id)
+				.flatMap(record-> 
+				{
+					if (!record.getFingerprint().equals(fingerprint)) 
+					{
+						return Mono.<String>error(reused());
+					}
+					return record.pending() ? Mono.<String>error(new InProgress()) : Mono.just(record.getResult());
+				})
+				.switchIfEmpty(Mono.defer(()->claimAndRun(id,fingerprint,action)));
+	}
+
+	//a lost claim means another instance got the key in between, the next read finds its record
+	private Mono<String> claimAndRun(String id, String fingerprint, Supplier<Mono<String>> action) 
+	{
+		IdempotencyRecord claim=new IdempotencyRecord(id,fingerprint,null,LocalDateTime.now().plus(claimTimeout));
+		return store.claim(claim).flatMap(claimed-> 
+		{
+			if (!claimed) 
+			{
+				return Mono.error(new InProgress());
+			}
+			return Mono.defer(action)
+					.onErrorResume(ex->store.release(id).onErrorResume(releaseFailed->Mono.empty()).then(Mono.error(ex)))
+					.flatMap(result->store.complete(new IdempotencyRecord(id,fingerprint,result,LocalDateTime.now().plus(ttl)))
+							.thenReturn(result));
+		});
+	}
+
+	//the key is claimed by a request that has not finished yet
+	private static final class InProgress extends RuntimeException 
+	{
+		private InProgress() 
+		{
+			super(null,null,false,false);
+		}
+	}
+
+	private static BusinessException reused() 
+	{
+		return new BusinessException("Idempotency-Key was already used for a different request");
+	}
+
+	private String fingerprint(Object request) 
+	{
+		try 
+		{
+			byte[] body=jsonMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+		}
+		catch (NoSuchAlgorithmException ex) 
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+}
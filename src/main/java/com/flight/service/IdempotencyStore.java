@@ -0,0 +1,22 @@
+package com.flight.service;
+
+import com.flight.entity.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+//where idempotent requests are remembered, picked by flight.idempotency.store (memory|mongo)
+//a request is claimed before it runs and the claim is replaced by its result, see IdempotencyService
+public interface IdempotencyStore 
+{
+	//empty when the key is unknown or its record has expired, a pending record is a request still running
+	Mono<IdempotencyRecord> find(String id);
+
+	//stores the pending record unless a live record has its id, true when the caller now owns the key
+	Mono<Boolean> claim(IdempotencyRecord pending);
+
+	//replaces the claim with the finished record
+	Mono<Void> complete(IdempotencyRecord record);
+
+	//drops the claim of a run that failed, so the key can be used again
+	Mono<Void> release(String id);
+}
@@ -0,0 +1,72 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.IdempotencyRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+//per instance store, enough when one node serves the booking endpoints
+
+@Component
+@ConditionalOnProperty(name="flight.idempotency.store",havingValue="memory",matchIfMissing=true)
+public class InMemoryIdempotencyStore implements IdempotencyStore,MeterBinder 
+{
+	private final Cache<String,IdempotencyRecord> records;
+
+	public InMemoryIdempotencyStore(@Value("${flight.idempotency.max-size:100000}") long maxSize,
+			@Value("${flight.idempotency.ttl:24h}") Duration ttl) 
+	{
+		this.records=Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	@Override
+	public Mono<IdempotencyRecord> find(String id) 
+	{
+		return Mono.fromSupplier(()->records.getIfPresent(id))
+				.filter(record->record.getExpiresAt().isAfter(LocalDateTime.now()));
+	}
+
+	@Override
+	public Mono<Boolean> claim(IdempotencyRecord pending) 
+	{
+		return Mono.fromSupplier(()-> 
+		{
+			LocalDateTime now=LocalDateTime.now();
+			return records.asMap().compute(pending.getId(),
+					(id,existing)->existing!=null && existing.getExpiresAt().isAfter(now) ? existing : pending)==pending;
+		});
+	}
+
+	@Override
+	public Mono<Void> complete(IdempotencyRecord record) 
+	{
+		return Mono.fromRunnable(()->records.put(record.getId(),record));
+	}
+
+	@Override
+	public Mono<Void> release(String id) 
+	{
+		return Mono.fromRunnable(()->records.asMap().computeIfPresent(id,(key,record)->record.pending() ? null : record));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		CaffeineCacheMetrics.monitor(registry,records,"idempotency");
+	}
+}
@@ -0,0 +1,173 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.Flight;
+import com.flight.exception.BusinessException;
+import com.flight.request.ITINERARY_SORT;
+import com.flight.request.ItinerarySearchRequest;
+import com.flight.response.FlightSummary;
+import com.flight.response.Itinerary;
+import com.flight.response.ItinerarySearchResult;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+//direct and connecting itineraries from the in-memory RouteGraph, no database round trips
+//depth first over time ordered departures: every connection must leave at least minConnection and
+//at most maxLayover after the previous arrival, no airport is visited twice, only the best `limit`
+//itineraries are kept and branches that can no longer beat the worst of them are cut.
+//the search stops at the latency budget and returns what it has with complete=false
+
+@Service
+public class ItinerarySearchService 
+{
+	private static final Set<String> LEG_FIELDS=new LinkedHashSet<>(FlightSummary.FIELDS);
+
+	private final RouteGraph graph;
+	private final Duration minConnection;
+	private final Duration maxLayover;
+	private final Duration budget;
+
+	public ItinerarySearchService(RouteGraph graph,
+			@Value("${flight.itinerary.min-connection:45m}") Duration minConnection,
+			@Value("${flight.itinerary.max-layover:12h}") Duration maxLayover,
+			@Value("${flight.itinerary.budget:50ms}") Duration budget) 
+	{
+		this.graph=graph;
+		this.minConnection=minConnection;
+		this.maxLayover=maxLayover;
+		this.budget=budget;
+	}
+
+	public Mono<ItinerarySearchResult> search(ItinerarySearchRequest req) 
+	{
+		return Mono.fromSupplier(()-> 
+		{
+			if (req.getFrom()==req.getTo()) 
+			{
+				throw new BusinessException("from and to must be different");
+			}
+			return new Search(req).run();
+		})
+				//up to the whole budget of cpu work, kept off the event loop that reads the requests
+				.subscribeOn(Schedulers.parallel());
+	}
+
+	private record Candidate(List<Flight> legs, long minutes, double price) 
+	{
+	}
+
+	private final class Search 
+	{
+		private final AIRPORT_CODE destination;
+		private final int maxStops;
+		private final int limit;
+		private final Comparator<Candidate> order;
+		private final PriorityQueue<Candidate> best;
+		private final long start=System.nanoTime();
+		private final long deadline;
+		private final List<Flight> path=new ArrayList<>();
+		private final Set<AIRPORT_CODE> visited=EnumSet.noneOf(AIRPORT_CODE.class);
+		private final Set<Flight> firstLegs;
+		private boolean complete=true;
+
+		Search(ItinerarySearchRequest req) 
+		{
+			this.destination=req.getTo();
+			this.maxStops=req.getMaxStops();
+			this.limit=req.getLimit();
+			Comparator<Candidate> byDuration=Comparator.comparingLong(Candidate::minutes);
+			Comparator<Candidate> byPrice=Comparator.comparingDouble(Candidate::price);
+			this.order=req.getSortBy()==ITINERARY_SORT.PRICE ? byPrice.thenComparing(byDuration) : byDuration.thenComparing(byPrice);
+			//worst kept itinerary on top so it can be evicted
+			this.best=new PriorityQueue<>(order.reversed());
+			this.deadline=start+budget.toNanos();
+			this.visited.add(req.getFrom());
+			LocalDateTime dayStart=req.getDate().atStartOfDay();
+			this.firstLegs=graph.departures(req.getFrom(),dayStart,dayStart.plusDays(1));
+		}
+
+		ItinerarySearchResult run() 
+		{
+			extend(firstLegs);
+			List<Candidate> found=new ArrayList<>(best);
+			found.sort(order);
+			List<Itinerary> itineraries=found.stream().map(this::toItinerary).toList();
+			return new ItinerarySearchResult(itineraries,complete,(System.nanoTime()-start)/1000);
+		}
+
+		private void extend(Set<Flight> legs) 
+		{
+			for (Flight leg:legs) 
+			{
+				if (System.nanoTime()>deadline) 
+				{
+					complete=false;
+					return;
+				}
+				if (leg.getArrivalTime()==null || visited.contains(leg.getToCity())) 
+				{
+					continue;
+				}
+				path.add(leg);
+				Candidate partial=candidate();
+				//duration and price only grow along a path, nothing below it can beat a full top-K
+				if (best.size()<limit || order.compare(partial,best.peek())<0) 
+				{
+					if (leg.getToCity()==destination) 
+					{
+						best.add(new Candidate(List.copyOf(path),partial.minutes(),partial.price()));
+						if (best.size()>limit) 
+						{
+							best.poll();
+						}
+					}
+					else if (path.size()<=maxStops) 
+					{
+						visited.add(leg.getToCity());
+						LocalDateTime arrival=leg.getArrivalTime();
+						extend(graph.departures(leg.getToCity(),arrival.plus(minConnection),arrival.plus(maxLayover)));
+						visited.remove(leg.getToCity());
+					}
+				}
+				path.remove(path.size()-1);
+				if (!complete) 
+				{
+					return;
+				}
+			}
+		}
+
+		private Candidate candidate() 
+		{
+			LocalDateTime departure=path.get(0).getDepartureTime();
+			LocalDateTime arrival=path.get(path.size()-1).getArrivalTime();
+			double price=0;
+			for (Flight leg:path) 
+			{
+				price+=leg.getPrice();
+			}
+			return new Candidate(path,Duration.between(departure,arrival).toMinutes(),price);
+		}
+
+		private Itinerary toItinerary(Candidate candidate) 
+		{
+			List<Flight> legs=candidate.legs();
+			return new Itinerary(legs.stream().map(leg->FlightSummary.of(leg,LEG_FIELDS)).toList(),legs.size()-1,
+					legs.get(0).getDepartureTime(),legs.get(legs.size()-1).getArrivalTime(),candidate.minutes(),candidate.price());
+		}
+	}
+}
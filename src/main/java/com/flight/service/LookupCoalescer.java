@@ -0,0 +1,41 @@
+package com.flight.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+//concurrent getFlightById / getTicket calls for the same id share one repository read, so a flight going on sale
+//or a pnr mailed out for check-in costs one findById per burst instead of one per request
+//waiters get the same instance, which is fine as long as callers only read it
+//metrics per lookup=flight|ticket: flight.coalescing.calls, flight.coalescing.loads, flight.coalescing.in-flight
+
+@Component
+public class LookupCoalescer implements MeterBinder 
+{
+	private final RequestCoalescer<String,Flight> flights=new RequestCoalescer<>();
+	private final RequestCoalescer<String,Booking> tickets=new RequestCoalescer<>();
+
+	public Mono<Flight> flight(String flightId, Supplier<Mono<Flight>> loader) 
+	{
+		return flights.execute(flightId,loader);
+	}
+
+	public Mono<Booking> ticket(String pnr, Supplier<Mono<Booking>> loader) 
+	{
+		return tickets.execute(pnr,loader);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		flights.bindTo(registry,"flight");
+		tickets.bindTo(registry,"ticket");
+	}
+}
@@ -0,0 +1,49 @@
+package com.flight.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.IdempotencyRecord;
+import com.flight.repository.IdempotencyRecordRepository;
+
+import reactor.core.publisher.Mono;
+
+//shared store for several instances, mongo's ttl monitor deletes expired records (about once a minute)
+
+@Component
+@ConditionalOnProperty(name="flight.idempotency.store",havingValue="mongo")
+public class MongoIdempotencyStore implements IdempotencyStore 
+{
+	private final IdempotencyRecordRepository recordRepo;
+	public MongoIdempotencyStore(IdempotencyRecordRepository recordRepo) 
+	{
+		this.recordRepo=recordRepo;
+	}
+
+	@Override
+	public Mono<IdempotencyRecord> find(String id) 
+	{
+		//the ttl monitor lags, so expiry is checked here as well
+		return recordRepo.findById(id).filter(record->record.getExpiresAt().isAfter(LocalDateTime.now()));
+	}
+
+	@Override
+	public Mono<Boolean> claim(IdempotencyRecord pending) 
+	{
+		return recordRepo.claim(pending,LocalDateTime.now());
+	}
+
+	@Override
+	public Mono<Void> complete(IdempotencyRecord record) 
+	{
+		return recordRepo.save(record).then();
+	}
+
+	@Override
+	public Mono<Void> release(String id) 
+	{
+		return recordRepo.releaseClaim(id);
+	}
+}
@@ -0,0 +1,76 @@
+package com.flight.service;
+
+import java.security.SecureRandom;
+
+import org.springframework.stereotype.Component;
+
+//booking reference: 10 random base-32 characters (50 bits) and a check character, e.g. "7QK2M9XH4TB"
+//crockford alphabet (no I, L, O, U) so codes read out over the phone are not misheard.
+//random rather than sequential because the pnr alone opens a booking, the unique index on bookings.pnr
+//catches the rare collision and the insert is retried with a new code
+
+@Component
+public class PnrGenerator 
+{
+	static final String ALPHABET="0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+	static final int DATA_LENGTH=10;
+	//codes from the old generator: "PNR" and 8 hex characters of a uuid
+	static final String LEGACY_PREFIX="PNR";
+	private static final int BITS_PER_CHAR=5;
+	private static final int MASK=(1<<BITS_PER_CHAR)-1;
+
+	private final SecureRandom random=new SecureRandom();
+
+	public String next() 
+	{
+		//one draw covers all 50 bits
+		long bits=random.nextLong();
+		char[] code=new char[DATA_LENGTH+1];
+		for (int i=0;i<DATA_LENGTH;i++) 
+		{
+			code[i]=ALPHABET.charAt((int)(bits&MASK));
+			bits>>>=BITS_PER_CHAR;
+		}
+		code[DATA_LENGTH]=ALPHABET.charAt(checkValue(code,DATA_LENGTH));
+		return new String(code);
+	}
+
+	//false for a code no booking can have, so the caller answers not found without a database lookup
+	//a mistyped character or most swapped neighbours fail the check character, legacy codes always pass
+	static boolean mayExist(String pnr) 
+	{
+		return isValid(pnr) || (pnr!=null && pnr.startsWith(LEGACY_PREFIX));
+	}
+
+	//true when the code has the right shape and its check character matches
+	static boolean isValid(String pnr) 
+	{
+		if (pnr==null || pnr.length()!=DATA_LENGTH+1) 
+		{
+			return false;
+		}
+		char[] code=pnr.toCharArray();
+		for (char c:code) 
+		{
+			if (ALPHABET.indexOf(c)<0) 
+			{
+				return false;
+			}
+		}
+		return ALPHABET.charAt(checkValue(code,DATA_LENGTH))==code[DATA_LENGTH];
+	}
+
+	//luhn mod 32 over the first `length` characters
+	private static int checkValue(char[] code, int length) 
+	{
+		int factor=2;
+		int sum=0;
+		for (int i=length-1;i>=0;i--) 
+		{
+			int addend=factor*ALPHABET.indexOf(code[i]);
+			factor=factor==2 ? 1 : 2;
+			sum+=addend/ALPHABET.length()+addend%ALPHABET.length();
+		}
+		return (ALPHABET.length()-sum%ALPHABET.length())%ALPHABET.length();
+	}
+}
@@ -0,0 +1,86 @@
+package com.flight.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+//single flight per key: callers asking for a key that is already being loaded subscribe to that load instead of
+//starting their own, the entry goes away as soon as the load signals so nothing is cached past that
+//- a value, empty or an error reaches every waiter, the next call after that loads again
+//- a waiter cancelling leaves the others alone, the load itself is cancelled once no waiter is left
+//the loader's result is passed on as it is, map an empty result per caller and outside the coalescer
+
+final class RequestCoalescer<K,V> 
+{
+	private final ConcurrentMap<K,Mono<V>> inFlight=new ConcurrentHashMap<>();
+	private final LongAdder calls=new LongAdder();
+	private final LongAdder loads=new LongAdder();
+
+	Mono<V> execute(K key, Supplier<Mono<V>> loader) 
+	{
+		return Mono.defer(()-> 
+		{
+			calls.increment();
+			return inFlight.computeIfAbsent(key,k->shared(k,loader));
+		});
+	}
+
+	private Mono<V> shared(K key, Supplier<Mono<V>> loader) 
+	{
+		@SuppressWarnings("unchecked")
+		Mono<V>[] self=new Mono[1];
+		//the entry is removed before any signal goes out, doFinally would leave it in place while waiters are told
+		//replay(1) hands the value to a waiter that took the entry just before that but subscribes after the value
+		//refCount() rather than share(): share() never cancels its source
+		self[0]=Mono.defer(()-> 
+				{
+					loads.increment();
+					return loader.get();
+				})
+				.doOnEach(signal->inFlight.remove(key,self[0]))
+				.doOnCancel(()->inFlight.remove(key,self[0]))
+				.flux()
+				.replay(1)
+				.refCount()
+				.singleOrEmpty();
+		return self[0];
+	}
+
+	int inFlight() 
+	{
+		return inFlight.size();
+	}
+
+	long calls() 
+	{
+		return calls.sum();
+	}
+
+	long loads() 
+	{
+		return loads.sum();
+	}
+
+	//collapse ratio = 1 - loads/calls
+	void bindTo(MeterRegistry registry, String lookup) 
+	{
+		FunctionCounter.builder("flight.coalescing.calls",calls,LongAdder::sum)
+				.tag("lookup",lookup)
+				.description("lookups asked for")
+				.register(registry);
+		FunctionCounter.builder("flight.coalescing.loads",loads,LongAdder::sum)
+				.tag("lookup",lookup)
+				.description("lookups that actually went to the repository")
+				.register(registry);
+		Gauge.builder("flight.coalescing.in-flight",inFlight,ConcurrentMap::size)
+				.tag("lookup",lookup)
+				.description("keys currently being loaded")
+				.register(registry);
+	}
+}
@@ -0,0 +1,123 @@
+package com.flight.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.AIRPORT_CODE;
+import com.flight.entity.FLIGHT_STATUS;
+import com.flight.entity.Flight;
+import com.flight.event.FlightAddedEvent;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.repository.FlightRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+//in-memory, time ordered departures per airport of every upcoming bookable flight
+//loaded once when the app is ready and then kept current from the flight/seat events
+//a flight is in the graph while it is SCHEDULED, has seats left and has not departed
+
+@Slf4j
+@Component
+public class RouteGraph 
+{
+	private static final Comparator<Flight> BY_DEPARTURE=Comparator.comparing(Flight::getDepartureTime).thenComparing(Flight::getId);
+
+	private final Map<AIRPORT_CODE,NavigableSet<Flight>> departures=new EnumMap<>(AIRPORT_CODE.class);
+	private final Map<String,Flight> byId=new ConcurrentHashMap<>();
+	private final FlightRepository flightRepo;
+
+	public RouteGraph(FlightRepository flightRepo) 
+	{
+		this.flightRepo=flightRepo;
+		for (AIRPORT_CODE airport:AIRPORT_CODE.values()) 
+		{
+			departures.put(airport,new ConcurrentSkipListSet<>(BY_DEPARTURE));
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() 
+	{
+		flightRepo.findByDepartureTimeAfter(LocalDateTime.now())
+				.doOnNext(this::update)
+				.count()
+				.subscribe(count->log.info("Route graph loaded with {} flights",byId.size()),
+						ex->log.error("Route graph load failed: {}",ex.getMessage()));
+	}
+
+	@EventListener
+	public void onFlightAdded(FlightAddedEvent event) 
+	{
+		update(event.flight());
+	}
+
+	@EventListener
+	public void onSeatsChanged(SeatsChangedEvent event) 
+	{
+		update(event.flight());
+	}
+
+	//flights leaving the airport in [from, to), earliest first
+	public NavigableSet<Flight> departures(AIRPORT_CODE airport, LocalDateTime from, LocalDateTime to) 
+	{
+		return departures.get(airport).subSet(probe(from),true,probe(to),false);
+	}
+
+	public int size() 
+	{
+		return byId.size();
+	}
+
+	void update(Flight flight) 
+	{
+		if (flight.getId()==null || flight.getFromCity()==null || flight.getDepartureTime()==null) 
+		{
+			return;
+		}
+		LocalDateTime now=LocalDateTime.now();
+		//one flight's updates run one at a time inside its entry, so two of them cannot both leave a copy in the sets,
+		//and a seat change published after a newer one of the same flight is ignored
+		byId.compute(flight.getId(),(id,previous)-> 
+		{
+			if (previous!=null && previous.getSeatVersion()>flight.getSeatVersion()) 
+			{
+				return previous;
+			}
+			if (previous!=null) 
+			{
+				departures.get(previous.getFromCity()).remove(previous);
+			}
+			if (flight.getStatus()==FLIGHT_STATUS.CANCELLED || flight.getAvailableSeats()<=0 || !flight.getDepartureTime().isAfter(now)) 
+			{
+				return null;
+			}
+			departures.get(flight.getFromCity()).add(flight);
+			return flight;
+		});
+		NavigableSet<Flight> airport=departures.get(flight.getFromCity());
+		//departed flights are dropped lazily, one airport per update
+		airport.headSet(probe(now)).forEach(departed-> 
+		{
+			airport.remove(departed);
+			byId.remove(departed.getId(),departed);
+		});
+	}
+
+	//sorts before every real flight departing at that time
+	private static Flight probe(LocalDateTime time) 
+	{
+		Flight probe=new Flight();
+		probe.setId("");
+		probe.setDepartureTime(time);
+		return probe;
+	}
+}
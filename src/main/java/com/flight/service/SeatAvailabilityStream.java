@@ -0,0 +1,108 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Flight;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.NotFoundException;
+import com.flight.repository.FlightRepository;
+import com.flight.response.SeatAvailability;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+//live seat availability per flight. each watched flight has its own sink and one shared flux on top of it
+//(one database read, replays the latest value to late joiners), both created by the first watcher and dropped
+//when the last one leaves, so a seat change only reaches the watchers of its flight.
+//a watcher that cannot keep up only gets the newest value instead of a backlog.
+//changes are published in whatever order the bookings finish, so a snapshot older than one already sent
+//(lower Flight.seatVersion) is dropped
+
+@Component
+public class SeatAvailabilityStream 
+{
+	private final FlightRepository flightRepo;
+	private final Map<String,Watched> flights=new ConcurrentHashMap<>();
+
+	public SeatAvailabilityStream(FlightRepository flightRepo) 
+	{
+		this.flightRepo=flightRepo;
+	}
+
+	@EventListener
+	public void onSeatsChanged(SeatsChangedEvent event) 
+	{
+		Watched watched=flights.get(event.flight().getId());
+		if (watched!=null) 
+		{
+			watched.emit(event.flight());
+		}
+	}
+
+	public Flux<SeatAvailability> watch(String flightId) 
+	{
+		return Flux.defer(()-> 
+		{
+			Watched watched=acquire(flightId);
+			return watched.availability.doFinally(signal->release(flightId,watched));
+		}).onBackpressureLatest();
+	}
+
+	//number of flights with at least one watcher
+	public int watchedFlights() 
+	{
+		return flights.size();
+	}
+
+	//watchers are counted inside compute, so a flight is never dropped while someone is joining it
+	private Watched acquire(String flightId) 
+	{
+		return flights.compute(flightId,(id,watched)-> 
+		{
+			Watched next=watched==null ? new Watched(id) : watched;
+			next.watchers++;
+			return next;
+		});
+	}
+
+	private void release(String flightId, Watched watched) 
+	{
+		flights.computeIfPresent(flightId,(id,current)->current!=watched || --current.watchers>0 ? current : null);
+	}
+
+	private final class Watched 
+	{
+		private final Sinks.Many<Flight> changes=Sinks.many().multicast().directBestEffort();
+		private final Flux<SeatAvailability> availability;
+		//only changed inside compute on this flight's entry
+		private int watchers;
+
+		private Watched(String flightId) 
+		{
+			Flux<Flight> snapshot=flightRepo.findById(flightId)
+					.switchIfEmpty(Mono.error(new NotFoundException("Flight not found")))
+					.flux();
+			//live changes are listened to before the read, a change that beats the read makes the read stale so it is dropped
+			availability=changes.asFlux().publish(shared->Flux.merge(snapshot.takeUntilOther(shared),shared))
+					.scan((latest,next)->next.getSeatVersion()>latest.getSeatVersion() ? next : latest)
+					.distinctUntilChanged()
+					.map(SeatAvailability::of)
+					.replay(1)
+					//plain refCount() loses count of a watcher that cancels while the latest value is replayed to it
+					.refCount(1,Duration.ZERO);
+		}
+
+		//bookings of one flight finish on different threads, emits are serialized here instead of retried,
+		//the sink only rejects a value nobody is subscribed to and that one is not needed
+		private synchronized void emit(Flight flight) 
+		{
+			changes.tryEmitNext(flight);
+		}
+	}
+}
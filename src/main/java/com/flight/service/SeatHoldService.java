@@ -0,0 +1,214 @@
+package com.flight.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.flight.entity.Flight;
+import com.flight.entity.SeatHold;
+import com.flight.entity.SeatMap;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.BusinessException;
+import com.flight.exception.NotFoundException;
+import com.flight.exception.SeatUnavailableException;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.SeatHoldRepository;
+import com.flight.repository.UserRepository;
+import com.flight.request.BookingRequest;
+import com.flight.request.PassengerRequest;
+import com.flight.request.SeatHoldRequest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//seat holds: the seats are reserved on the flight straight away (same atomic update as a booking)
+//and a SeatHold records them until it is booked, released or swept after its ttl
+
+@Slf4j
+@Service
+public class SeatHoldService 
+{
+	private static final String HOLD_NOT_FOUND="Hold not found or expired";
+
+	private final FlightRepository flightRepo;
+	private final UserRepository userRepo;
+	private final SeatHoldRepository holdRepo;
+	private final ApplicationEventPublisher events;
+	private final Duration ttl;
+	private final Duration sweepInterval;
+	private final int sweepBatch;
+	private Disposable sweeper;
+
+	public SeatHoldService(FlightRepository flightRepo,UserRepository userRepo,SeatHoldRepository holdRepo,
+			ApplicationEventPublisher events,
+			@Value("${flight.seat-hold.ttl:10m}") Duration ttl,
+			@Value("${flight.seat-hold.sweep-interval:30s}") Duration sweepInterval,
+			@Value("${flight.seat-hold.sweep-batch:200}") int sweepBatch) 
+	{
+		this.flightRepo=flightRepo;
+		this.userRepo=userRepo;
+		this.holdRepo=holdRepo;
+		this.events=events;
+		this.ttl=ttl;
+		this.sweepInterval=sweepInterval;
+		this.sweepBatch=sweepBatch;
+	}
+
+	public Mono<SeatHold> hold(String flightId, SeatHoldRequest request) 
+	{
+		return userRepo.findById(request.getUserId())
+				.switchIfEmpty(Mono.error(new NotFoundException("User not found")))
+				.then(flightRepo.findById(flightId))
+				.switchIfEmpty(Mono.error(new NotFoundException("Flight not found")))
+				.flatMap(flight-> 
+				{
+					List<String> seats=request.getSeatNumbers();
+					if (new HashSet<>(seats).size()!=seats.size()) 
+					{
+						throw new BusinessException("Duplicate seat in request");
+					}
+					//also rejects badly formatted seats
+					SeatMap.masks(seats);
+					for (String seat:seats) 
+					{
+						if (SeatMap.isOccupied(flight.getSeatMap(),seat)) 
+						{
+							throw new SeatUnavailableException("Seat already booked: "+seat);
+						}
+					}
+					SeatHold hold=new SeatHold(UUID.randomUUID().toString(),flightId,request.getUserId(),
+							List.copyOf(seats),LocalDateTime.now().plus(ttl));
+					return flightRepo.reserveSeats(flightId,seats)
+							.switchIfEmpty(Mono.error(new SeatUnavailableException("Requested seats are no longer available")))
+							.doOnNext(updated->events.publishEvent(new SeatsChangedEvent(updated)))
+							.flatMap(updated->holdRepo.insert(hold)
+									.onErrorResume(ex->releaseSeats(flightId,seats).then(Mono.error(ex))));
+				});
+	}
+
+	//gives the seats back before the ttl runs out
+	public Mono<Void> release(String token) 
+	{
+		return holdRepo.claimActive(token,LocalDateTime.now())
+				.switchIfEmpty(Mono.error(new NotFoundException(HOLD_NOT_FOUND)))
+				.flatMap(hold->releaseSeats(hold.getFlightId(),hold.getSeatNumbers()))
+				.then();
+	}
+
+	//takes the hold for a booking, its seats stay reserved and now belong to the booking
+	public Mono<SeatHold> claim(String token, String flightId, BookingRequest request) 
+	{
+		return holdRepo.findById(token)
+				.switchIfEmpty(Mono.error(new NotFoundException(HOLD_NOT_FOUND)))
+				.flatMap(hold-> 
+				{
+					Set<String> seats=new HashSet<>();
+					for (PassengerRequest passenger:request.getPassengers()) 
+					{
+						seats.add(passenger.getSeatNumber());
+					}
+					if (!hold.getFlightId().equals(flightId) || !hold.getUserId().equals(request.getUserId())
+							|| !seats.equals(new HashSet<>(hold.getSeatNumbers()))) 
+					{
+						return Mono.error(new BusinessException("Booking does not match the held seats"));
+					}
+					return holdRepo.claimActive(token,LocalDateTime.now())
+							.switchIfEmpty(Mono.error(new NotFoundException(HOLD_NOT_FOUND)));
+				});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void startSweeper() 
+	{
+		//a failed tick (e.g. mongo down) is logged and the next tick tries again
+		sweeper=Flux.interval(sweepInterval)
+				.onBackpressureDrop()
+				.concatMap(tick->sweep(LocalDateTime.now())
+						.onErrorResume(ex-> 
+						{
+							log.warn("Seat hold sweep failed: {}",ex.getMessage());
+							return Mono.empty();
+						}))
+				.subscribe(released-> 
+				{
+					if (released>0) 
+					{
+						log.info("Released {} expired seat holds",released);
+					}
+				});
+	}
+
+	@PreDestroy
+	public void stopSweeper() 
+	{
+		if (sweeper!=null) 
+		{
+			sweeper.dispose();
+		}
+	}
+
+	//releases every hold expired at `now`, batch by batch, and returns how many it released
+	Mono<Long> sweep(LocalDateTime now) 
+	{
+		return sweepOnce(now)
+				.expand(batch->batch.found()<sweepBatch ? Mono.empty() : sweepOnce(now))
+				.map(SweepBatch::released)
+				.reduce(0L,Long::sum);
+	}
+
+	private record SweepBatch(int found, long released) 
+	{
+	}
+
+	private Mono<SweepBatch> sweepOnce(LocalDateTime now) 
+	{
+		return holdRepo.findByExpiresAtLessThanEqualOrderByExpiresAtAsc(now,Limit.of(sweepBatch))
+				.collectList()
+				.flatMap(expired->Flux.fromIterable(expired)
+						//a hold booked or swept elsewhere meanwhile comes back empty and is skipped
+						.flatMap(hold->holdRepo.claimExpired(hold.getToken(),now))
+						.collectList()
+						.flatMap(claimed->releaseByFlight(claimed).thenReturn(new SweepBatch(expired.size(),claimed.size()))));
+	}
+
+	//one release per flight for all of its expired holds
+	private Mono<Void> releaseByFlight(List<SeatHold> holds) 
+	{
+		Map<String,List<String>> byFlight=new HashMap<>();
+		for (SeatHold hold:holds) 
+		{
+			byFlight.computeIfAbsent(hold.getFlightId(),id->new ArrayList<>()).addAll(hold.getSeatNumbers());
+		}
+		return Flux.fromIterable(byFlight.entrySet())
+				.concatMap(entry->releaseSeats(entry.getKey(),entry.getValue())
+						.onErrorResume(ex-> 
+						{
+							//the holds are gone already, so this is logged for manual repair rather than retried
+							log.error("Could not release seats {} of flight {}: {}",entry.getValue(),entry.getKey(),ex.getMessage());
+							return Mono.empty();
+						}))
+				.then();
+	}
+
+	private Mono<Flight> releaseSeats(String flightId, List<String> seatNumbers) 
+	{
+		return flightRepo.releaseSeats(flightId,seatNumbers)
+				.doOnNext(updated->events.publishEvent(new SeatsChangedEvent(updated)));
+	}
+}
@@ -0,0 +1,84 @@
+package com.flight.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.TripView;
+import com.flight.repository.TripViewRepository;
+import com.flight.request.TRIP_FILTER;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//keeps trip_views in step with bookings: written as part of booking and cancel, so a user sees their trip as soon as
+//the pnr comes back. flights are not changed once loaded, views carry the flight as it was when booked and
+//TripViewBackfill rewrites them from the current flights
+//a failed view write never fails the booking, it is logged and counted (flight.trips.projection.failures)
+//and TripViewBackfill puts the views right again
+
+@Slf4j
+@Component
+public class TripViewProjection implements MeterBinder 
+{
+	private final TripViewRepository viewRepo;
+	private final LongAdder failures=new LongAdder();
+	public TripViewProjection(TripViewRepository viewRepo) 
+	{
+		this.viewRepo=viewRepo;
+	}
+
+	public Mono<Void> booked(Booking booking, Flight flight) 
+	{
+		return booked(List.of(booking),flight);
+	}
+
+	public Mono<Void> booked(List<Booking> bookings, Flight flight) 
+	{
+		List<TripView> views=bookings.stream().map(booking->TripView.of(booking,booking.getPassengers(),flight)).toList();
+		return quietly("booking",Mono.defer(()->viewRepo.saveAll(views).then()));
+	}
+
+	public Mono<Void> cancelled(String pnr) 
+	{
+		return quietly("cancel",Mono.defer(()->viewRepo.deleteById(pnr)));
+	}
+
+	//one indexed range read per call, upcoming soonest first and past most recent first
+	public Flux<TripView> trips(String userId, TRIP_FILTER filter) 
+	{
+		LocalDateTime now=LocalDateTime.now();
+		return switch (filter) 
+		{
+			case UPCOMING -> viewRepo.findByUserIdAndDepartureTimeGreaterThanEqualOrderByDepartureTimeAsc(userId,now);
+			case PAST -> viewRepo.findByUserIdAndDepartureTimeLessThanOrderByDepartureTimeDesc(userId,now);
+			case ALL -> viewRepo.findByUserIdOrderByDepartureTimeAsc(userId);
+		};
+	}
+
+	private Mono<Void> quietly(String what, Mono<Void> write) 
+	{
+		return write.onErrorResume(ex-> 
+		{
+			failures.increment();
+			log.warn("Trip view not updated after {}: {}",what,ex.getMessage());
+			return Mono.empty();
+		});
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) 
+	{
+		FunctionCounter.builder("flight.trips.projection.failures",failures,LongAdder::sum)
+				.description("trip view writes that failed and wait for a backfill")
+				.register(registry);
+	}
+}
@@ -0,0 +1,81 @@
+package com.flight;
+
+import com.flight.entity.*;
+import com.flight.repository.AirlineRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.UserRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.request.BookingRequest;
+import com.flight.request.PassengerRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.service.ExistenceFilters;
+import com.flight.service.FlightServiceReactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the whole booking flow on the inmemory profile, no mongo involved
+//existence filters on, this context is the only instance
+@SpringBootTest(properties="flight.existence-filter.enabled=true")
+@ActiveProfiles("inmemory")
+class FlightBookingInMemoryApplicationTests 
+{
+	@Autowired
+	private FlightServiceReactive service;
+	@Autowired
+	private FlightRepository flightRepo;
+	@Autowired
+	private AirlineRepository airlineRepo;
+	@Autowired
+	private UserRepository userRepo;
+	@Autowired
+	private ExistenceFilters existence;
+
+	@Test
+	void bookAndCancel_onInMemoryRepositories() 
+	{
+		assertEquals(FlightInMemoryRepository.class,AopUtils.getTargetClass(flightRepo));
+		airlineRepo.save(new Airline("AI","Air India")).block();
+		userRepo.save(new User("U1","user","u1@x.com")).block();
+		//written straight to the repository, so the existence filters have to be rebuilt to know U1
+		existence.rebuild().block();
+		LocalDateTime departure=LocalDateTime.now().plusDays(3);
+		String flightId=service.addFlight(new Flight(null,"AI","AI101",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+				10,10,4500,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true)).block().getId();
+
+		PassengerRequest passenger=new PassengerRequest();
+		passenger.setName("p");
+		passenger.setGender(GENDER.F);
+		passenger.setAge(30);
+		passenger.setSeatNumber("A1");
+		BookingRequest request=new BookingRequest();
+		request.setFlightId(flightId);
+		request.setUserId("U1");
+		request.setSeatsBooked(1);
+		request.setMealType(MEAL_TYPE.VEG);
+		request.setFlightType(FLIGHT_TYPE.ONE_WAY);
+		request.setPassengers(List.of(passenger));
+
+		String pnr=service.bookTicket(flightId,request).block();
+		StepVerifier.create(service.getTicket(pnr)).expectNextMatches(b->b.getFlightId().equals(flightId)).verifyComplete();
+		assertEquals(9,flightRepo.findById(flightId).block().getAvailableSeats());
+		StepVerifier.create(service.getTrips("U1",TRIP_FILTER.UPCOMING)).expectNextMatches(trip->trip.getPnr().equals(pnr)).verifyComplete();
+
+		service.cancelBooking(pnr).block();
+		Flight flight=flightRepo.findById(flightId).block();
+		assertEquals(10,flight.getAvailableSeats());
+		assertTrue(SeatMap.occupiedSeats(flight.getSeatMap()).isEmpty());
+		StepVerifier.create(service.getTrips("U1",TRIP_FILTER.ALL)).verifyComplete();
+	}
+}
@@ -0,0 +1,150 @@
+package com.flight.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest 
+{
+    private final AtomicLong now=new AtomicLong();
+    private final AtomicReference<String> forwardedBody=new AtomicReference<>();
+    private final WebFilterChain chain=exchange->DataBufferUtils.join(exchange.getRequest().getBody())
+            .doOnNext(buffer->forwardedBody.set(buffer.toString(StandardCharsets.UTF_8)))
+            .then();
+    private MeterRegistry registry;
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setup() 
+    {
+        //1 request/s per user with a burst of 2, at most 2 booking writes at once
+        filter=new AdmissionControlFilter(1,2,2,Duration.ofSeconds(3),now::get);
+        registry=new SimpleMeterRegistry();
+        filter.bindTo(registry);
+    }
+
+    @Test
+    void userOverBurst_shedWith429AndRetryAfter_otherUsersUnaffected() 
+    {
+        assertNull(book("U1").getResponse().getStatusCode());
+        assertNull(book("U1").getResponse().getStatusCode());
+        MockServerWebExchange shed=book("U1");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,shed.getResponse().getStatusCode());
+        assertEquals("1",shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        StepVerifier.create(shed.getResponse().getBodyAsString()).expectNextMatches(body->body.contains("\"error\"")).verifyComplete();
+
+        assertNull(book("U2").getResponse().getStatusCode());
+        //a second later the bucket has one token again
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(book("U1").getResponse().getStatusCode());
+
+        assertEquals(4,count("admitted","none"));
+        assertEquals(1,count("shed","user-rate"));
+    }
+
+    @Test
+    void admittedRequest_bodyStillReachesController() 
+    {
+        book("U1");
+        assertEquals(body("U1"),forwardedBody.get());
+    }
+
+    @Test
+    void concurrentWritesOverLimit_shedUntilOneFinishes() 
+    {
+        Sinks.Empty<Void> slow=Sinks.empty();
+        WebFilterChain pending=exchange->slow.asMono();
+        filter.filter(cancel("P1"),pending).subscribe();
+        filter.filter(cancel("P2"),pending).subscribe();
+        assertEquals(2,registry.get("flight.admission.in-flight").gauge().value());
+
+        MockServerWebExchange shed=cancel("P3");
+        filter.filter(shed,chain).block();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,shed.getResponse().getStatusCode());
+        assertEquals("3",shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        slow.tryEmitEmpty();
+        assertEquals(0,registry.get("flight.admission.in-flight").gauge().value());
+        MockServerWebExchange admitted=cancel("P4");
+        filter.filter(admitted,chain).block();
+        assertNull(admitted.getResponse().getStatusCode());
+        assertEquals(1,count("shed","concurrency"));
+    }
+
+    @Test
+    void oversizedBody_rejectedWith413AndCounted() 
+    {
+        MockServerWebExchange exchange=MockServerWebExchange.from(MockServerHttpRequest.post("/bookings/create")
+                .body("{\"userId\":\""+"U".repeat(70*1024)+"\"}"));
+        filter.filter(exchange,chain).block();
+        assertEquals(HttpStatus.CONTENT_TOO_LARGE,exchange.getResponse().getStatusCode());
+        assertNull(forwardedBody.get());
+        assertEquals(1,count("rejected","body-size"));
+        assertEquals(0,count("admitted","none"));
+        assertEquals(0,registry.get("flight.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    void readsAndOtherEndpoints_notCounted() 
+    {
+        MockServerWebExchange search=MockServerWebExchange.from(MockServerHttpRequest.get("/bookings/PNR1"));
+        filter.filter(search,exchange->Mono.empty()).block();
+        assertEquals(0,count("admitted","none"));
+    }
+
+    @Test
+    void userId_readFromTopLevelOnly() 
+    {
+        assertEquals("U1",AdmissionControlFilter.userId(bytes("{\"passengers\":[{\"userId\":\"X\"}],\"userId\":\"U1\"}")));
+        assertNull(AdmissionControlFilter.userId(bytes("{\"flightId\":\"F1\"}")));
+        assertNull(AdmissionControlFilter.userId(bytes("not json")));
+        assertNull(AdmissionControlFilter.userId(new byte[0]));
+    }
+
+    private MockServerWebExchange book(String userId) 
+    {
+        MockServerWebExchange exchange=MockServerWebExchange.from(MockServerHttpRequest.post("/bookings/create").body(body(userId)));
+        filter.filter(exchange,chain).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange cancel(String pnr) 
+    {
+        return MockServerWebExchange.from(MockServerHttpRequest.delete("/bookings/cancel/"+pnr));
+    }
+
+    private static String body(String userId) 
+    {
+        return "{\"flightId\":\"F1\",\"userId\":\""+userId+"\",\"seatsBooked\":1}";
+    }
+
+    private static byte[] bytes(String text) 
+    {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private double count(String outcome, String reason) 
+    {
+        return registry.get(AdmissionControlFilter.METRIC).tags("outcome",outcome,"reason",reason).functionCounter().count();
+    }
+}
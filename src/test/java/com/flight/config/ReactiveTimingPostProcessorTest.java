@@ -0,0 +1,85 @@
+package com.flight.config;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.exception.NotFoundException;
+import com.flight.repository.BookingRepository;
+import com.flight.service.FlightServiceReactive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveTimingPostProcessorTest 
+{
+    private MeterRegistry registry;
+    private ReactiveTimingPostProcessor postProcessor;
+
+    @BeforeEach
+    void setup() 
+    {
+        registry=new SimpleMeterRegistry();
+        StaticListableBeanFactory beans=new StaticListableBeanFactory();
+        beans.addBean("registry",registry);
+        postProcessor=new ReactiveTimingPostProcessor(beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void serviceMono_timedFromSubscriptionToCompletion() 
+    {
+        FlightServiceReactive target=mock(FlightServiceReactive.class);
+        when(target.getFlightById("F1")).thenReturn(Mono.delay(Duration.ofMillis(50)).thenReturn(new Flight()));
+        when(target.getFlightById("F2")).thenReturn(Mono.error(new NotFoundException("Flight not found")));
+        FlightServiceReactive service=(FlightServiceReactive)postProcessor.postProcessAfterInitialization(target,"service");
+
+        Mono<Flight> found=service.getFlightById("F1");
+        //assembling does not record anything yet
+        assertNull(registry.find(ReactiveTimingPostProcessor.SERVICE_TIMER).timer());
+        StepVerifier.create(found).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.getFlightById("F2")).expectError(NotFoundException.class).verify();
+
+        Timer success=registry.get(ReactiveTimingPostProcessor.SERVICE_TIMER)
+                .tags("method","getFlightById","outcome","success","exception","none").timer();
+        assertEquals(1,success.count());
+        assertTrue(success.totalTime(TimeUnit.MILLISECONDS)>=50);
+        assertEquals(1,registry.get(ReactiveTimingPostProcessor.SERVICE_TIMER)
+                .tags("method","getFlightById","outcome","error","exception","NotFoundException").timer().count());
+    }
+
+    @Test
+    void repositoryFlux_taggedWithRepositoryName() 
+    {
+        BookingRepository target=mock(BookingRepository.class);
+        when(target.findByUserId("U1")).thenReturn(Flux.just(new Booking(),new Booking(),new Booking()));
+        BookingRepository repo=(BookingRepository)postProcessor.postProcessAfterInitialization(target,"bookingRepository");
+
+        StepVerifier.create(repo.findByUserId("U1").take(1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repo.findByUserId("U1")).expectNextCount(3).verifyComplete();
+
+        assertEquals(1,registry.get(ReactiveTimingPostProcessor.REPOSITORY_TIMER)
+                .tags("repository","BookingRepository","method","findByUserId","outcome","cancelled").timer().count());
+        assertEquals(1,registry.get(ReactiveTimingPostProcessor.REPOSITORY_TIMER)
+                .tags("repository","BookingRepository","method","findByUserId","outcome","success").timer().count());
+    }
+
+    @Test
+    void otherBeans_notProxied() 
+    {
+        Object bean=new Object();
+        assertSame(bean,postProcessor.postProcessAfterInitialization(bean,"other"));
+    }
+}
@@ -4,11 +4,13 @@ import com.flight.entity.Airline;
 import com.flight.repository.AirlineRepository;
 import com.flight.request.AirlineCreateRequest;
 import com.flight.request.AirlineUpdateRequest;
+import com.flight.response.CursorPage;
 import com.flight.exception.GlobalErrorHandler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -36,6 +38,38 @@ class AirlineControllerTest
         sample =new Airline("AI","Air india");
     }
 
+    @Test
+    void getAirlinesPageFollowsCursor() 
+    {
+        Airline second=new Airline("BA","British airways");
+        Airline third=new Airline("EK","Emirates");
+        when(airlineRepo.findAllByOrderByCodeAsc(Limit.of(3))).thenReturn(Flux.just(sample,second,third));
+        when(airlineRepo.findByCodeGreaterThanOrderByCodeAsc("BA",Limit.of(3))).thenReturn(Flux.just(third));
+
+        String cursor=CursorPage.encodeCursor("BA");
+        webTestClient.get().uri("/airlines/page?size=2").exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.items.length()").isEqualTo(2).jsonPath("$.items[1].code").isEqualTo("BA")
+                .jsonPath("$.nextCursor").isEqualTo(cursor);
+        webTestClient.get().uri("/airlines/page?size=2&cursor="+cursor).exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.items[0].code").isEqualTo("EK").jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    void getAirlinesPageInvalidCursor() 
+    {
+        webTestClient.get().uri("/airlines/page?cursor=***").exchange().expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("invalid cursor");
+    }
+
+    @Test
+    void streamAllAirlinesAsNdjson() 
+    {
+        when(airlineRepo.findAll()).thenReturn(Flux.just(sample,new Airline("BA","British airways")));
+        webTestClient.get().uri("/airlines/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk().expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Airline.class).hasSize(2);
+    }
+
     @Test
     void createAirlineSuccess() 
     {
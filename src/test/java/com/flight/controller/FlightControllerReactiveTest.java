@@ -4,6 +4,15 @@ import com.flight.entity.*;
 import com.flight.request.BookingRequest;
 import com.flight.request.FlightSearchRequest;
 import com.flight.request.PassengerRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.response.BookingBatchResult;
+import com.flight.response.CursorPage;
+import com.flight.response.FlightIngestResult;
+import com.flight.response.FlightSummary;
+import com.flight.service.FlightIngestionService;
+import com.flight.service.IdempotencyService;
+import com.flight.service.InMemoryIdempotencyStore;
+import com.flight.service.FlightSearchCache;
 import com.flight.service.FlightServiceReactive;
 import com.flight.exception.GlobalErrorHandler;
 import com.flight.exception.NotFoundException;
@@ -21,20 +30,30 @@ import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers=FlightControllerReactive.class)
-@Import(GlobalErrorHandler.class)
+@Import({GlobalErrorHandler.class,IdempotencyService.class,InMemoryIdempotencyStore.class})
 class FlightControllerReactiveTest 
 {
     @Autowired
     private WebTestClient webTestClient;
     @MockitoBean
     private FlightServiceReactive service;
+    @MockitoBean
+    private FlightSearchCache searchCache;
+    @MockitoBean
+    private FlightIngestionService ingestionService;
 
     private Flight testFlight;
     private Booking testBooking;
@@ -78,6 +97,18 @@ class FlightControllerReactiveTest
                 .exchange().expectStatus().isNotFound().expectBody().jsonPath("$.error").isEqualTo("airline not found");
     }
 
+    @Test
+    void ingestFlightsStreamsProgress() 
+    {
+        when(ingestionService.ingest(any())).thenAnswer(inv->inv.<Flux<String>>getArgument(0).count()
+                .map(lines->FlightIngestResult.progress(lines,0,10,true)).flux());
+        webTestClient.post().uri("/flights/bulk").contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON).bodyValue("{\"a\":1}\n{\"a\":2}\n")
+                .exchange().expectStatus().isOk()
+                .expectBodyList(FlightIngestResult.class).hasSize(1)
+                .value(results->assertEquals(2L,results.get(0).getAccepted()));
+    }
+
     @Test
     void searchFlightsSuccess() 
     {
@@ -90,6 +121,42 @@ class FlightControllerReactiveTest
                 .exchange().expectStatus().isOk().expectBodyList(String.class).hasSize(1).contains("F1");
     }
 
+    @Test
+    void searchFlightSummariesWithFields() 
+    {
+        FlightSearchRequest req=new FlightSearchRequest();
+        req.setFrom(AIRPORT_CODE.DEL);
+        req.setTo(AIRPORT_CODE.BOM);
+        req.setDate(LocalDate.now().plusDays(1));
+        Set<String> fields=new LinkedHashSet<>(List.of("id","price"));
+        when(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,req.getDate(),fields))
+                .thenReturn(Flux.just(FlightSummary.of(testFlight,fields)));
+        webTestClient.post().uri("/flights/search?fields=price").contentType(MediaType.APPLICATION_JSON).bodyValue(req)
+                .exchange().expectStatus().isOk().expectBody()
+                .jsonPath("$[0].id").isEqualTo("F1")
+                .jsonPath("$[0].price").isEqualTo(5000.0)
+                .jsonPath("$[0].availableSeats").doesNotExist();
+    }
+
+    @Test
+    void searchFlightSummariesUnknownField() 
+    {
+        FlightSearchRequest req=new FlightSearchRequest();
+        req.setFrom(AIRPORT_CODE.DEL);
+        req.setTo(AIRPORT_CODE.BOM);
+        req.setDate(LocalDate.now().plusDays(1));
+        webTestClient.post().uri("/flights/search?fields=seatMap").contentType(MediaType.APPLICATION_JSON).bodyValue(req)
+                .exchange().expectStatus().isBadRequest().expectBody().jsonPath("$.error").isEqualTo("unknown field: seatMap");
+    }
+
+    @Test
+    void getSearchCacheStatsSuccess() 
+    {
+        when(searchCache.stats()).thenReturn(Map.of("hits",3L,"misses",1L));
+        webTestClient.get().uri("/flights/search/cache/stats").exchange().expectStatus().isOk().expectBody()
+            .jsonPath("$.hits").isEqualTo(3);
+    }
+
     @Test
     void getFlightByIdSuccess() 
     {
@@ -126,6 +193,59 @@ class FlightControllerReactiveTest
     }
 
 
+    @Test
+    void createBookingRetryWithSameKeyReturnsFirstPnr() 
+    {
+        BookingRequest req=new BookingRequest();
+        req.setFlightId("F1");
+        req.setUserId("user1");
+        req.setSeatsBooked(1);
+        req.setMealType(MEAL_TYPE.VEG);
+        req.setFlightType(FLIGHT_TYPE.ONE_WAY);
+        PassengerRequest p=new PassengerRequest();
+        p.setName("A");
+        p.setGender(GENDER.M);
+        p.setAge(22);
+        p.setSeatNumber("A1");
+        req.setPassengers(List.of(p));
+        when(service.bookTicket(eq("F1"),any(BookingRequest.class))).thenReturn(Mono.just("pnr1")).thenReturn(Mono.just("pnr2"));
+
+        for (int i=0;i<2;i++) 
+        {
+            webTestClient.post().uri("/bookings/create").header("Idempotency-Key","k-1")
+                    .contentType(MediaType.APPLICATION_JSON).bodyValue(req)
+                    .exchange().expectStatus().isCreated().expectBody(String.class).isEqualTo("pnr1");
+        }
+        verify(service,times(1)).bookTicket(eq("F1"),any(BookingRequest.class));
+
+        //same key, different booking
+        p.setSeatNumber("B1");
+        webTestClient.post().uri("/bookings/create").header("Idempotency-Key","k-1")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(req)
+                .exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void cancelBookingRetryWithSameKeySucceeds() 
+    {
+        when(service.cancelBooking("pnr7")).thenReturn(Mono.empty());
+        webTestClient.delete().uri("/bookings/cancel/pnr7").header("Idempotency-Key","c-1").exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/bookings/cancel/pnr7").header("Idempotency-Key","c-1").exchange().expectStatus().isOk();
+        verify(service,times(1)).cancelBooking("pnr7");
+    }
+
+    @Test
+    void createBookingsBatchStreamsResults() 
+    {
+        when(service.bookTickets(any())).thenReturn(Flux.just(BookingBatchResult.success(0,"F1","pnr1"),
+                BookingBatchResult.failure(1,"F1","Seat already booked: A1")));
+        webTestClient.post().uri("/bookings/batch").contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON).bodyValue("[]")
+                .exchange().expectStatus().isOk()
+                .expectBodyList(BookingBatchResult.class).hasSize(2)
+                .contains(BookingBatchResult.failure(1,"F1","Seat already booked: A1"));
+    }
+
     @Test
     void getBookingSuccess() 
     {
@@ -142,13 +262,22 @@ class FlightControllerReactiveTest
 
     @Test
     void getBookingHistoryByEmailSuccess() {
-        when(service.getBookingHistoryByEmail("a@test.com")).thenReturn(Flux.just(testBooking));
+        when(service.getBookingHistoryByEmail("a@test.com",null)).thenReturn(Flux.just(testBooking));
 
         webTestClient.get().uri("/bookings/history/email/a@test.com").exchange()
             .expectStatus().isOk().expectBody()
             .jsonPath("$[0].pnr").isEqualTo("pnr1");
     }
 
+    @Test
+    void getBookingHistoryByEmailWithLimit() 
+    {
+        when(service.getBookingHistoryByEmail("a@test.com",1)).thenReturn(Flux.just(testBooking));
+        webTestClient.get().uri("/bookings/history/email/a@test.com?limit=1").exchange()
+            .expectStatus().isOk().expectBody()
+            .jsonPath("$.length()").isEqualTo(1);
+    }
+
     @Test
     void getUserBookingsSuccess() 
     {
@@ -158,6 +287,29 @@ class FlightControllerReactiveTest
 	                .jsonPath("$[0].pnr").isEqualTo("pnr1");
     }
 
+    @Test
+    void getUserTripsUpcoming() 
+    {
+        TripView trip=new TripView();
+        trip.setPnr("pnr1");
+        trip.setPassengerNames(List.of("A"));
+        when(service.getTrips("user1",TRIP_FILTER.UPCOMING)).thenReturn(Flux.just(trip));
+        webTestClient.get().uri("/bookings/trips/user/user1?filter=UPCOMING")
+                .exchange().expectStatus().isOk().expectBody()
+                .jsonPath("$[0].pnr").isEqualTo("pnr1")
+                .jsonPath("$[0].passengerNames[0]").isEqualTo("A");
+    }
+
+    @Test
+    void getFlightsByAirlinePageSuccess() 
+    {
+        when(service.getFlightsByAirline("AI",null,10)).thenReturn(Mono.just(new CursorPage<>(List.of(testFlight),"next")));
+        webTestClient.get().uri("/airlines/AI/flights/page?size=10").exchange()
+                .expectStatus().isOk().expectBody()
+                .jsonPath("$.items[0].id").isEqualTo("F1")
+                .jsonPath("$.nextCursor").isEqualTo("next");
+    }
+
     @Test
     void getFlightsByAirlineSuccess() 
     {
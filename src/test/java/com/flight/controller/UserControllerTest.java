@@ -4,15 +4,21 @@ import com.flight.entity.User;
 import com.flight.repository.UserRepository;
 import com.flight.request.UserCreateRequest;
 import com.flight.request.UserUpdateRequest;
+import com.flight.response.CursorPage;
 import com.flight.exception.GlobalErrorHandler;
+import com.flight.service.ExistenceFilter;
+import com.flight.service.ExistenceFilters;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -28,6 +34,9 @@ class UserControllerTest
     @MockitoBean
     private UserRepository userRepo;
 
+    @MockitoBean
+    private ExistenceFilters existence;
+
     private User sampleUser;
 
     @BeforeEach
@@ -37,6 +46,7 @@ class UserControllerTest
         sampleUser.setId("user1");
         sampleUser.setName("abc");
         sampleUser.setEmail("abc@test.com");
+        when(existence.users()).thenReturn(new ExistenceFilter("user",0.01,100));
     }
 
     @Test
@@ -45,12 +55,43 @@ class UserControllerTest
         UserCreateRequest req=new UserCreateRequest();
         req.setName("abc" );
         req.setEmail("abc@test.com");
-        when(userRepo.save(any(User.class))).thenReturn(Mono.just(sampleUser));
+        when(userRepo.insert(any(User.class))).thenReturn(Mono.just(sampleUser));
         webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(req)
                 .exchange().expectStatus().isCreated().expectBody(String.class)
                 .isEqualTo("user1");
     }
 
+    @Test
+    void createUserWithTakenEmailIsBadRequest() 
+    {
+        UserCreateRequest req=new UserCreateRequest();
+        req.setName("abc" );
+        req.setEmail("abc@test.com");
+        when(userRepo.insert(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException("email")));
+        webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(req)
+                .exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getUsersPageReturnsNextCursor() 
+    {
+        User second=new User("user2","def","def@test.com");
+        when(userRepo.findByIdGreaterThanOrderByIdAsc("user0",Limit.of(2))).thenReturn(Flux.just(sampleUser,second));
+        webTestClient.get().uri("/users/page?size=1&cursor="+CursorPage.encodeCursor("user0")).exchange()
+                .expectStatus().isOk().expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].id").isEqualTo("user1")
+                .jsonPath("$.nextCursor").isEqualTo(CursorPage.encodeCursor("user1"));
+    }
+
+    @Test
+    void getUsersPageCapsSize() 
+    {
+        when(userRepo.findAllByOrderByIdAsc(Limit.of(CursorPage.MAX_SIZE+1))).thenReturn(Flux.just(sampleUser));
+        webTestClient.get().uri("/users/page?size=5000").exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.nextCursor").doesNotExist();
+    }
+
     @Test
     void getUserSuccess() 
     {
@@ -0,0 +1,48 @@
+package com.flight.entity;
+
+import com.flight.exception.BusinessException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest 
+{
+    @Test
+    void testWordKeyAndBit() 
+    {
+        assertEquals("A0",SeatMap.wordKey("A1"));
+        assertEquals(1,SeatMap.bit("A1"));
+        assertEquals("C1",SeatMap.wordKey("C70"));
+        assertEquals(6,SeatMap.bit("C70"));
+    }
+
+    @Test
+    void testMasksMergeSeatsOfSameWord() 
+    {
+        Map<String,Long> masks=SeatMap.masks(List.of("A1","A2","B63"));
+        assertEquals(0b110L,masks.get("A0"));
+        assertEquals(Long.MIN_VALUE,masks.get("B0"));
+    }
+
+    @Test
+    void testIsOccupiedAndDecode() 
+    {
+        Map<String,Long> seatMap=SeatMap.masks(List.of("B12","A3","A64"));
+        assertTrue(SeatMap.isOccupied(seatMap,"A64"));
+        assertFalse(SeatMap.isOccupied(seatMap,"A4"));
+        assertFalse(SeatMap.isOccupied(null,"A4"));
+        assertEquals(List.of("A3","A64","B12"),SeatMap.occupiedSeats(seatMap));
+    }
+
+    @Test
+    void testInvalidSeat() 
+    {
+        assertThrows(BusinessException.class,()->SeatMap.wordKey("a1"));
+        assertThrows(BusinessException.class,()->SeatMap.wordKey("A"));
+        assertThrows(BusinessException.class,()->SeatMap.wordKey("A1X"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.flight.migration;
+
+import com.flight.entity.*;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.PassengerInMemoryRepository;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassengerEmbeddingMigrationTest 
+{
+    private final BookingInMemoryRepository bookingRepo=new BookingInMemoryRepository(Duration.ZERO);
+    private final PassengerInMemoryRepository passengerRepo=new PassengerInMemoryRepository(Duration.ZERO);
+    private final PassengerEmbeddingMigration migration=new PassengerEmbeddingMigration(bookingRepo,passengerRepo);
+
+    @Test
+    void testMigratesOnlyLegacyBookings() 
+    {
+        Booking legacy=bookingRepo.save(new Booking(null,"LEG","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,null,List.of("P1"))).block();
+        Passenger passenger=passengerRepo.save(new Passenger("P1","A",GENDER.M,30,"C4",legacy.getId())).block();
+        Booking embedded=bookingRepo.save(new Booking(null,"EMB","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,
+                List.of(new Passenger(null,"B",GENDER.F,40,"A1",null)),null)).block();
+
+        StepVerifier.create(migration.migrate()).expectNext(1L).verifyComplete();
+        Booking moved=bookingRepo.findById(legacy.getId()).block();
+        assertEquals(List.of(passenger),moved.getPassengers());
+        assertNull(moved.getPassengerIds());
+        assertEquals(0,passengerRepo.count().block());
+        assertEquals(embedded,bookingRepo.findById(embedded.getId()).block());
+        //nothing left to move
+        StepVerifier.create(migration.migrate()).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    void testInterruptedRunIsFinished() 
+    {
+        //stopped after embedding and deleting the passenger documents, passengerIds still set
+        Passenger passenger=new Passenger("P1","A",GENDER.M,30,"C4",null);
+        Booking half=bookingRepo.save(new Booking(null,"HALF","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,
+                List.of(passenger),List.of("P1"))).block();
+
+        StepVerifier.create(migration.migrate()).expectNext(1L).verifyComplete();
+        Booking moved=bookingRepo.findById(half.getId()).block();
+        assertEquals(List.of(passenger),moved.getPassengers());
+        assertNull(moved.getPassengerIds());
+    }
+
+    @Test
+    void testBookingCancelledDuringTheMoveIsNotWrittenBack() 
+    {
+        Booking legacy=bookingRepo.save(new Booking(null,"LEG","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,null,List.of("P1"))).block();
+        passengerRepo.save(new Passenger("P1","A",GENDER.M,30,"C4",legacy.getId())).block();
+        //read by the migration, then cancelled on another instance
+        bookingRepo.deleteByPnr("LEG").block();
+
+        StepVerifier.create(bookingRepo.embedPassengers(legacy.getId(),List.of())).expectNext(0L).verifyComplete();
+        assertNull(bookingRepo.findById(legacy.getId()).block());
+    }
+}
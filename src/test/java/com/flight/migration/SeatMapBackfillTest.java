@@ -0,0 +1,53 @@
+package com.flight.migration;
+
+import com.flight.entity.*;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.repository.inmemory.PassengerInMemoryRepository;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapBackfillTest 
+{
+    private final BookingInMemoryRepository bookingRepo=new BookingInMemoryRepository(Duration.ZERO);
+    private final PassengerInMemoryRepository passengerRepo=new PassengerInMemoryRepository(Duration.ZERO);
+    private final FlightInMemoryRepository flightRepo=new FlightInMemoryRepository(Duration.ZERO,bookingRepo);
+    private final SeatMapBackfill backfill=new SeatMapBackfill(flightRepo,bookingRepo,passengerRepo);
+
+    @Test
+    void testOldFlightIsNotBookableUntilItsMapHoldsTheExistingSeats() 
+    {
+        LocalDateTime departure=LocalDateTime.now().plusDays(3);
+        //stored before seat maps: two seats sold, none of them in the map
+        flightRepo.save(new Flight("F1","AI","AI1",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+                10,8,4500,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,false)).block();
+        bookingRepo.save(new Booking(null,"EMB","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,
+                List.of(new Passenger(null,"A",GENDER.M,30,"A1",null)),null)).block();
+        Booking legacy=bookingRepo.save(new Booking(null,"LEG","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,null,List.of("P9"))).block();
+        passengerRepo.save(new Passenger("P9","B",GENDER.F,40,"B2",legacy.getId())).block();
+
+        StepVerifier.create(flightRepo.reserveSeats("F1",List.of("C3"))).verifyComplete();
+
+        StepVerifier.create(backfill.backfill()).expectNext(1L).verifyComplete();
+        //done flights are not read again
+        StepVerifier.create(backfill.backfill()).expectNext(0L).verifyComplete();
+
+        Flight filled=flightRepo.findById("F1").block();
+        assertTrue(filled.isSeatMapReady());
+        assertEquals(List.of("A1","B2"),SeatMap.occupiedSeats(filled.getSeatMap()));
+        assertEquals(8,filled.getAvailableSeats());
+        StepVerifier.create(flightRepo.reserveSeats("F1",List.of("A1"))).verifyComplete();
+        StepVerifier.create(flightRepo.reserveSeats("F1",List.of("C3")))
+            .assertNext(booked->assertEquals(7,booked.getAvailableSeats()))
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,55 @@
+package com.flight.migration;
+
+import com.flight.entity.*;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.repository.inmemory.PassengerInMemoryRepository;
+import com.flight.repository.inmemory.TripViewInMemoryRepository;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripViewBackfillTest 
+{
+    private final BookingInMemoryRepository bookingRepo=new BookingInMemoryRepository(Duration.ZERO);
+    private final PassengerInMemoryRepository passengerRepo=new PassengerInMemoryRepository(Duration.ZERO);
+    private final FlightInMemoryRepository flightRepo=new FlightInMemoryRepository(Duration.ZERO,bookingRepo);
+    private final TripViewInMemoryRepository viewRepo=new TripViewInMemoryRepository(Duration.ZERO);
+    private final TripViewBackfill backfill=new TripViewBackfill(bookingRepo,passengerRepo,flightRepo,viewRepo);
+
+    @Test
+    void testWritesViewsForEmbeddedAndLegacyBookings_removesOrphans() 
+    {
+        LocalDateTime departure=LocalDateTime.now().plusDays(3);
+        flightRepo.save(new Flight("F1","AI","AI1",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+                10,10,4500,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true)).block();
+        bookingRepo.save(new Booking(null,"EMB","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,
+                List.of(new Passenger(null,"A",GENDER.M,30,"A1",null)),null)).block();
+        Booking legacy=bookingRepo.save(new Booking(null,"LEG","U1","F1",1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,null,List.of("P9"))).block();
+        passengerRepo.save(new Passenger("P9","B",GENDER.F,40,"B2",legacy.getId())).block();
+        TripView orphan=new TripView();
+        orphan.setPnr("GONE");
+        orphan.setUserId("U1");
+        orphan.setDepartureTime(departure);
+        viewRepo.save(orphan).block();
+
+        StepVerifier.create(backfill.backfill()).expectNext(2L).verifyComplete();
+        //running it again changes nothing
+        StepVerifier.create(backfill.backfill()).expectNext(2L).verifyComplete();
+
+        assertNull(viewRepo.findById("GONE").block());
+        assertEquals(List.of("A"),viewRepo.findById("EMB").block().getPassengerNames());
+        TripView fromLegacy=viewRepo.findById("LEG").block();
+        assertEquals(List.of("B2"),fromLegacy.getSeatNumbers());
+        assertEquals(AIRPORT_CODE.BOM,fromLegacy.getToCity());
+        assertEquals(2,viewRepo.count().block());
+    }
+}
@@ -0,0 +1,107 @@
+package com.flight.repository;
+
+import com.flight.entity.Booking;
+import com.flight.entity.Flight;
+import com.flight.entity.RouteDayStats;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+//renders the aggregation without a database, so a field reference the builder cannot resolve fails here and not in production
+class FlightRepositoryCustomImplTest 
+{
+    private final ReactiveMongoTemplate template=mock(ReactiveMongoTemplate.class);
+
+    @Test
+    void routeDayStats_joinsBookingCountsAndGroupsPerRouteAndDay() 
+    {
+        when(template.getCollectionName(Flight.class)).thenReturn("flights");
+        when(template.getCollectionName(Booking.class)).thenReturn("bookings");
+        when(template.aggregate(any(Aggregation.class),eq("flights"),eq(RouteDayStats.class))).thenReturn(Flux.empty());
+        LocalDateTime day=LocalDateTime.of(2026,10,17,0,0);
+        new FlightRepositoryCustomImpl(template).routeDayStats("AI",Range.rightOpen(day,day.plusDays(1))).blockLast();
+
+        ArgumentCaptor<Aggregation> captor=ArgumentCaptor.forClass(Aggregation.class);
+        verify(template).aggregate(captor.capture(),eq("flights"),eq(RouteDayStats.class));
+        List<Document> pipeline=captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(List.of("$match","$project","$lookup","$unwind","$group","$project","$sort"),
+                pipeline.stream().map(stage->stage.keySet().iterator().next()).toList());
+
+        Document match=pipeline.get(0).get("$match",Document.class);
+        assertEquals("AI",match.get("airlineCode"));
+
+        //bookings are counted per flight inside the lookup, only one small document comes back for each flight
+        Document lookup=pipeline.get(2).get("$lookup",Document.class);
+        assertEquals("flightId",lookup.get("localField"));
+        assertEquals("flightId",lookup.get("foreignField"));
+        Document perFlight=lookup.getList("pipeline",Document.class).get(0).get("$group",Document.class);
+        assertEquals("$seatsBooked",perFlight.get("seatsBooked",Document.class).get("$sum"));
+
+        Document group=pipeline.get(4).get("$group",Document.class);
+        assertEquals(new Document("airlineCode","$airlineCode").append("fromCity","$fromCity").append("toCity","$toCity").append("day","$day"),
+                group.get("_id"));
+        assertEquals(new Document("$multiply",List.of("$price","$sold.seatsBooked")),group.get("revenue",Document.class).get("$sum"));
+
+        Document project=pipeline.get(5).get("$project",Document.class);
+        assertEquals("$_id.day",project.get("day"));
+        assertTrue(project.containsKey("loadFactor"));
+    }
+
+    @Test
+    void insertUnordered_reportsEachRejectedFlightByPosition() 
+    {
+        ReactiveBulkOperations bulk=mock(ReactiveBulkOperations.class);
+        when(template.bulkOps(BulkMode.UNORDERED,Flight.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        MongoBulkWriteException rejected=new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(11000,"E11000 duplicate key",new BsonDocument(),1)),null,new ServerAddress(),Set.of());
+        when(bulk.execute()).thenReturn(Mono.error(new DuplicateKeyException(rejected.getMessage(),rejected)));
+        List<Flight> flights=List.of(new Flight(),new Flight(),new Flight());
+
+        StepVerifier.create(new FlightRepositoryCustomImpl(template).insertUnordered(flights))
+            .expectNext(new FlightRepositoryCustom.InsertFailure(1,"E11000 duplicate key"))
+            .verifyComplete();
+        //ids are there before the write, so the flights that made it can be published with theirs
+        assertTrue(flights.stream().allMatch(flight->flight.getId()!=null));
+    }
+
+    @Test
+    void insertUnordered_otherFailuresStillFail() 
+    {
+        ReactiveBulkOperations bulk=mock(ReactiveBulkOperations.class);
+        when(template.bulkOps(BulkMode.UNORDERED,Flight.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(Mono.error(new DataAccessResourceFailureException("down")));
+
+        StepVerifier.create(new FlightRepositoryCustomImpl(template).insertUnordered(List.of(new Flight())))
+            .expectError(DataAccessResourceFailureException.class)
+            .verify();
+    }
+}
@@ -0,0 +1,187 @@
+package com.flight.repository.inmemory;
+
+import com.flight.entity.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRepositoryTest 
+{
+    private final BookingInMemoryRepository bookings=new BookingInMemoryRepository(Duration.ZERO);
+    private final FlightInMemoryRepository flights=new FlightInMemoryRepository(Duration.ZERO,bookings);
+    private final PassengerInMemoryRepository passengers=new PassengerInMemoryRepository(Duration.ZERO);
+
+    private Flight flight(String airline, AIRPORT_CODE from, AIRPORT_CODE to, int seats) 
+    {
+        LocalDateTime departure=LocalDateTime.now().plusDays(1);
+        return new Flight(null,airline,airline+"1",from,to,departure,departure.plusHours(2),seats,seats,100,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true);
+    }
+
+    private Booking booking(String pnr, String userId, String flightId) 
+    {
+        return new Booking(null,pnr,userId,flightId,1,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,List.of(),null);
+    }
+
+    @Test
+    void secondaryIndexes_followUpdatesAndDeletes() 
+    {
+        Flight saved=flights.save(flight("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,10)).block();
+        assertNotNull(saved.getId());
+        StepVerifier.create(flights.findByFromCityAndToCity(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM)).expectNextCount(1).verifyComplete();
+
+        //moving the flight to another route and airline moves its index entries
+        saved.setToCity(AIRPORT_CODE.BLR);
+        saved.setAirlineCode("6E");
+        flights.save(saved).block();
+        StepVerifier.create(flights.findByFromCityAndToCity(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM)).verifyComplete();
+        StepVerifier.create(flights.findByAirlineCode("AI")).verifyComplete();
+        StepVerifier.create(flights.findByAirlineCode("6E")).expectNextMatches(f->f.getToCity()==AIRPORT_CODE.BLR).verifyComplete();
+
+        flights.deleteById(saved.getId()).block();
+        StepVerifier.create(flights.findByAirlineCode("6E")).verifyComplete();
+        StepVerifier.create(flights.count()).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    void rowsAreCopied_mutatingAResultDoesNotChangeTheStore() 
+    {
+        String id=flights.save(flight("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,10)).block().getId();
+        Flight read=flights.findById(id).block();
+        read.setAvailableSeats(0);
+        read.getSeatMap().put("A0",1L);
+
+        Flight again=flights.findById(id).block();
+        assertEquals(10,again.getAvailableSeats());
+        assertTrue(again.getSeatMap().isEmpty());
+    }
+
+    @Test
+    void uniquePnr_secondInsertFailsAndLeavesIndexesUntouched() 
+    {
+        bookings.insert(booking("PNR1","U1","F1")).block();
+
+        StepVerifier.create(bookings.insert(booking("PNR1","U2","F2"))).expectError(DuplicateKeyException.class).verify();
+        StepVerifier.create(bookings.findByUserId("U2")).verifyComplete();
+        StepVerifier.create(bookings.findByFlightId("F2")).verifyComplete();
+        StepVerifier.create(bookings.findByPnr("PNR1")).expectNextMatches(b->b.getUserId().equals("U1")).verifyComplete();
+    }
+
+    @Test
+    void deleteByBookingId_removesOnlyThatBookingsPassengers() 
+    {
+        passengers.saveAll(List.of(new Passenger(null,"A",GENDER.M,30,"A1","B1"),
+                new Passenger(null,"B",GENDER.F,31,"A2","B1"),
+                new Passenger(null,"C",GENDER.M,32,"A3","B2"))).blockLast();
+
+        passengers.deleteByBookingId("B1").block();
+
+        StepVerifier.create(passengers.findByBookingId("B1")).verifyComplete();
+        StepVerifier.create(passengers.findByBookingId("B2")).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void reserveSeats_concurrentClaimsNeverOversell() 
+    {
+        String id=flights.save(flight("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,50)).block().getId();
+
+        //100 parallel claims on 50 seats, half of them on a seat someone else already asked for
+        long reserved=Flux.range(0,100).parallel(8).runOn(Schedulers.parallel())
+                .flatMap(i->flights.reserveSeats(id,List.of("A"+(i%75))))
+                .sequential().count().block();
+
+        Flight flight=flights.findById(id).block();
+        assertEquals(50-reserved,flight.getAvailableSeats());
+        assertEquals(reserved,SeatMap.occupiedSeats(flight.getSeatMap()).size());
+        assertTrue(reserved<=50);
+    }
+
+    @Test
+    void keysetPaging_walksIdsInOrder() 
+    {
+        UserInMemoryRepository users=new UserInMemoryRepository(Duration.ZERO,bookings);
+        users.saveAll(IntStream.range(0,5).mapToObj(i->new User("U"+i,"n"+i,"u"+i+"@x.com")).toList()).blockLast();
+
+        StepVerifier.create(users.findAllByOrderByIdAsc(Limit.of(2)).map(User::getId)).expectNext("U0","U1").verifyComplete();
+        StepVerifier.create(users.findByIdGreaterThanOrderByIdAsc("U1",Limit.of(2)).map(User::getId)).expectNext("U2","U3").verifyComplete();
+        StepVerifier.create(users.findByEmail("u4@x.com").map(User::getId)).expectNext("U4").verifyComplete();
+    }
+
+    @Test
+    void bookingsByEmail_joinsUserAndBookings() 
+    {
+        UserInMemoryRepository users=new UserInMemoryRepository(Duration.ZERO,bookings);
+        users.save(new User("U1","a","a@x.com")).block();
+        bookings.saveAll(List.of(booking("P1","U1","F1"),booking("P2","U1","F2"),booking("P3","U2","F1"))).blockLast();
+
+        StepVerifier.create(users.findBookingsByEmail("a@x.com",null).map(Booking::getPnr).sort()).expectNext("P1","P2").verifyComplete();
+        StepVerifier.create(users.findBookingsByEmail("a@x.com",1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(users.findBookingsByEmail("nobody@x.com",null)).verifyComplete();
+        //email is unique like the index on users
+        StepVerifier.create(users.save(new User("U2","b","a@x.com"))).expectError(DuplicateKeyException.class).verify();
+    }
+
+    @Test
+    void findAllSorted_ordersByPropertiesWithEnumsByName() 
+    {
+        flights.saveAll(List.of(flight("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,30),flight("6E",AIRPORT_CODE.BOM,AIRPORT_CODE.DEL,10),
+                flight("AI",AIRPORT_CODE.BLR,AIRPORT_CODE.DEL,20))).blockLast();
+
+        StepVerifier.create(flights.findAll(Sort.by("airlineCode").and(Sort.by(Sort.Direction.DESC,"fromCity"))).map(Flight::getTotalSeats))
+                .expectNext(10,30,20)
+                .verifyComplete();
+    }
+
+    @Test
+    void queryByExample_matchesSetPropertiesOfTheProbe() 
+    {
+        UserInMemoryRepository users=new UserInMemoryRepository(Duration.ZERO,bookings);
+        users.saveAll(List.of(new User("U1","Asha","asha@x.com"),new User("U2","Ravi","ravi@y.com"),new User("U3","asha k","ak@y.com"))).blockLast();
+
+        StepVerifier.create(users.findAll(Example.of(new User(null,"Ravi",null))).map(User::getId)).expectNext("U2").verifyComplete();
+        ExampleMatcher startsWith=ExampleMatcher.matching().withStringMatcher(ExampleMatcher.StringMatcher.STARTING).withIgnoreCase();
+        StepVerifier.create(users.findAll(Example.of(new User(null,"ASHA",null),startsWith),Sort.by(Sort.Direction.DESC,"id")).map(User::getId))
+                .expectNext("U3","U1")
+                .verifyComplete();
+        StepVerifier.create(users.count(Example.of(new User(null,null,"ravi@y.com")))).expectNext(1L).verifyComplete();
+        StepVerifier.create(users.exists(Example.of(new User(null,"Nobody",null)))).expectNext(false).verifyComplete();
+        StepVerifier.create(users.findOne(Example.of(new User(null,"asha",null),startsWith)))
+                .expectError(IncorrectResultSizeDataAccessException.class)
+                .verify();
+        StepVerifier.create(users.findBy(Example.of(new User(null,null,null)),query->query.sortBy(Sort.by("email")).page(PageRequest.of(1,2))))
+                .assertNext(page-> 
+                {
+                    assertEquals(3,page.getTotalElements());
+                    assertEquals(List.of("U2"),page.map(User::getId).getContent());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void latency_delaysEachCall() 
+    {
+        UserInMemoryRepository slow=new UserInMemoryRepository(Duration.ofMillis(50),bookings);
+        StepVerifier.withVirtualTime(()->slow.findById("U1"))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(49))
+                .thenAwait(Duration.ofMillis(1))
+                .verifyComplete();
+    }
+}
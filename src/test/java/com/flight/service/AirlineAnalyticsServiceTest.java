@@ -0,0 +1,129 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.exception.BusinessException;
+import com.flight.repository.inmemory.AirlineInMemoryRepository;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.repository.inmemory.RouteDayStatsInMemoryRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AirlineAnalyticsServiceTest 
+{
+    private static final LocalDate TODAY=LocalDate.of(2026,10,18);
+    private static final LocalDate YESTERDAY=TODAY.minusDays(1);
+
+    private final BookingInMemoryRepository bookingRepo=new BookingInMemoryRepository(Duration.ZERO);
+    private final FlightInMemoryRepository flightRepo=new FlightInMemoryRepository(Duration.ZERO,bookingRepo);
+    private final AirlineInMemoryRepository airlineRepo=new AirlineInMemoryRepository(Duration.ZERO);
+    private final RouteDayStatsInMemoryRepository statsRepo=new RouteDayStatsInMemoryRepository(Duration.ZERO);
+    private final AirlineAnalyticsService analytics=new AirlineAnalyticsService(flightRepo,airlineRepo,statsRepo,31,Duration.ofMinutes(10),100);
+
+    @BeforeEach
+    void setup() 
+    {
+        airlineRepo.saveAll(List.of(new Airline("AI","Air India"),new Airline("6E","IndiGo"))).blockLast();
+        //two DEL-BOM flights yesterday, 100 seats each, 30 and 10 of them taken
+        flight("F1","AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,YESTERDAY,100,70,5000);
+        flight("F2","AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,YESTERDAY,100,90,4000);
+        flight("F3","AI",AIRPORT_CODE.BOM,AIRPORT_CODE.DEL,YESTERDAY,50,50,3000);
+        flight("F4","AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,TODAY,100,100,5000);
+        flight("F5","6E",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,YESTERDAY,100,0,2000);
+        booking("P1","F1",20);
+        booking("P2","F1",10);
+        booking("P3","F2",10);
+        booking("P4","F5",100);
+    }
+
+    @Test
+    void routeDays_groupsFlightsAndBookingsPerRouteAndDay() 
+    {
+        List<RouteDayStats> rows=analytics.routeDays("AI",YESTERDAY.minusDays(1),TODAY,TODAY).collectList().block();
+
+        //day first, then route: BOM-DEL and DEL-BOM yesterday, DEL-BOM today
+        assertEquals(List.of(AIRPORT_CODE.BOM,AIRPORT_CODE.DEL,AIRPORT_CODE.DEL),rows.stream().map(RouteDayStats::getFromCity).toList());
+        assertEquals(List.of(YESTERDAY,YESTERDAY,TODAY),rows.stream().map(RouteDayStats::getDay).toList());
+
+        //both DEL-BOM flights of yesterday in one row
+        RouteDayStats delBom=rows.get(1);
+        assertEquals(2,delBom.getFlights());
+        assertEquals(200,delBom.getTotalSeats());
+        assertEquals(40,delBom.getSeatsSold());
+        assertEquals(0.2,delBom.getLoadFactor(),1e-9);
+        assertEquals(3,delBom.getBookings());
+        assertEquals(40,delBom.getSeatsBooked());
+        assertEquals(30*5000+10*4000,delBom.getRevenue(),1e-6);
+
+        RouteDayStats empty=rows.get(0);
+        assertEquals(0,empty.getBookings());
+        assertEquals(0,empty.getLoadFactor(),1e-9);
+    }
+
+    @Test
+    void routeDays_rejectsBadRanges() 
+    {
+        StepVerifier.create(analytics.routeDays("AI",TODAY,YESTERDAY,TODAY)).expectError(BusinessException.class).verify();
+        StepVerifier.create(analytics.routeDays("AI",TODAY.minusDays(31),TODAY,TODAY)).expectError(BusinessException.class).verify();
+    }
+
+    @Test
+    void previousDay_servedFromTheRollupOnceItRan() 
+    {
+        StepVerifier.create(analytics.rollupPreviousDay(TODAY)).expectNext(3L).verifyComplete();
+        //once per day, the next tick has nothing to do
+        StepVerifier.create(analytics.rollupPreviousDay(TODAY)).verifyComplete();
+        assertEquals(3,statsRepo.count().block());
+
+        //a late change to the live collections does not reach the rolled up day
+        booking("P5","F3",50);
+        List<RouteDayStats> rows=analytics.routeDays("AI",YESTERDAY,YESTERDAY,TODAY).collectList().block();
+        assertEquals(List.of(0L,3L),rows.stream().map(RouteDayStats::getBookings).toList());
+        assertEquals("AI:BOM:DEL:"+YESTERDAY,rows.get(0).getId());
+        assertEquals(rows,analytics.previousDay("AI",TODAY).collectList().block());
+    }
+
+    @Test
+    void previousDay_isLiveUntilTheRollupRan() 
+    {
+        booking("P5","F3",50);
+        List<RouteDayStats> rows=analytics.previousDay("AI",TODAY).collectList().block();
+        assertEquals(List.of(1L,3L),rows.stream().map(RouteDayStats::getBookings).toList());
+        assertEquals(0,statsRepo.count().block());
+    }
+
+    @Test
+    void rollup_again_replacesRowsAndDropsRoutesWithoutFlights() 
+    {
+        analytics.rollup(YESTERDAY).block();
+        flightRepo.deleteById("F3").block();
+        booking("P5","F2",5);
+
+        StepVerifier.create(analytics.rollup(YESTERDAY)).expectNext(2L).verifyComplete();
+        List<RouteDayStats> rows=statsRepo.findByDay(YESTERDAY).collectList().block();
+        assertEquals(2,rows.size());
+        assertTrue(rows.stream().noneMatch(stats->stats.getFromCity()==AIRPORT_CODE.BOM));
+        assertEquals(4,statsRepo.findById("AI:DEL:BOM:"+YESTERDAY).block().getBookings());
+    }
+
+    private void flight(String id, String airline, AIRPORT_CODE from, AIRPORT_CODE to, LocalDate day, int total, int available, float price) 
+    {
+        flightRepo.save(new Flight(id,airline,airline+id,from,to,day.atTime(10,0),day.atTime(12,0),total,available,price,
+                FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true)).block();
+    }
+
+    private void booking(String pnr, String flightId, int seats) 
+    {
+        bookingRepo.save(new Booking(null,pnr,"U1",flightId,seats,MEAL_TYPE.VEG,FLIGHT_TYPE.ONE_WAY,List.of(),null)).block();
+    }
+}
@@ -0,0 +1,273 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.exception.NotFoundException;
+import com.flight.exception.SeatUnavailableException;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.inmemory.AirlineInMemoryRepository;
+import com.flight.repository.inmemory.BookingInMemoryRepository;
+import com.flight.repository.inmemory.FlightInMemoryRepository;
+import com.flight.repository.inmemory.PassengerInMemoryRepository;
+import com.flight.repository.inmemory.TripViewInMemoryRepository;
+import com.flight.repository.inmemory.UserInMemoryRepository;
+import com.flight.request.BookingRequest;
+import com.flight.request.PassengerRequest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import jakarta.validation.Validation;
+import lombok.extern.slf4j.Slf4j;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//thousands of parallel bookings and cancellations against a few small flights, then checks that the inventory
+//still adds up and reports throughput, latency and how often requests collided
+//the defaults keep it a few seconds long, scale it with -Dstress.operations, -Dstress.concurrency, -Dstress.flights,
+//-Dstress.seats and -Dstress.latency-ms (simulated repository round trip)
+@Slf4j
+class BookingStressTest 
+{
+    private static final int OPERATIONS=Integer.getInteger("stress.operations",4000);
+    private static final int CONCURRENCY=Integer.getInteger("stress.concurrency",64);
+    private static final int FLIGHTS=Integer.getInteger("stress.flights",3);
+    private static final int SEATS=Integer.getInteger("stress.seats",60);
+    private static final Duration LATENCY=Duration.ofMillis(Long.getLong("stress.latency-ms",0));
+    //seats are picked from a pool a bit larger than the flight, so most requests fight over the same seats
+    private static final int SEAT_POOL=SEATS+SEATS/2;
+
+    private final CountingBookingRepository bookingRepo=new CountingBookingRepository();
+    private final CountingFlightRepository flightRepo=new CountingFlightRepository(bookingRepo);
+    private final UserInMemoryRepository userRepo=new UserInMemoryRepository(LATENCY,bookingRepo);
+    private final TripViewInMemoryRepository tripViewRepo=new TripViewInMemoryRepository(LATENCY);
+    private final ExistenceFilters existence=new ExistenceFilters(userRepo,bookingRepo,true,0.01,1000);
+    private final FlightServiceReactiveImpl service=new FlightServiceReactiveImpl(flightRepo,bookingRepo,
+            new PassengerInMemoryRepository(LATENCY),new AirlineInMemoryRepository(LATENCY),userRepo,
+            new FlightSearchCache(100,Duration.ofMinutes(1)),event->{},Validation.buildDefaultValidatorFactory().getValidator(),
+            null,new PnrGenerator(),new LookupCoalescer(),existence,
+            new TripViewProjection(tripViewRepo));
+
+    private final Queue<String> livePnrs=new ConcurrentLinkedQueue<>();
+    private final Latencies bookLatency=new Latencies();
+    private final Latencies cancelLatency=new Latencies();
+    private final AtomicLong booked=new AtomicLong();
+    private final AtomicLong rejected=new AtomicLong();
+    private final AtomicLong cancelled=new AtomicLong();
+    private final AtomicLong duplicateCancels=new AtomicLong();
+    private final AtomicLong unexpected=new AtomicLong();
+
+    @Test
+    void parallelBookingsAndCancellations_keepInventoryConsistent() 
+    {
+        List<String> flightIds=setupFlights();
+
+        long start=System.nanoTime();
+        Flux.range(0,OPERATIONS)
+                .flatMap(i->Mono.defer(()->operation(flightIds)).subscribeOn(Schedulers.parallel()),CONCURRENCY)
+                .blockLast(Duration.ofMinutes(5));
+        double seconds=(System.nanoTime()-start)/1e9;
+
+        report(seconds);
+        assertEquals(0,unexpected.get(),"operations failed with an unexpected error");
+        flightIds.forEach(this::checkInvariants);
+        assertEquals(booked.get()-cancelled.get(),bookingRepo.count().block());
+        //one trip view per live booking, none left behind by cancels
+        assertEquals(new TreeSet<>(bookingRepo.findAll().map(Booking::getPnr).collectList().block()),
+                new TreeSet<>(tripViewRepo.findAll().map(TripView::getPnr).collectList().block()));
+        //the filter may only ever let through too much, a live pnr rejected by it would have shown up as unexpected
+        bookingRepo.findAll().map(Booking::getPnr).toIterable().forEach(pnr->assertNotNull(service.getTicket(pnr).block()));
+    }
+
+    private List<String> setupFlights() 
+    {
+        userRepo.save(new User("U1","stress","stress@test.com")).block();
+        //loaded so every booking and cancel also goes through the pnr filter
+        existence.rebuild().block();
+        LocalDateTime departure=LocalDateTime.now().plusDays(10);
+        return IntStream.range(0,FLIGHTS)
+                .mapToObj(i->flightRepo.save(new Flight(null,"AI","AI"+i,AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+                        SEATS,SEATS,5000,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true)).block().getId())
+                .toList();
+    }
+
+    //70% bookings of 1-3 random seats, 30% cancellations of a live booking, one in ten cancellations is sent twice at once
+    private Mono<Void> operation(List<String> flightIds) 
+    {
+        ThreadLocalRandom random=ThreadLocalRandom.current();
+        String pnr=random.nextInt(10)<3 ? livePnrs.poll() : null;
+        if (pnr==null) 
+        {
+            String flightId=flightIds.get(random.nextInt(flightIds.size()));
+            return timed(bookLatency,()->service.bookTicket(flightId,request(flightId,random)))
+                    .doOnNext(livePnrs::add)
+                    .doOnNext(ok->booked.incrementAndGet())
+                    .onErrorResume(SeatUnavailableException.class,ex->count(rejected))
+                    .onErrorResume(ex->count(unexpected))
+                    .then();
+        }
+        Mono<Void> cancel=timed(cancelLatency,()->service.cancelBooking(pnr).thenReturn(pnr))
+                .doOnNext(ok->cancelled.incrementAndGet())
+                //the losing half of a duplicate cancel must see the booking as gone
+                .onErrorResume(NotFoundException.class,ex->count(duplicateCancels))
+                .onErrorResume(ex->count(unexpected))
+                .then();
+        return random.nextInt(10)==0 ? Mono.when(cancel,cancel.subscribeOn(Schedulers.parallel())) : cancel;
+    }
+
+    private BookingRequest request(String flightId, ThreadLocalRandom random) 
+    {
+        int seats=1+random.nextInt(3);
+        List<PassengerRequest> passengers=random.ints(0,SEAT_POOL).distinct().limit(seats)
+                .mapToObj(seat->passenger("P"+seat,seatNumber(seat)))
+                .toList();
+        BookingRequest request=new BookingRequest();
+        request.setFlightId(flightId);
+        request.setUserId("U1");
+        request.setSeatsBooked(seats);
+        request.setMealType(MEAL_TYPE.VEG);
+        request.setFlightType(FLIGHT_TYPE.ONE_WAY);
+        request.setPassengers(passengers);
+        return request;
+    }
+
+    private static String seatNumber(int seat) 
+    {
+        return (char)('A'+seat%6)+String.valueOf(seat/6+1);
+    }
+
+    private static PassengerRequest passenger(String name, String seat) 
+    {
+        PassengerRequest passenger=new PassengerRequest();
+        passenger.setName(name);
+        passenger.setGender(GENDER.M);
+        passenger.setAge(30);
+        passenger.setSeatNumber(seat);
+        return passenger;
+    }
+
+    private void checkInvariants(String flightId) 
+    {
+        Flight flight=flightRepo.findById(flightId).block();
+        List<Booking> bookings=bookingRepo.findByFlightId(flightId).collectList().block();
+
+        int seatsBooked=bookings.stream().mapToInt(Booking::getSeatsBooked).sum();
+        assertEquals(flight.getTotalSeats()-seatsBooked,flight.getAvailableSeats(),"availableSeats of "+flightId);
+
+        List<String> bookedSeats=bookings.stream().flatMap(b->b.getPassengers().stream()).map(Passenger::getSeatNumber).toList();
+        Set<String> distinct=new TreeSet<>(bookedSeats);
+        assertEquals(bookedSeats.size(),distinct.size(),"seat booked twice on "+flightId);
+
+        //every occupied seat belongs to a booking and every booking's seats are occupied, nothing leaked either way
+        assertEquals(distinct,new TreeSet<>(SeatMap.occupiedSeats(flight.getSeatMap())),"seat map of "+flightId);
+        bookings.forEach(booking->assertEquals(booking.getSeatsBooked(),booking.getPassengers().size(),"booking "+booking.getPnr()));
+    }
+
+    private void report(double seconds) 
+    {
+        long attempts=booked.get()+rejected.get();
+        log.info("""
+
+                booking stress: {} operations, concurrency {}, {} flights x {} seats, repository latency {}
+                  throughput        {} ops/s over {} s
+                  book    p50/p99   {} / {} us  ({} booked, {} rejected)
+                  cancel  p50/p99   {} / {} us  ({} cancelled, {} duplicate cancels refused)
+                  lost seat races   {} ({}% of booking attempts reached the atomic update and lost)
+                  rejected up front {} ({}% of booking attempts)
+                  pnr retries       {}""",
+                OPERATIONS,CONCURRENCY,FLIGHTS,SEATS,LATENCY,
+                Math.round(OPERATIONS/seconds),String.format("%.2f",seconds),
+                bookLatency.percentile(50),bookLatency.percentile(99),booked.get(),rejected.get(),
+                cancelLatency.percentile(50),cancelLatency.percentile(99),cancelled.get(),duplicateCancels.get(),
+                flightRepo.lostRaces.get(),percent(flightRepo.lostRaces.get(),attempts),
+                rejected.get()-flightRepo.lostRaces.get(),percent(rejected.get()-flightRepo.lostRaces.get(),attempts),
+                bookingRepo.pnrCollisions.get());
+    }
+
+    private static String percent(long part, long whole) 
+    {
+        return whole==0 ? "0" : String.format("%.1f",100.0*part/whole);
+    }
+
+    private static <T> Mono<T> count(AtomicLong counter) 
+    {
+        counter.incrementAndGet();
+        return Mono.empty();
+    }
+
+    private static <T> Mono<T> timed(Latencies latencies, Supplier<Mono<T>> call) 
+    {
+        return Mono.defer(()-> 
+        {
+            long start=System.nanoTime();
+            return call.get().doFinally(signal->latencies.add(System.nanoTime()-start));
+        });
+    }
+
+    private static final class Latencies 
+    {
+        private final Queue<Long> nanos=new ConcurrentLinkedQueue<>();
+
+        void add(long value) 
+        {
+            nanos.add(value);
+        }
+
+        long percentile(int percentile) 
+        {
+            List<Long> sorted=nanos.stream().sorted().collect(Collectors.toList());
+            if (sorted.isEmpty()) 
+            {
+                return 0;
+            }
+            int index=(int)Math.ceil(percentile/100.0*sorted.size())-1;
+            return sorted.get(Math.max(index,0))/1000;
+        }
+    }
+
+    //reserveSeats coming back empty means the pre-check passed but another request took a seat first
+    private static final class CountingFlightRepository extends FlightInMemoryRepository 
+    {
+        private final AtomicLong lostRaces=new AtomicLong();
+
+        CountingFlightRepository(BookingRepository bookings) 
+        {
+            super(LATENCY,bookings);
+        }
+
+        @Override
+        public Mono<Flight> reserveSeats(String flightId, Collection<String> seatNumbers) 
+        {
+            return super.reserveSeats(flightId,seatNumbers).switchIfEmpty(Mono.fromRunnable(lostRaces::incrementAndGet));
+        }
+    }
+
+    private static final class CountingBookingRepository extends BookingInMemoryRepository 
+    {
+        private final AtomicLong pnrCollisions=new AtomicLong();
+
+        CountingBookingRepository() 
+        {
+            super(LATENCY);
+        }
+
+        @Override
+        public <S extends Booking> Mono<S> insert(S booking) 
+        {
+            return super.insert(booking).doOnError(DuplicateKeyException.class,ex->pnrCollisions.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.flight.service;
+
+import com.flight.exception.BusinessException;
+import com.flight.repository.BookingRepository;
+import com.flight.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ExistenceFilterTest 
+{
+    private final ExistenceFilter filter=new ExistenceFilter("pnr",0.01,1000);
+    private final AtomicInteger queries=new AtomicInteger();
+
+    @Test
+    void coldFilter_sendsEveryLookupToTheQuery() 
+    {
+        StepVerifier.create(filter.lookup("PNR1",()->query("PNR1"))).expectNext("PNR1").verifyComplete();
+        assertEquals(1,queries.get());
+        assertFalse(filter.loaded());
+    }
+
+    @Test
+    void disabledFilters_stayColdAndRefuseRebuild() 
+    {
+        ExistenceFilters disabled=new ExistenceFilters(mock(UserRepository.class),mock(BookingRepository.class),false,0.01,1000);
+        disabled.load();
+        StepVerifier.create(disabled.rebuild()).expectError(BusinessException.class).verify();
+        //a pnr written by another instance is still found
+        StepVerifier.create(disabled.pnrs().lookup("PNR1",()->query("PNR1"))).expectNext("PNR1").verifyComplete();
+        assertFalse(disabled.pnrs().loaded());
+    }
+
+    @Test
+    void loadedFilter_rejectsUnknownKeysWithoutQuery_confirmsTheRest() 
+    {
+        filter.rebuild(Mono.just(2L),Flux.just("PNR1","PNR2")).block();
+
+        StepVerifier.create(filter.lookup("NOPE",()->query("NOPE"))).verifyComplete();
+        assertEquals(0,queries.get());
+        StepVerifier.create(filter.lookup("PNR1",()->query("PNR1"))).expectNext("PNR1").verifyComplete();
+        //deleted since the load: the filter still says maybe, the query has the final word
+        StepVerifier.create(filter.lookup("PNR2",()->Mono.empty())).verifyComplete();
+        assertEquals(1,queries.get());
+        assertEquals(0.5,filter.observedFpp());
+    }
+
+    @Test
+    void keysAddedAfterLoad_found() 
+    {
+        filter.rebuild(Mono.just(0L),Flux.empty()).block();
+        filter.inserting("PNR9",Mono.just("ok")).block();
+        StepVerifier.create(filter.lookup("PNR9",()->query("PNR9"))).expectNext("PNR9").verifyComplete();
+    }
+
+    @Test
+    void insertStillRunningDuringRebuild_survivesTheSwap() 
+    {
+        filter.rebuild(Mono.just(0L),Flux.empty()).block();
+        Sinks.Empty<Void> slowInsert=Sinks.empty();
+        filter.inserting("PNR7",slowInsert.asMono()).subscribe();
+        //the scan does not see PNR7 yet, its insert has not landed
+        filter.rebuild(Mono.just(1L),Flux.just("PNR1")).block();
+        slowInsert.tryEmitEmpty();
+
+        StepVerifier.create(filter.lookup("PNR7",()->query("PNR7"))).expectNext("PNR7").verifyComplete();
+    }
+
+    @Test
+    void insertDuringScan_landsInTheNewFilter() 
+    {
+        filter.rebuild(Mono.just(0L),Flux.empty()).block();
+        Sinks.Many<String> scan=Sinks.many().unicast().onBackpressureBuffer();
+        Mono<Long> rebuild=filter.rebuild(Mono.just(1L),scan.asFlux()).cache();
+        rebuild.subscribe();
+        filter.inserting("PNR8",Mono.just("ok")).block();
+        scan.tryEmitNext("PNR1");
+        scan.tryEmitComplete();
+        assertEquals(1,rebuild.block());
+
+        StepVerifier.create(filter.lookup("PNR8",()->query("PNR8"))).expectNext("PNR8").verifyComplete();
+    }
+
+    @Test
+    void secondRebuildWhileOneRuns_refused() 
+    {
+        Sinks.Empty<Void> scan=Sinks.empty();
+        filter.rebuild(Mono.just(0L),scan.asMono().thenMany(Flux.<String>empty())).subscribe();
+        StepVerifier.create(filter.rebuild(Mono.just(0L),Flux.empty())).expectError(BusinessException.class).verify();
+        scan.tryEmitEmpty();
+        StepVerifier.create(filter.rebuild(Mono.just(0L),Flux.empty())).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    void falsePositiveRate_closeToTarget() 
+    {
+        List<String> keys=IntStream.range(0,1000).mapToObj(i->"K"+i).toList();
+        filter.rebuild(Mono.just(500L),Flux.fromIterable(keys)).block();
+        keys.forEach(key->assertEquals(key,filter.lookup(key,()->Mono.just(key)).block()));
+        //sized for 1000 keys at 1%, so about 1000 of 100000 unknown keys still need a query
+        IntStream.range(0,100_000).forEach(i->filter.lookup("X"+i,()->query("X"+i).then(Mono.<String>empty())).block());
+        assertTrue(queries.get()<2000,"queries "+queries.get());
+        assertEquals(queries.get()/100_000.0,filter.observedFpp(),1e-9);
+    }
+
+    @Test
+    void metrics_taggedByFilterAndResult() 
+    {
+        MeterRegistry registry=new SimpleMeterRegistry();
+        filter.bindTo(registry);
+        filter.rebuild(Mono.just(1L),Flux.just("PNR1")).block();
+        filter.lookup("NOPE",()->query("NOPE")).block();
+        filter.lookup("PNR1",()->query("PNR1")).block();
+        assertEquals(1,registry.get("flight.existence.checks").tags("filter","pnr","result","absent").functionCounter().count());
+        assertEquals(1,registry.get("flight.existence.checks").tags("filter","pnr","result","present").functionCounter().count());
+        assertEquals(0,registry.get("flight.existence.false-positive-rate").tag("filter","pnr").gauge().value());
+    }
+
+    private Mono<String> query(String key) 
+    {
+        queries.incrementAndGet();
+        return Mono.just(key);
+    }
+}
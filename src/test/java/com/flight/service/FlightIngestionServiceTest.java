@@ -0,0 +1,150 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.event.FlightAddedEvent;
+import com.flight.repository.AirlineRepository;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.FlightRepositoryCustom.InsertFailure;
+import com.flight.response.FlightIngestResult;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlightIngestionServiceTest 
+{
+    @Mock
+    private FlightRepository flightRepo;
+    @Mock
+    private AirlineRepository airlineRepo;
+    @Mock
+    private ApplicationEventPublisher events;
+
+    private final Validator validator=Validation.buildDefaultValidatorFactory().getValidator();
+    private final JsonMapper jsonMapper=JsonMapper.builder().build();
+
+    private FlightIngestionService service;
+
+    @BeforeEach
+    void setup() 
+    {
+        service=new FlightIngestionService(flightRepo,airlineRepo,events,validator,jsonMapper);
+    }
+
+    private String flightLine(String airline, AIRPORT_CODE from, AIRPORT_CODE to, LocalDateTime departure) 
+    {
+        Flight flight=new Flight();
+        flight.setAirlineCode(airline);
+        flight.setFlightNumber(airline+"100");
+        flight.setFromCity(from);
+        flight.setToCity(to);
+        flight.setDepartureTime(departure);
+        flight.setArrivalTime(departure.plusHours(2));
+        flight.setTotalSeats(120);
+        flight.setPrice(4000);
+        flight.setStatus(FLIGHT_STATUS.SCHEDULED);
+        return jsonMapper.writeValueAsString(flight);
+    }
+
+    @Test
+    void testIngestReportsBadLinesAndStoresTheRest() 
+    {
+        LocalDateTime future=LocalDateTime.now().plusDays(10);
+        List<String> lines=List.of(
+                flightLine("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,future),
+                "{not json",
+                flightLine("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.DEL,future),
+                "",
+                flightLine("ZZ",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,future),
+                flightLine("AI",AIRPORT_CODE.BLR,AIRPORT_CODE.BOM,LocalDateTime.now().minusDays(1)));
+        when(airlineRepo.findAllById(anyIterable())).thenReturn(Flux.just(new Airline("AI","air india")));
+        when(flightRepo.insertUnordered(anyList())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.ingest(Flux.fromIterable(lines)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(2L,results.get(0).getLine());
+                assertTrue(results.get(0).getError().startsWith("malformed json"));
+                assertEquals("source and destination must be different",results.get(1).getError());
+                assertEquals(3L,results.get(1).getLine());
+                assertEquals("Airline not found",results.get(2).getError());
+                assertEquals("Flight departure time must be in the future",results.get(3).getError());
+                FlightIngestResult summary=results.get(results.size()-1);
+                assertTrue(summary.getDone());
+                assertEquals(1L,summary.getAccepted());
+                assertEquals(4L,summary.getRejected());
+            }).verifyComplete();
+        verify(events,times(1)).publishEvent(any(FlightAddedEvent.class));
+    }
+
+    @Test
+    void testIngestResolvesAirlinesOncePerBatch() 
+    {
+        LocalDateTime future=LocalDateTime.now().plusDays(10);
+        int total=FlightIngestionService.BATCH_SIZE+10;
+        Flux<String> lines=Flux.fromStream(IntStream.range(0,total).mapToObj(i->flightLine("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,future.plusMinutes(i))));
+        when(airlineRepo.findAllById(anyIterable())).thenReturn(Flux.just(new Airline("AI","air india")));
+        when(flightRepo.insertUnordered(anyList())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.ingest(lines).last())
+            .assertNext(summary->assertEquals((long) total,summary.getAccepted())).verifyComplete();
+        verify(airlineRepo,times(2)).findAllById(anyIterable());
+        verify(flightRepo,times(2)).insertUnordered(anyList());
+    }
+
+    @Test
+    void testIngestReportsOnlyTheFlightsTheBulkInsertRejected() 
+    {
+        LocalDateTime future=LocalDateTime.now().plusDays(10);
+        Flux<String> lines=Flux.range(0,4).map(i->flightLine("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,future.plusMinutes(i)));
+        when(airlineRepo.findAllById(anyIterable())).thenReturn(Flux.just(new Airline("AI","air india")));
+        when(flightRepo.insertUnordered(anyList())).thenReturn(Flux.just(new InsertFailure(1,"E11000 duplicate key")));
+
+        StepVerifier.create(service.ingest(lines).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(2L,results.get(0).getLine());
+                assertEquals("insert failed: E11000 duplicate key",results.get(0).getError());
+                FlightIngestResult summary=results.get(results.size()-1);
+                assertEquals(3L,summary.getAccepted());
+                assertEquals(1L,summary.getRejected());
+            }).verifyComplete();
+        verify(events,times(3)).publishEvent(any(FlightAddedEvent.class));
+    }
+
+    @Test
+    void testIngestRejectsTheBatchWhenTheWholeInsertFails() 
+    {
+        LocalDateTime future=LocalDateTime.now().plusDays(10);
+        Flux<String> lines=Flux.range(0,2).map(i->flightLine("AI",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,future.plusMinutes(i)));
+        when(airlineRepo.findAllById(anyIterable())).thenReturn(Flux.just(new Airline("AI","air india")));
+        when(flightRepo.insertUnordered(anyList())).thenReturn(Flux.error(new RuntimeException("connection reset")));
+
+        StepVerifier.create(service.ingest(lines).last())
+            .assertNext(summary-> 
+            {
+                assertEquals(0L,summary.getAccepted());
+                assertEquals(2L,summary.getRejected());
+            }).verifyComplete();
+        verify(events,never()).publishEvent(any());
+    }
+}
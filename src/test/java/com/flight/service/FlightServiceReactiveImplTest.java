@@ -1,27 +1,56 @@
 package com.flight.service;
 
 import com.flight.entity.*;
+import com.flight.event.FlightAddedEvent;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.BusinessException;
+import com.flight.exception.NotFoundException;
+import com.flight.exception.SeatUnavailableException;
 import com.flight.repository.*;
+import com.flight.repository.inmemory.TripViewInMemoryRepository;
 import com.flight.request.BookingRequest;
 import com.flight.request.PassengerRequest;
+import com.flight.request.TRIP_FILTER;
+import com.flight.response.BookingBatchResult;
+import com.flight.response.CursorPage;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Range;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +66,22 @@ class FlightServiceReactiveImplTest
     private AirlineRepository airlineRepo;
     @Mock
     private UserRepository userRepo;
+    @Mock
+    private ApplicationEventPublisher events;
+    @Mock
+    private SeatHoldService seatHolds;
+    @Spy
+    private PnrGenerator pnrGenerator=new PnrGenerator();
+    @Spy
+    private FlightSearchCache searchCache=new FlightSearchCache(100,Duration.ofMinutes(1));
+    @Spy
+    private LookupCoalescer coalescer=new LookupCoalescer();
+    @Spy
+    private ExistenceFilters existence=new ExistenceFilters(mock(UserRepository.class),mock(BookingRepository.class),true,0.01,100);
+    @Spy
+    private TripViewProjection trips=new TripViewProjection(new TripViewInMemoryRepository(Duration.ZERO));
+    @Spy
+    private Validator validator=Validation.buildDefaultValidatorFactory().getValidator();
 
     @InjectMocks
     private FlightServiceReactiveImpl service;
@@ -67,6 +112,7 @@ class FlightServiceReactiveImplTest
         when(airlineRepo.findById("ai")).thenReturn(Mono.just(new Airline("ai","air india")));
         when(flightRepo.save(any())).thenReturn(Mono.just(validFlight));
         StepVerifier.create(service.addFlight(validFlight)).expectNext(validFlight).verifyComplete();
+        verify(events).publishEvent(new FlightAddedEvent(validFlight));
     }
 
     //searchFlights()
@@ -75,8 +121,84 @@ class FlightServiceReactiveImplTest
     {
         validFlight.setDepartureTime(LocalDateTime.of(2030,1,1, 10,0));
         LocalDate date=LocalDate.of(2030 ,1, 1);
-        when(flightRepo.findByFromCityAndToCity(AIRPORT_CODE.DEL, AIRPORT_CODE.BOM)).thenReturn(Flux.just(validFlight));
+        Range<LocalDateTime> day=Range.rightOpen(LocalDateTime.of(2030,1,1,0,0),LocalDateTime.of(2030,1,2,0,0));
+        when(flightRepo.findByFromCityAndToCityAndDepartureTimeBetween(AIRPORT_CODE.DEL, AIRPORT_CODE.BOM,day)).thenReturn(Flux.just(validFlight));
         StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM, date)).expectNext(validFlight) .verifyComplete();
+        verify(flightRepo,never()).findByFromCityAndToCity(any(),any());
+    }
+
+    @Test
+    void testSearchFlightsServedFromCacheUntilSeatsChange() 
+    {
+        validFlight.setDepartureTime(LocalDateTime.of(2030,1,1, 10,0));
+        LocalDate date=LocalDate.of(2030 ,1, 1);
+        when(flightRepo.findByFromCityAndToCityAndDepartureTimeBetween(eq(AIRPORT_CODE.DEL),eq(AIRPORT_CODE.BOM),any())).thenReturn(Flux.just(validFlight));
+
+        StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date)).expectNext(validFlight).verifyComplete();
+        StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date)).expectNext(validFlight).verifyComplete();
+        verify(flightRepo,times(1)).findByFromCityAndToCityAndDepartureTimeBetween(eq(AIRPORT_CODE.DEL),eq(AIRPORT_CODE.BOM),any());
+
+        searchCache.onSeatsChanged(new SeatsChangedEvent(validFlight));
+        StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date)).expectNext(validFlight).verifyComplete();
+        verify(flightRepo,times(2)).findByFromCityAndToCityAndDepartureTimeBetween(eq(AIRPORT_CODE.DEL),eq(AIRPORT_CODE.BOM),any());
+        assertEquals(1L,searchCache.stats().get("hits"));
+        assertEquals(2L,searchCache.stats().get("misses"));
+    }
+
+    @Test
+    void testSearchLoadStoredUnlessItsOwnRouteChanged() 
+    {
+        LocalDate date=LocalDate.of(2030,1,1);
+        Flight other=new Flight();
+        other.setFromCity(AIRPORT_CODE.BOM);
+        other.setToCity(AIRPORT_CODE.DEL);
+        other.setDepartureTime(LocalDateTime.of(2030,1,1,10,0));
+        validFlight.setDepartureTime(LocalDateTime.of(2030,1,1,10,0));
+
+        //a change on another route does not keep this load out of the cache
+        Sinks.One<Flight> load=Sinks.one();
+        StepVerifier.create(searchCache.get(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date,()->load.asMono().flux()))
+            .then(()->searchCache.onSeatsChanged(new SeatsChangedEvent(other)))
+            .then(()->load.tryEmitValue(validFlight))
+            .expectNext(validFlight).verifyComplete();
+        assertNotNull(searchCache.peek(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date));
+
+        //one on its own route does
+        searchCache.invalidate(validFlight);
+        Sinks.One<Flight> reload=Sinks.one();
+        StepVerifier.create(searchCache.get(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date,()->reload.asMono().flux()))
+            .then(()->searchCache.onSeatsChanged(new SeatsChangedEvent(validFlight)))
+            .then(()->reload.tryEmitValue(validFlight))
+            .expectNext(validFlight).verifyComplete();
+        assertNull(searchCache.peek(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date));
+    }
+
+    @Test
+    void testSearchFlightSummariesProjectedInDatabase() 
+    {
+        LocalDate date=LocalDate.of(2030 ,1, 1);
+        Set<String> fields=new LinkedHashSet<>(List.of("id","price"));
+        when(flightRepo.findOnRoute(eq(AIRPORT_CODE.DEL),eq(AIRPORT_CODE.BOM),any(),eq(fields))).thenReturn(Flux.just(validFlight));
+        StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date,fields))
+            .assertNext(summary-> 
+            {
+                assertEquals("flight1",summary.getId());
+                assertEquals(5000f,summary.getPrice());
+                assertNull(summary.getAvailableSeats());
+            }).verifyComplete();
+    }
+
+    @Test
+    void testSearchFlightSummariesFromCachedResult() 
+    {
+        validFlight.setDepartureTime(LocalDateTime.of(2030,1,1, 10,0));
+        LocalDate date=LocalDate.of(2030 ,1, 1);
+        when(flightRepo.findByFromCityAndToCityAndDepartureTimeBetween(eq(AIRPORT_CODE.DEL),eq(AIRPORT_CODE.BOM),any())).thenReturn(Flux.just(validFlight));
+        service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date).blockLast();
+
+        StepVerifier.create(service.searchFlights(AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,date,Set.of("id","availableSeats")))
+            .assertNext(summary->assertEquals(100,summary.getAvailableSeats())).verifyComplete();
+        verify(flightRepo,never()).findOnRoute(any(),any(),any(),any());
     }
 
     //getFlightById()
@@ -87,6 +209,21 @@ class FlightServiceReactiveImplTest
         StepVerifier.create(service.getFlightById("flight1")).expectNext(validFlight).verifyComplete();
     }
 
+    @Test
+    void testGetFlightByIdConcurrentCallsShareOneRead() 
+    {
+        Sinks.One<Flight> read=Sinks.one();
+        when(flightRepo.findById("flight1")).thenReturn(read.asMono());
+        Mono<Flight> first=service.getFlightById("flight1");
+        Mono<Flight> second=service.getFlightById("flight1");
+
+        StepVerifier.create(Mono.zip(first,second))
+            .then(()->read.tryEmitValue(validFlight))
+            .assertNext(both->assertSame(both.getT1(),both.getT2()))
+            .verifyComplete();
+        verify(flightRepo,times(1)).findById("flight1");
+    }
+
     //bookTicket()
     private BookingRequest createValidBookingRequest() 
     {
@@ -126,21 +263,372 @@ class FlightServiceReactiveImplTest
 
         when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
         when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
-        when(bookingRepo.findByFlightId("flight1")).thenReturn(Flux.empty());
-        when(passengerRepo.save(any())).thenAnswer(inv->
+        when(bookingRepo.insert(any(Booking.class))).thenReturn(Mono.just(saved));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+
+        StepVerifier.create(service.bookTicket("flight1",req)).expectNext("PNR0000").verifyComplete();
+        verify(flightRepo,never()).save(any());
+        //passengers go inside the booking document, one insert and nothing else
+        verify(bookingRepo).insert(argThat((Booking b)->b.getPassengers().size()==2 && "A2".equals(b.getPassengers().get(1).getSeatNumber())));
+        verify(bookingRepo,never()).save(any());
+        verifyNoInteractions(passengerRepo);
+        verify(events).publishEvent(new SeatsChangedEvent(validFlight));
+    }
+
+    @Test
+    void testBookAndCancelKeepTripViewInStep() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.insert(any(Booking.class))).thenAnswer(inv->Mono.just(inv.getArgument(0)));
+
+        String pnr=service.bookTicket("flight1",req).block();
+        StepVerifier.create(service.getTrips("user1",TRIP_FILTER.UPCOMING))
+            .assertNext(trip-> 
+            {
+                assertEquals(pnr,trip.getPnr());
+                assertEquals(AIRPORT_CODE.DEL,trip.getFromCity());
+                assertEquals(validFlight.getDepartureTime(),trip.getDepartureTime());
+                assertEquals(List.of("A1","A2"),trip.getSeatNumbers());
+                assertEquals(2,trip.getPassengerNames().size());
+            }).verifyComplete();
+        StepVerifier.create(service.getTrips("user1",TRIP_FILTER.PAST)).verifyComplete();
+
+        Booking booking=new Booking();
+        booking.setFlightId("flight1");
+        booking.setPnr(pnr);
+        booking.setPassengers(List.of(new Passenger(null,"A",GENDER.M,20,"A1",null),new Passenger(null,"B",GENDER.F,20,"A2",null)));
+        when(bookingRepo.findByPnr(pnr)).thenReturn(Mono.just(booking));
+        when(bookingRepo.deleteByPnr(pnr)).thenReturn(Mono.just(1L));
+        when(flightRepo.releaseSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        service.cancelBooking(pnr).block();
+        StepVerifier.create(service.getTrips("user1",TRIP_FILTER.ALL)).verifyComplete();
+    }
+
+    @Test
+    void testBookTicketFromHoldSkipsConflictCheckAndReserve() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        req.setHoldToken("hold1");
+        //the held seats already show as taken on the flight
+        validFlight.setSeatMap(SeatMap.masks(List.of("A1","A2")));
+        Booking saved=new Booking();
+        saved.setPnr("PNR0001");
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(seatHolds.claim("hold1","flight1",req)).thenReturn(Mono.just(new SeatHold("hold1","flight1","user1",List.of("A1","A2"),LocalDateTime.now().plusMinutes(5))));
+        when(bookingRepo.insert(any(Booking.class))).thenReturn(Mono.just(saved));
+
+        StepVerifier.create(service.bookTicket("flight1",req)).expectNext("PNR0001").verifyComplete();
+        verify(flightRepo,never()).reserveSeats(any(),any());
+        verify(flightRepo,never()).releaseSeats(any(),any());
+    }
+
+    @Test
+    void testBookTicketFromHoldReleasesSeatsWhenInsertFails() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        req.setHoldToken("hold1");
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(seatHolds.claim("hold1","flight1",req)).thenReturn(Mono.just(new SeatHold("hold1","flight1","user1",List.of("A1","A2"),LocalDateTime.now().plusMinutes(5))));
+        when(bookingRepo.insert(any(Booking.class))).thenReturn(Mono.error(new RuntimeException("write failed")));
+        when(flightRepo.releaseSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+
+        StepVerifier.create(service.bookTicket("flight1",req)).expectErrorMessage("write failed").verify();
+        verify(flightRepo).releaseSeats("flight1",List.of("A1","A2"));
+    }
+
+    @Test
+    void testBookTicketRetriesWithNewPnrOnDuplicateKey() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        List<String> triedPnrs=new ArrayList<>();
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.insert(any(Booking.class))).thenAnswer(inv-> 
         {
-            Passenger p= inv.getArgument(0);
-            p.setId(UUID.randomUUID().toString());
-            return Mono.just(p);
+            Booking b=inv.getArgument(0);
+            triedPnrs.add(b.getPnr());
+            return triedPnrs.size()==1 ? Mono.error(new DuplicateKeyException("pnr taken")) : Mono.just(b);
         });
-        when(bookingRepo.save(any())).thenReturn(Mono.just(saved));
-        when(flightRepo.save(any())).thenReturn(Mono.just(validFlight));
 
-        StepVerifier.create(service.bookTicket("flight1",req)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.bookTicket("flight1",req))
+            .assertNext(pnr->assertEquals(triedPnrs.get(1),pnr))
+            .verifyComplete();
+        assertEquals(2,triedPnrs.size());
+        assertNotEquals(triedPnrs.get(0),triedPnrs.get(1));
+        verify(flightRepo,never()).releaseSeats(any(),any());
+    }
+
+    @Test
+    void testBookTicketReserveConditionFails() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        //another booking took the last seats between the read and the atomic update
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.bookTicket("flight1",req)).expectError(SeatUnavailableException.class).verify();
+        verify(bookingRepo,never()).insert(any(Booking.class));
+    }
+
+    @Test
+    void testBookTicketSeatAlreadyInSeatMap() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        validFlight.setSeatMap(SeatMap.masks(List.of("A2")));
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+
+        StepVerifier.create(service.bookTicket("flight1",req))
+            .expectErrorMatches(ex->ex instanceof SeatUnavailableException && ex.getMessage().endsWith("A2")).verify();
+        verify(flightRepo,never()).reserveSeats(any(),any());
+        verifyNoInteractions(bookingRepo,passengerRepo);
+    }
+
+    @Test
+    void testBookTicketReleasesSeatsWhenSaveFails() 
+    {
+        BookingRequest req =createValidBookingRequest();
+        when(userRepo.findById("user1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.insert(any(Booking.class))).thenReturn(Mono.error(new IllegalStateException("write failed")));
+        when(flightRepo.releaseSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+
+        StepVerifier.create(service.bookTicket("flight1",req)).expectError(IllegalStateException.class).verify();
+        verify(flightRepo).releaseSeats("flight1",List.of("A1","A2"));
+    }
+
+
+    //bookTickets()
+    private BookingRequest createBookingRequest(String userId, String... seats) 
+    {
+        BookingRequest req=createValidBookingRequest();
+        req.setUserId(userId);
+        req.setSeatsBooked(seats.length);
+        req.setPassengers(Arrays.stream(seats).map(seat-> 
+        {
+            PassengerRequest p=new PassengerRequest();
+            p.setName("P"+seat);
+            p.setGender(GENDER.O);
+            p.setAge(30);
+            p.setSeatNumber(seat);
+            return p;
+        }).toList());
+        return req;
+    }
+
+    @Test
+    void testBookTicketsOneReserveAndOneInsertPerFlight() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1","A2");
+        BookingRequest second=createBookingRequest("user1","B1");
+        BookingRequest clash=createBookingRequest("user1","A2");
+        BookingRequest unknownUser=createBookingRequest("ghost","C1");
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2","B1"))).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.insert(anyList())).thenAnswer(inv->Flux.fromIterable(inv.<List<Booking>>getArgument(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,second,clash,unknownUser)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(4,results.size());
+                assertEquals("Seat already booked: A2",find(results,2).getError());
+                assertEquals("User not found",find(results,3).getError());
+                assertNotNull(find(results,0).getPnr());
+                assertNotNull(find(results,1).getPnr());
+            }).verifyComplete();
+        verify(flightRepo,times(1)).reserveSeats(any(),any());
+        verify(bookingRepo,times(1)).insert(anyList());
+    }
+
+    @Test
+    void testBookTicketsRetriesOnlyUnwrittenBookingsOnPnrCollision() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1");
+        BookingRequest second=createBookingRequest("user1","A2");
+        List<List<Booking>> inserts=new ArrayList<>();
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        //the first booking is written, the second hits an existing pnr
+        when(bookingRepo.insert(anyList())).thenAnswer(inv-> 
+        {
+            List<Booking> batch=List.copyOf(inv.<List<Booking>>getArgument(0));
+            inserts.add(batch);
+            return inserts.size()==1 ? Mono.error(new DuplicateKeyException("pnr taken")).flux() : Flux.fromIterable(batch);
+        });
+        when(bookingRepo.findAllById(anyIterable())).thenAnswer(inv->Flux.just(inserts.get(0).get(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,second)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(inserts.get(0).get(0).getPnr(),find(results,0).getPnr());
+                assertEquals(inserts.get(1).get(0).getPnr(),find(results,1).getPnr());
+            }).verifyComplete();
+        assertEquals(2,inserts.size());
+        assertEquals(1,inserts.get(1).size());
+        assertNotNull(inserts.get(0).get(0).getId());
+        verify(flightRepo,never()).releaseSeats(any(),any());
+    }
+
+    @Test
+    void testBookTicketsKeepsWrittenBookingsWhenRetriesRunOut() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1");
+        BookingRequest second=createBookingRequest("user1","A2");
+        List<List<Booking>> inserts=new ArrayList<>();
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        when(flightRepo.releaseSeats("flight1",List.of("A2"))).thenReturn(Mono.just(validFlight));
+        //the first booking is written, the second collides on every attempt
+        when(bookingRepo.insert(anyList())).thenAnswer(inv-> 
+        {
+            inserts.add(List.copyOf(inv.<List<Booking>>getArgument(0)));
+            return Flux.error(new DuplicateKeyException("pnr taken"));
+        });
+        when(bookingRepo.findAllById(anyIterable())).thenAnswer(inv->Flux.just(inserts.get(0).get(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,second)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(inserts.get(0).get(0).getPnr(),find(results,0).getPnr());
+                assertEquals("pnr taken",find(results,1).getError());
+            }).verifyComplete();
+        //only the unwritten booking's seat goes back
+        verify(flightRepo).releaseSeats("flight1",List.of("A2"));
+        verify(flightRepo,times(1)).releaseSeats(any(),any());
+    }
+
+    @Test
+    void testBookTicketsInvalidItemDoesNotFailBatch() 
+    {
+        BookingRequest good=createBookingRequest("user1","A1");
+        BookingRequest mismatch=createBookingRequest("user1","A3");
+        mismatch.setSeatsBooked(2);
+        BookingRequest missingFlight=createBookingRequest("user1","A4");
+        missingFlight.setFlightId(null);
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A1"))).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.insert(anyList())).thenAnswer(inv->Flux.fromIterable(inv.<List<Booking>>getArgument(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(good,mismatch,missingFlight)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals("Passengers count must be equal to seats booked",find(results,1).getError());
+                assertEquals("flightId: flightId is required",find(results,2).getError());
+                assertNotNull(find(results,0).getPnr());
+            }).verifyComplete();
+    }
+
+    @Test
+    void testBookTicketsFallsBackPerItemWhenFlightChanged() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1");
+        BookingRequest second=createBookingRequest("user1","A2");
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        //combined claim loses against a concurrent booking of A2
+        when(flightRepo.reserveSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.empty());
+        when(flightRepo.reserveSeats("flight1",List.of("A1"))).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight1",List.of("A2"))).thenReturn(Mono.empty());
+        when(bookingRepo.insert(any(Booking.class))).thenAnswer(inv->Mono.just(inv.getArgument(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,second)).collectList())
+            .assertNext(results-> 
+            {
+                assertNotNull(find(results,0).getPnr());
+                assertEquals("Requested seats are no longer available",find(results,1).getError());
+            }).verifyComplete();
+    }
+
+    @Test
+    void testBookTicketsDatabaseErrorFailsOnlyItsItems() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1");
+        BookingRequest unreadable=createBookingRequest("user1","A2");
+        unreadable.setFlightId("flight2");
+        BookingRequest unreserved=createBookingRequest("user1","A3");
+        unreserved.setFlightId("flight3");
+        Flight third=new Flight();
+        third.setId("flight3");
+        third.setTotalSeats(10);
+        third.setAvailableSeats(10);
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.just(new User("user1","A","a@test.com")));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(flightRepo.findById("flight2")).thenReturn(Mono.error(new IllegalStateException("read timed out")));
+        when(flightRepo.findById("flight3")).thenReturn(Mono.just(third));
+        when(flightRepo.reserveSeats("flight1",List.of("A1"))).thenReturn(Mono.just(validFlight));
+        when(flightRepo.reserveSeats("flight3",List.of("A3"))).thenReturn(Mono.error(new IllegalStateException("write timed out")));
+        when(bookingRepo.insert(anyList())).thenAnswer(inv->Flux.fromIterable(inv.<List<Booking>>getArgument(0)));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,unreadable,unreserved)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(3,results.size());
+                assertNotNull(find(results,0).getPnr());
+                assertEquals("read timed out",find(results,1).getError());
+                assertEquals("write timed out",find(results,2).getError());
+            }).verifyComplete();
     }
 
+    @Test
+    void testBookTicketsUserLookupErrorFailsOnlyItsWindow() 
+    {
+        BookingRequest first=createBookingRequest("user1","A1");
+        BookingRequest invalid=createBookingRequest("user1","A2");
+        invalid.setSeatsBooked(2);
+
+        when(userRepo.findAllById(anyIterable())).thenReturn(Flux.error(new IllegalStateException("users unavailable")));
+
+        StepVerifier.create(service.bookTickets(Flux.just(first,invalid)).collectList())
+            .assertNext(results-> 
+            {
+                assertEquals(2,results.size());
+                assertEquals("users unavailable",find(results,0).getError());
+                assertEquals("Passengers count must be equal to seats booked",find(results,1).getError());
+            }).verifyComplete();
+    }
+
+    private BookingBatchResult find(List<BookingBatchResult> results, long index) 
+    {
+        return results.stream().filter(r->r.getIndex()==index).findFirst().orElseThrow();
+    }
 
     //cancelBooking()
+    @Test
+    void testCancelBookingEmbeddedPassengers() 
+    {
+        Booking booking=new Booking();
+        booking.setId("bookId1");
+        booking.setFlightId("flight1");
+        booking.setSeatsBooked(2);
+        booking.setPnr("PNR123");
+        booking.setPassengers(List.of(new Passenger(null,"A",GENDER.M,20,"A1",null),new Passenger(null,"B",GENDER.F,22,"A2",null)));
+
+        when(bookingRepo.findByPnr("PNR123")).thenReturn(Mono.just(booking));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.deleteByPnr("PNR123")).thenReturn(Mono.just(1L));
+        when(flightRepo.releaseSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
+        StepVerifier.create(service.cancelBooking("PNR123")).verifyComplete();
+        verifyNoInteractions(passengerRepo);
+    }
+
     @Test
     void testCancelBookingSuccess() 
     {
@@ -154,12 +642,64 @@ class FlightServiceReactiveImplTest
 
         when(bookingRepo.findByPnr("PNR123")).thenReturn(Mono.just(booking));
         when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        Passenger p1=new Passenger("p1","A",GENDER.M,20,"A1","bookId1");
+        Passenger p2=new Passenger("p2","B",GENDER.F,22,"A2","bookId1");
+        when(passengerRepo.findByBookingId("bookId1")).thenReturn(Flux.just(p1,p2));
         when(passengerRepo.deleteByBookingId("bookId1")).thenReturn(Mono.empty());
-        when(bookingRepo.delete(booking)).thenReturn(Mono.empty());
-        when(flightRepo.save(validFlight)).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.deleteByPnr("PNR123")).thenReturn(Mono.just(1L));
+        when(flightRepo.releaseSeats("flight1",List.of("A1","A2"))).thenReturn(Mono.just(validFlight));
         StepVerifier.create(service.cancelBooking("PNR123")).verifyComplete();
     }
 
+    @Test
+    void testCancelBookingAlreadyRemovedByConcurrentCancel() 
+    {
+        Booking booking=new Booking();
+        booking.setId("bookId1");
+        booking.setFlightId("flight1");
+        booking.setPnr("PNR123");
+        booking.setPassengers(List.of(new Passenger(null,"A",GENDER.M,20,"A1",null)));
+
+        when(bookingRepo.findByPnr("PNR123")).thenReturn(Mono.just(booking));
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        when(bookingRepo.deleteByPnr("PNR123")).thenReturn(Mono.just(0L));
+        StepVerifier.create(service.cancelBooking("PNR123")).expectError(NotFoundException.class).verify();
+        verify(flightRepo,never()).releaseSeats(any(),any());
+    }
+
+    @Test
+    void testUnknownPnrAndUserRejectedByLoadedFilterWithoutQuery() 
+    {
+        existence.pnrs().rebuild(Mono.just(1L),Flux.just("PNR123")).block();
+        existence.users().rebuild(Mono.just(1L),Flux.just("user1")).block();
+        BookingRequest request=new BookingRequest();
+        request.setUserId("ghost");
+        when(flightRepo.findById("flight1")).thenReturn(Mono.just(validFlight));
+        String unknown=pnrGenerator.next();
+
+        StepVerifier.create(service.cancelBooking(unknown)).expectError(NotFoundException.class).verify();
+        StepVerifier.create(service.getTicket(unknown)).expectError(NotFoundException.class).verify();
+        StepVerifier.create(service.bookTicket("flight1",request)).expectErrorMessage("User not found").verify();
+        verify(bookingRepo,never()).findByPnr(unknown);
+        verify(userRepo,never()).findById("ghost");
+    }
+
+    @Test
+    void testMistypedPnrRejectedWithoutQuery_legacyPnrStillLookedUp() 
+    {
+        String pnr=pnrGenerator.next();
+        char last=pnr.charAt(pnr.length()-1);
+        String mistyped=pnr.substring(0,pnr.length()-1)+(last=='0' ? '1' : '0');
+        when(bookingRepo.findByPnr("PNR1A2B3C4D")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.getTicket(mistyped)).expectErrorMessage("PNR not found").verify();
+        StepVerifier.create(service.cancelBooking("MADEUP")).expectErrorMessage("Invalid PNR").verify();
+        StepVerifier.create(service.getTicket("PNR1A2B3C4D")).expectError(NotFoundException.class).verify();
+        verify(bookingRepo,never()).findByPnr(mistyped);
+        verify(bookingRepo,never()).findByPnr("MADEUP");
+        verify(bookingRepo).findByPnr("PNR1A2B3C4D");
+    }
+
     //getBookingHistoryByEmail()
     @Test
     void testGetBookingHistoryByEmailSuccess() 
@@ -168,9 +708,34 @@ class FlightServiceReactiveImplTest
         Booking booking =new Booking();
         booking .setPnr("PNR100");
         booking .setUserId("user1");
-        when(userRepo.findByEmail("a@test.com")).thenReturn(Mono.just(user));
-        when(bookingRepo.findByUserId("user1")).thenReturn(Flux.just(booking ));
+        when(userRepo.findBookingsByEmail("a@test.com",null)).thenReturn(Flux.just(booking ));
         StepVerifier.create(service.getBookingHistoryByEmail("a@test.com")).expectNext(booking ).verifyComplete();
+        //the join answered it, the user is not read on its own
+        verify(userRepo,never()).findByEmail("a@test.com");
+        verify(bookingRepo,never()).findByUserId("user1");
+    }
+
+    @Test
+    void testGetBookingHistoryByEmailNoBookings() 
+    {
+        when(userRepo.findBookingsByEmail("a@test.com",5)).thenReturn(Flux.empty());
+        when(userRepo.findByEmail("a@test.com")).thenReturn(Mono.just(new User("user1","A","a@test.com")));
+        StepVerifier.create(service.getBookingHistoryByEmail("a@test.com",5)).verifyComplete();
+    }
+
+    @Test
+    void testGetBookingHistoryByEmailUnknownUser() 
+    {
+        when(userRepo.findBookingsByEmail("x@test.com",null)).thenReturn(Flux.empty());
+        when(userRepo.findByEmail("x@test.com")).thenReturn(Mono.empty());
+        StepVerifier.create(service.getBookingHistoryByEmail("x@test.com")).expectError(NotFoundException.class).verify();
+    }
+
+    @Test
+    void testGetBookingHistoryByEmailInvalidLimit() 
+    {
+        StepVerifier.create(service.getBookingHistoryByEmail("a@test.com",0)).expectError(BusinessException.class).verify();
+        verify(userRepo,never()).findBookingsByEmail(anyString(),any());
     }
 
     //getFlightsByAirline()
@@ -181,6 +746,20 @@ class FlightServiceReactiveImplTest
         StepVerifier.create(service.getFlightsByAirline("ai")).expectNext(validFlight).verifyComplete();
     }
     
+    @Test
+    void testGetFlightsByAirlinePage() 
+    {
+        Flight second=new Flight();
+        second.setId("flight2");
+        when(flightRepo.findByAirlineCodeAndIdGreaterThanOrderByIdAsc("ai","flight0",Limit.of(2))).thenReturn(Flux.just(validFlight,second));
+        StepVerifier.create(service.getFlightsByAirline("ai",CursorPage.encodeCursor("flight0"),1))
+            .assertNext(page-> 
+            {
+                assertEquals(List.of(validFlight),page.getItems());
+                assertEquals("flight1",CursorPage.decodeCursor(page.getNextCursor()));
+            }).verifyComplete();
+    }
+
     @Test
     void testGetTicketSuccess() 
     {
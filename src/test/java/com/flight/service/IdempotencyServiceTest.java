@@ -0,0 +1,123 @@
+package com.flight.service;
+
+import com.flight.exception.BusinessException;
+import com.flight.exception.ConflictException;
+import com.flight.repository.inmemory.IdempotencyRecordInMemoryRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest 
+{
+    private IdempotencyService service;
+    private final AtomicInteger calls=new AtomicInteger();
+
+    @BeforeEach
+    void setup() 
+    {
+        service=new IdempotencyService(new InMemoryIdempotencyStore(100,Duration.ofHours(1)),JsonMapper.builder().build(),
+                Duration.ofHours(1),Duration.ofMinutes(1),Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testConcurrentDuplicatesJoinTheRunningCall() 
+    {
+        Sinks.One<String> booking=Sinks.one();
+        Mono<String> first=service.execute("op","k1","body",()->{calls.incrementAndGet(); return booking.asMono();});
+        Mono<String> second=service.execute("op","k1","body",()->{calls.incrementAndGet(); return Mono.just("other");});
+
+        StepVerifier.create(Mono.zip(first,second))
+            .then(()->booking.tryEmitValue("PNR1"))
+            .assertNext(both-> 
+            {
+                assertEquals("PNR1",both.getT1());
+                assertEquals("PNR1",both.getT2());
+            })
+            .verifyComplete();
+        assertEquals(1,calls.get());
+
+        //finished, now answered from the store
+        StepVerifier.create(service.execute("op","k1","body",()->{calls.incrementAndGet(); return Mono.just("other");}))
+            .expectNext("PNR1").verifyComplete();
+        assertEquals(1,calls.get());
+    }
+
+    @Test
+    void testFailureIsNotStored() 
+    {
+        StepVerifier.create(service.execute("op","k2","body",()->Mono.error(new IllegalStateException("down"))))
+            .expectError(IllegalStateException.class).verify();
+        StepVerifier.create(service.execute("op","k2","body",()->Mono.just("PNR2"))).expectNext("PNR2").verifyComplete();
+    }
+
+    @Test
+    void testKeyReusedForDifferentRequestRejected() 
+    {
+        service.execute("op","k3","body",()->Mono.just("PNR3")).block();
+        StepVerifier.create(service.execute("op","k3","other body",()->Mono.just("PNR4")))
+            .expectError(BusinessException.class).verify();
+        //same key under another operation is independent
+        StepVerifier.create(service.execute("op2","k3","other body",()->Mono.just("PNR4"))).expectNext("PNR4").verifyComplete();
+    }
+
+    @Test
+    void testDuplicateOnAnotherInstanceWaitsForTheStoredResult() 
+    {
+        //two instances sharing one store, the in-flight map of one does not see the other
+        MongoIdempotencyStore shared=new MongoIdempotencyStore(new IdempotencyRecordInMemoryRepository(Duration.ZERO));
+        IdempotencyService first=instance(shared,Duration.ofSeconds(10));
+        IdempotencyService second=instance(shared,Duration.ofSeconds(10));
+        Sinks.One<String> booking=Sinks.one();
+
+        StepVerifier.create(first.execute("op","k4","body",()->{calls.incrementAndGet(); return booking.asMono();}))
+            .then(()->StepVerifier.create(second.execute("op","k4","body",()->{calls.incrementAndGet(); return Mono.just("other");}))
+                .then(()->booking.tryEmitValue("PNR4"))
+                .expectNext("PNR4")
+                .verifyComplete())
+            .expectNext("PNR4")
+            .verifyComplete();
+        assertEquals(1,calls.get());
+    }
+
+    @Test
+    void testDuplicateGivesUpWhileTheClaimIsStillRunning() 
+    {
+        MongoIdempotencyStore shared=new MongoIdempotencyStore(new IdempotencyRecordInMemoryRepository(Duration.ZERO));
+        IdempotencyService first=instance(shared,Duration.ofSeconds(10));
+        IdempotencyService second=instance(shared,Duration.ofMillis(200));
+
+        StepVerifier.create(first.execute("op","k5","body",Mono::never))
+            .then(()->StepVerifier.create(second.execute("op","k5","body",()->Mono.just("other")))
+                .expectError(ConflictException.class)
+                .verify())
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testFailureReleasesTheClaim() 
+    {
+        MongoIdempotencyStore shared=new MongoIdempotencyStore(new IdempotencyRecordInMemoryRepository(Duration.ZERO));
+        IdempotencyService first=instance(shared,Duration.ofSeconds(10));
+        IdempotencyService second=instance(shared,Duration.ofMillis(200));
+
+        StepVerifier.create(first.execute("op","k6","body",()->Mono.error(new IllegalStateException("down"))))
+            .expectError(IllegalStateException.class).verify();
+        StepVerifier.create(second.execute("op","k6","body",()->Mono.just("PNR6"))).expectNext("PNR6").verifyComplete();
+    }
+
+    private IdempotencyService instance(IdempotencyStore store, Duration wait) 
+    {
+        return new IdempotencyService(store,JsonMapper.builder().build(),Duration.ofHours(1),Duration.ofMinutes(1),wait);
+    }
+}
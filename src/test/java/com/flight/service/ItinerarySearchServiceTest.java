@@ -0,0 +1,206 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.event.FlightAddedEvent;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.BusinessException;
+import com.flight.repository.FlightRepository;
+import com.flight.request.ITINERARY_SORT;
+import com.flight.request.ItinerarySearchRequest;
+import com.flight.response.FlightSummary;
+import com.flight.response.ItinerarySearchResult;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItinerarySearchServiceTest 
+{
+    @Mock
+    private FlightRepository flightRepo;
+
+    private RouteGraph graph;
+    private ItinerarySearchService service;
+    private final LocalDate day=LocalDate.now().plusDays(10);
+
+    @BeforeEach
+    void setup() 
+    {
+        graph=new RouteGraph(flightRepo);
+        service=new ItinerarySearchService(graph,Duration.ofMinutes(45),Duration.ofHours(12),Duration.ofSeconds(5));
+    }
+
+    private Flight flight(String id, AIRPORT_CODE from, AIRPORT_CODE to, int depHour, int arrHour, float price) 
+    {
+        Flight f=new Flight();
+        f.setId(id);
+        f.setFromCity(from);
+        f.setToCity(to);
+        f.setDepartureTime(day.atTime(depHour,0));
+        f.setArrivalTime(day.atTime(arrHour,0));
+        f.setTotalSeats(100);
+        f.setAvailableSeats(10);
+        f.setPrice(price);
+        f.setStatus(FLIGHT_STATUS.SCHEDULED);
+        graph.onFlightAdded(new FlightAddedEvent(f));
+        return f;
+    }
+
+    private ItinerarySearchRequest request(int maxStops, ITINERARY_SORT sort, int limit) 
+    {
+        ItinerarySearchRequest req=new ItinerarySearchRequest();
+        req.setFrom(AIRPORT_CODE.DEL);
+        req.setTo(AIRPORT_CODE.BLR);
+        req.setDate(day);
+        req.setMaxStops(maxStops);
+        req.setSortBy(sort);
+        req.setLimit(limit);
+        return req;
+    }
+
+    private List<String> legIds(ItinerarySearchResult result, int i) 
+    {
+        return result.getItineraries().get(i).getLegs().stream().map(FlightSummary::getId).toList();
+    }
+
+    @Test
+    void search_directOnly_whenNoStopsAllowed() 
+    {
+        flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        flight("A1",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,6,8,3000);
+        flight("B1",AIRPORT_CODE.BOM,AIRPORT_CODE.BLR,9,10,3000);
+
+        StepVerifier.create(service.search(request(0,ITINERARY_SORT.DURATION,5)))
+                .assertNext(result-> 
+                {
+                    assertTrue(result.isComplete());
+                    assertEquals(1,result.getItineraries().size());
+                    assertEquals(List.of("D1"),legIds(result,0));
+                    assertEquals(180,result.getItineraries().get(0).getDurationMinutes());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void search_connection_respectsMinimumConnectionTime() 
+    {
+        flight("A1",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,6,8,3000);
+        //leaves 30 min after A1 lands, too tight
+        Flight tight=flight("B0",AIRPORT_CODE.BOM,AIRPORT_CODE.BLR,8,10,1000);
+        tight.setDepartureTime(day.atTime(8,30));
+        graph.onFlightAdded(new FlightAddedEvent(tight));
+        flight("B1",AIRPORT_CODE.BOM,AIRPORT_CODE.BLR,9,10,3000);
+
+        StepVerifier.create(service.search(request(1,ITINERARY_SORT.PRICE,5)))
+                .assertNext(result-> 
+                {
+                    assertEquals(1,result.getItineraries().size());
+                    assertEquals(List.of("A1","B1"),legIds(result,0));
+                    assertEquals(1,result.getItineraries().get(0).getStops());
+                    assertEquals(6000,result.getItineraries().get(0).getTotalPrice());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void search_ranksAndKeepsTopK() 
+    {
+        flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        flight("A1",AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,6,8,3000);
+        flight("B1",AIRPORT_CODE.BOM,AIRPORT_CODE.BLR,9,10,3000);
+        flight("A2",AIRPORT_CODE.DEL,AIRPORT_CODE.HYD,5,7,1000);
+        flight("C1",AIRPORT_CODE.HYD,AIRPORT_CODE.BLR,18,19,1000);
+
+        StepVerifier.create(service.search(request(1,ITINERARY_SORT.PRICE,2)))
+                .assertNext(result-> 
+                {
+                    assertEquals(2,result.getItineraries().size());
+                    assertEquals(List.of("A2","C1"),legIds(result,0));
+                    assertEquals(List.of("A1","B1"),legIds(result,1));
+                })
+                .verifyComplete();
+
+        StepVerifier.create(service.search(request(1,ITINERARY_SORT.DURATION,1)))
+                .assertNext(result->assertEquals(List.of("D1"),legIds(result,0)))
+                .verifyComplete();
+    }
+
+    @Test
+    void search_soldOutFlightLeavesGraph_andReturnsAfterRelease() 
+    {
+        Flight direct=flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        direct.setAvailableSeats(0);
+        graph.onSeatsChanged(new SeatsChangedEvent(direct));
+
+        StepVerifier.create(service.search(request(0,ITINERARY_SORT.DURATION,5)))
+                .assertNext(result->assertTrue(result.getItineraries().isEmpty()))
+                .verifyComplete();
+
+        direct.setAvailableSeats(1);
+        graph.onSeatsChanged(new SeatsChangedEvent(direct));
+        StepVerifier.create(service.search(request(0,ITINERARY_SORT.DURATION,5)))
+                .assertNext(result->assertEquals(1,result.getItineraries().size()))
+                .verifyComplete();
+        assertEquals(1,graph.size());
+    }
+
+    @Test
+    void graph_concurrentUpdatesOfOneFlight_leaveOneCopy_olderChangeIgnored() throws Exception 
+    {
+        flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        ExecutorService pool=Executors.newFixedThreadPool(4);
+        try 
+        {
+            for (int t=0;t<4;t++) 
+            {
+                int hour=6+t;
+                //each thread moves the flight to its own departure time, an unguarded update leaves several copies behind
+                pool.submit(()->IntStream.range(0,500).forEach(i-> 
+                {
+                    Flight moved=flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,hour,hour+3,9000);
+                    graph.onSeatsChanged(new SeatsChangedEvent(moved));
+                }));
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10,TimeUnit.SECONDS));
+        }
+        finally 
+        {
+            pool.shutdownNow();
+        }
+        assertEquals(1,graph.departures(AIRPORT_CODE.DEL,day.atStartOfDay(),day.plusDays(1).atStartOfDay()).size());
+
+        Flight newer=flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        newer.setSeatVersion(2);
+        graph.onSeatsChanged(new SeatsChangedEvent(newer));
+        Flight older=flight("D1",AIRPORT_CODE.DEL,AIRPORT_CODE.BLR,8,11,9000);
+        older.setSeatVersion(1);
+        older.setAvailableSeats(0);
+        graph.onSeatsChanged(new SeatsChangedEvent(older));
+        assertEquals(1,graph.size());
+    }
+
+    @Test
+    void search_sameOriginAndDestination_rejected() 
+    {
+        ItinerarySearchRequest req=request(1,ITINERARY_SORT.DURATION,5);
+        req.setTo(AIRPORT_CODE.DEL);
+        StepVerifier.create(service.search(req)).expectError(BusinessException.class).verify();
+    }
+}
@@ -0,0 +1,46 @@
+package com.flight.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PnrGeneratorTest 
+{
+    private final PnrGenerator generator=new PnrGenerator();
+
+    @Test
+    void next_isShortValidAndUnique() 
+    {
+        Set<String> seen=new HashSet<>();
+        for (int i=0;i<100_000;i++) 
+        {
+            String pnr=generator.next();
+            assertEquals(PnrGenerator.DATA_LENGTH+1,pnr.length());
+            assertTrue(pnr.chars().allMatch(c->PnrGenerator.ALPHABET.indexOf(c)>=0),pnr);
+            assertTrue(PnrGenerator.isValid(pnr),pnr);
+            assertTrue(seen.add(pnr),"duplicate "+pnr);
+        }
+    }
+
+    @Test
+    void isValid_catchesMistypedCharacterAndSwap() 
+    {
+        String pnr=generator.next();
+        for (int i=0;i<pnr.length();i++) 
+        {
+            for (char c:PnrGenerator.ALPHABET.toCharArray()) 
+            {
+                if (c!=pnr.charAt(i)) 
+                {
+                    assertFalse(PnrGenerator.isValid(pnr.substring(0,i)+c+pnr.substring(i+1)));
+                }
+            }
+        }
+        assertFalse(PnrGenerator.isValid("PNR1A2B3C4D"));
+        assertFalse(PnrGenerator.isValid(null));
+        assertFalse(PnrGenerator.isValid(pnr.substring(1)));
+    }
+}
@@ -0,0 +1,137 @@
+package com.flight.service;
+
+import com.flight.exception.NotFoundException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+import reactor.test.publisher.TestPublisher;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest 
+{
+    private final RequestCoalescer<String,String> coalescer=new RequestCoalescer<>();
+    private final AtomicInteger loads=new AtomicInteger();
+
+    @Test
+    void testConcurrentCallersShareOneLoad() 
+    {
+        TestPublisher<String> source=TestPublisher.create();
+        Mono<String> first=coalescer.execute("F1",()->load(source.mono()));
+        Mono<String> second=coalescer.execute("F1",()->load(source.mono()));
+
+        StepVerifier.create(Mono.zip(first,second))
+            .then(()->source.emit("flight"))
+            .assertNext(both->assertEquals(both.getT1(),both.getT2()))
+            .verifyComplete();
+        assertEquals(1,loads.get());
+        assertEquals(2,coalescer.calls());
+        assertEquals(0,coalescer.inFlight());
+    }
+
+    @Test
+    void testDifferentKeysAndLaterCallsLoadAgain() 
+    {
+        StepVerifier.create(coalescer.execute("F1",()->load(Mono.just("a")))).expectNext("a").verifyComplete();
+        StepVerifier.create(coalescer.execute("F1",()->load(Mono.just("b")))).expectNext("b").verifyComplete();
+        StepVerifier.create(coalescer.execute("F2",()->load(Mono.just("c")))).expectNext("c").verifyComplete();
+        assertEquals(3,loads.get());
+    }
+
+    @Test
+    void testErrorReachesEveryWaiterThenNextCallRetries() 
+    {
+        TestPublisher<String> source=TestPublisher.create();
+        Mono<String> first=coalescer.execute("F1",()->load(source.mono()));
+        Mono<String> second=coalescer.execute("F1",()->load(source.mono()));
+        StepVerifier firstStep=StepVerifier.create(first).expectError(NotFoundException.class).verifyLater();
+        StepVerifier.create(second)
+            .then(()->source.error(new NotFoundException("Flight not found")))
+            .expectError(NotFoundException.class)
+            .verify();
+        firstStep.verify();
+        assertEquals(0,coalescer.inFlight());
+
+        StepVerifier.create(coalescer.execute("F1",()->load(Mono.just("flight")))).expectNext("flight").verifyComplete();
+        assertEquals(2,loads.get());
+    }
+
+    @Test
+    void testEntryGoesAwayBeforeTheValueReachesWaiters() 
+    {
+        TestPublisher<String> source=TestPublisher.create();
+        AtomicInteger inFlightWhenDelivered=new AtomicInteger(-1);
+        StepVerifier.create(coalescer.execute("F1",()->load(source.mono())).doOnNext(value->inFlightWhenDelivered.set(coalescer.inFlight())))
+            .then(()->source.emit("flight"))
+            .expectNext("flight")
+            .verifyComplete();
+        //a caller arriving now starts a new load instead of joining one that is already over
+        assertEquals(0,inFlightWhenDelivered.get());
+    }
+
+    @Test
+    void testEmptyResultReachesEveryWaiterAsEmpty() 
+    {
+        TestPublisher<String> source=TestPublisher.create();
+        Mono<String> first=coalescer.execute("F1",()->load(source.mono()));
+        Mono<String> second=coalescer.execute("F1",()->load(source.mono()));
+        StepVerifier firstStep=StepVerifier.create(first).expectComplete().verifyLater();
+        StepVerifier.create(second)
+            .then(source::complete)
+            .verifyComplete();
+        firstStep.verify();
+        assertEquals(1,loads.get());
+    }
+
+    @Test
+    void testOneWaiterCancellingOthersStillGetTheValue() 
+    {
+        TestPublisher<String> source=TestPublisher.create();
+        Disposable cancelled=coalescer.execute("F1",()->load(source.mono())).subscribe();
+        StepVerifier.create(coalescer.execute("F1",()->load(source.mono())))
+            .then(cancelled::dispose)
+            .then(()->source.emit("flight"))
+            .expectNext("flight")
+            .verifyComplete();
+        assertEquals(1,loads.get());
+    }
+
+    @Test
+    void testAllWaitersCancellingCancelsTheLoad() 
+    {
+        PublisherProbe<String> probe=PublisherProbe.of(Mono.never());
+        Disposable first=coalescer.execute("F1",()->load(probe.mono())).subscribe();
+        Disposable second=coalescer.execute("F1",()->load(probe.mono())).subscribe();
+        first.dispose();
+        probe.assertWasNotCancelled();
+        second.dispose();
+        probe.assertWasCancelled();
+        assertEquals(0,coalescer.inFlight());
+    }
+
+    @Test
+    void testMetricsReportCallsAndLoadsPerLookup() 
+    {
+        MeterRegistry registry=new SimpleMeterRegistry();
+        coalescer.bindTo(registry,"flight");
+        coalescer.execute("F1",()->load(Mono.just("a"))).block();
+        assertEquals(1,registry.get("flight.coalescing.calls").tag("lookup","flight").functionCounter().count());
+        assertEquals(1,registry.get("flight.coalescing.loads").tag("lookup","flight").functionCounter().count());
+        assertEquals(0,registry.get("flight.coalescing.in-flight").tag("lookup","flight").gauge().value());
+    }
+
+    private Mono<String> load(Mono<String> source) 
+    {
+        loads.incrementAndGet();
+        return source;
+    }
+}
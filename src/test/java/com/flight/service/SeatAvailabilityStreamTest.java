@@ -0,0 +1,176 @@
+package com.flight.service;
+
+import com.flight.entity.Flight;
+import com.flight.entity.SeatMap;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.NotFoundException;
+import com.flight.repository.FlightRepository;
+import com.flight.response.SeatAvailability;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatAvailabilityStreamTest 
+{
+    @Mock
+    private FlightRepository flightRepo;
+
+    private SeatAvailabilityStream stream;
+
+    @BeforeEach
+    void setup() 
+    {
+        stream=new SeatAvailabilityStream(flightRepo);
+    }
+
+    private Flight flight(String id, int available, String... seats) 
+    {
+        Flight f=new Flight();
+        f.setId(id);
+        f.setTotalSeats(10);
+        f.setAvailableSeats(available);
+        f.setSeatMap(SeatMap.masks(List.of(seats)));
+        //every change in these tests books seats, so the version follows the booked count
+        f.setSeatVersion(10-available);
+        return f;
+    }
+
+    @Test
+    void testWatchersShareOneReadAndGetChangesOfTheirFlight() 
+    {
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight("F1",10)));
+
+        StepVerifier.create(stream.watch("F1"))
+            .assertNext(seats->assertEquals(10,seats.getAvailableSeats()))
+            .then(()->StepVerifier.create(stream.watch("F1").take(1))
+                    //late joiner gets the latest value without another read
+                    .assertNext(seats->assertEquals(10,seats.getAvailableSeats()))
+                    .verifyComplete())
+            .then(()->stream.onSeatsChanged(new SeatsChangedEvent(flight("F2",3))))
+            .then(()->stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",8,"A1","A2"))))
+            .assertNext(seats-> 
+            {
+                assertEquals(8,seats.getAvailableSeats());
+                assertEquals(List.of("A1","A2"),seats.getOccupiedSeats());
+            })
+            .thenCancel()
+            .verify();
+        verify(flightRepo,times(1)).findById("F1");
+        assertEquals(0,stream.watchedFlights());
+    }
+
+    @Test
+    void testSlowWatcherGetsOnlyLatestValue() 
+    {
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight("F1",10)));
+
+        StepVerifier.create(stream.watch("F1"),1)
+            .assertNext(seats->assertEquals(10,seats.getAvailableSeats()))
+            .then(()-> 
+            {
+                for (int left=9;left>=5;left--) 
+                {
+                    stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",left)));
+                }
+            })
+            .thenRequest(1)
+            .assertNext(seats->assertEquals(5,seats.getAvailableSeats()))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testStaleChangeIsDropped() 
+    {
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight("F1",10)));
+
+        StepVerifier.create(stream.watch("F1"))
+            .assertNext(seats->assertEquals(10,seats.getAvailableSeats()))
+            .then(()->stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",7))))
+            .assertNext(seats->assertEquals(7,seats.getAvailableSeats()))
+            //published after the newer one by a booking that finished first
+            .then(()->stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",8))))
+            .then(()->stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",6))))
+            .assertNext(seats->assertEquals(6,seats.getAvailableSeats()))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testConcurrentChangesWatcherEndsOnTheNewest() throws Exception 
+    {
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight("F1",10)));
+        AtomicLong versions=new AtomicLong();
+        List<Long> received=new CopyOnWriteArrayList<>();
+        Disposable watcher=stream.watch("F1").subscribe(seats->received.add(seats.getSeatVersion()));
+        ExecutorService pool=Executors.newFixedThreadPool(4);
+        try 
+        {
+            for (int t=0;t<4;t++) 
+            {
+                pool.submit(()->IntStream.range(0,250).forEach(i-> 
+                {
+                    Flight changed=flight("F1",5);
+                    changed.setSeatVersion(versions.incrementAndGet());
+                    stream.onSeatsChanged(new SeatsChangedEvent(changed));
+                }));
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10,TimeUnit.SECONDS));
+        }
+        finally 
+        {
+            pool.shutdownNow();
+        }
+        //no emit failed on a concurrent one, and a watcher never went back to an older snapshot
+        assertEquals(1000L,received.get(received.size()-1));
+        for (int i=1;i<received.size();i++) 
+        {
+            assertTrue(received.get(i)>received.get(i-1));
+        }
+        watcher.dispose();
+        assertEquals(0,stream.watchedFlights());
+    }
+
+    @Test
+    void testLastWatcherLeavingDropsTheFlightNextWatcherReadsAgain() 
+    {
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight("F1",10)));
+
+        StepVerifier.create(stream.watch("F1").take(1)).expectNextCount(1).verifyComplete();
+        assertEquals(0,stream.watchedFlights());
+        //nobody watches, the change goes nowhere
+        stream.onSeatsChanged(new SeatsChangedEvent(flight("F1",4)));
+        StepVerifier.create(stream.watch("F1").take(1))
+            .assertNext(seats->assertEquals(10,seats.getAvailableSeats()))
+            .verifyComplete();
+        verify(flightRepo,times(2)).findById("F1");
+    }
+
+    @Test
+    void testUnknownFlightErrors() 
+    {
+        when(flightRepo.findById("X")).thenReturn(Mono.empty());
+        StepVerifier.create(stream.watch("X")).expectError(NotFoundException.class).verify();
+        assertEquals(0,stream.watchedFlights());
+    }
+}
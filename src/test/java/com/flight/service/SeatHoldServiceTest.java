@@ -0,0 +1,147 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.event.SeatsChangedEvent;
+import com.flight.exception.BusinessException;
+import com.flight.exception.NotFoundException;
+import com.flight.exception.SeatUnavailableException;
+import com.flight.repository.FlightRepository;
+import com.flight.repository.SeatHoldRepository;
+import com.flight.repository.UserRepository;
+import com.flight.request.BookingRequest;
+import com.flight.request.PassengerRequest;
+import com.flight.request.SeatHoldRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatHoldServiceTest 
+{
+    @Mock
+    private FlightRepository flightRepo;
+    @Mock
+    private UserRepository userRepo;
+    @Mock
+    private SeatHoldRepository holdRepo;
+    @Mock
+    private ApplicationEventPublisher events;
+
+    private SeatHoldService service;
+    private Flight flight;
+
+    @BeforeEach
+    void setup() 
+    {
+        service=new SeatHoldService(flightRepo,userRepo,holdRepo,events,Duration.ofMinutes(10),Duration.ofSeconds(30),2);
+        flight=new Flight();
+        flight.setId("F1");
+        flight.setTotalSeats(100);
+        flight.setAvailableSeats(100);
+    }
+
+    private SeatHoldRequest holdRequest(String... seats) 
+    {
+        SeatHoldRequest req=new SeatHoldRequest();
+        req.setUserId("U1");
+        req.setSeatNumbers(List.of(seats));
+        return req;
+    }
+
+    private SeatHold hold(String token, String flightId, String... seats) 
+    {
+        return new SeatHold(token,flightId,"U1",List.of(seats),LocalDateTime.now().minusMinutes(1));
+    }
+
+    @Test
+    void hold_reservesSeatsAndStoresHold() 
+    {
+        when(userRepo.findById("U1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight));
+        when(flightRepo.reserveSeats("F1",List.of("A1","A2"))).thenReturn(Mono.just(flight));
+        when(holdRepo.insert(any(SeatHold.class))).thenAnswer(inv->Mono.just(inv.getArgument(0)));
+
+        StepVerifier.create(service.hold("F1",holdRequest("A1","A2")))
+            .assertNext(hold-> 
+            {
+                assertNotNull(hold.getToken());
+                assertEquals("F1",hold.getFlightId());
+                assertTrue(hold.getExpiresAt().isAfter(LocalDateTime.now().plusMinutes(9)));
+            })
+            .verifyComplete();
+        verify(events).publishEvent(new SeatsChangedEvent(flight));
+    }
+
+    @Test
+    void hold_seatAlreadyTaken() 
+    {
+        flight.setSeatMap(SeatMap.masks(List.of("A2")));
+        when(userRepo.findById("U1")).thenReturn(Mono.just(new User()));
+        when(flightRepo.findById("F1")).thenReturn(Mono.just(flight));
+
+        StepVerifier.create(service.hold("F1",holdRequest("A1","A2"))).expectError(SeatUnavailableException.class).verify();
+        verify(flightRepo,never()).reserveSeats(any(),any());
+        verifyNoInteractions(holdRepo);
+    }
+
+    @Test
+    void claim_rejectsBookingForOtherSeats() 
+    {
+        BookingRequest req=new BookingRequest();
+        req.setUserId("U1");
+        PassengerRequest passenger=new PassengerRequest();
+        passenger.setSeatNumber("B1");
+        req.setPassengers(List.of(passenger));
+        when(holdRepo.findById("T1")).thenReturn(Mono.just(hold("T1","F1","A1")));
+
+        StepVerifier.create(service.claim("T1","F1",req)).expectError(BusinessException.class).verify();
+        verify(holdRepo,never()).claimActive(any(),any());
+    }
+
+    @Test
+    void release_unknownHold() 
+    {
+        when(holdRepo.claimActive(eq("T9"),any())).thenReturn(Mono.empty());
+        StepVerifier.create(service.release("T9")).expectError(NotFoundException.class).verify();
+        verifyNoInteractions(flightRepo);
+    }
+
+    @Test
+    void sweep_releasesExpiredHoldsPerFlightInBatches() 
+    {
+        LocalDateTime now=LocalDateTime.now();
+        SeatHold h1=hold("T1","F1","A1");
+        SeatHold h2=hold("T2","F1","A2");
+        SeatHold h3=hold("T3","F2","C3");
+        when(holdRepo.findByExpiresAtLessThanEqualOrderByExpiresAtAsc(eq(now),any(Limit.class)))
+            .thenReturn(Flux.just(h1,h2),Flux.just(h3));
+        when(holdRepo.claimExpired("T1",now)).thenReturn(Mono.just(h1));
+        when(holdRepo.claimExpired("T2",now)).thenReturn(Mono.just(h2));
+        //T3 was booked in the meantime
+        when(holdRepo.claimExpired("T3",now)).thenReturn(Mono.empty());
+        when(flightRepo.releaseSeats("F1",List.of("A1","A2"))).thenReturn(Mono.just(flight));
+
+        StepVerifier.create(service.sweep(now)).expectNext(2L).verifyComplete();
+        //first batch was full so a second one was read, the short second batch ends the sweep
+        verify(holdRepo,times(2)).findByExpiresAtLessThanEqualOrderByExpiresAtAsc(eq(now),any(Limit.class));
+        verify(flightRepo,never()).releaseSeats(eq("F2"),any());
+        verify(events).publishEvent(new SeatsChangedEvent(flight));
+    }
+}
@@ -0,0 +1,83 @@
+package com.flight.service;
+
+import com.flight.entity.*;
+import com.flight.repository.TripViewRepository;
+import com.flight.repository.inmemory.TripViewInMemoryRepository;
+import com.flight.request.TRIP_FILTER;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+class TripViewProjectionTest 
+{
+    private final TripViewInMemoryRepository viewRepo=new TripViewInMemoryRepository(Duration.ZERO);
+    private final TripViewProjection projection=new TripViewProjection(viewRepo);
+    private final LocalDateTime now=LocalDateTime.now();
+
+    @Test
+    void trips_splitAtNow_upcomingSoonestFirst_pastMostRecentFirst() 
+    {
+        Flight lastMonth=flight("F1",now.minusDays(30));
+        Flight yesterday=flight("F2",now.minusDays(1));
+        Flight nextWeek=flight("F3",now.plusDays(7));
+        Flight tomorrow=flight("F4",now.plusDays(1));
+        for (Flight flight:List.of(lastMonth,yesterday,nextWeek,tomorrow)) 
+        {
+            projection.booked(booking("P"+flight.getId(),"U1",flight.getId()),flight).block();
+        }
+        projection.booked(booking("OTHER","U2","F4"),tomorrow).block();
+
+        assertEquals(List.of("PF4","PF3"),pnrs(TRIP_FILTER.UPCOMING));
+        assertEquals(List.of("PF2","PF1"),pnrs(TRIP_FILTER.PAST));
+        assertEquals(List.of("PF1","PF2","PF4","PF3"),pnrs(TRIP_FILTER.ALL));
+    }
+
+    @Test
+    void failedWrite_completesAndIsCounted() 
+    {
+        TripViewRepository failing=mock(TripViewRepository.class);
+        when(failing.saveAll(anyIterable())).thenReturn(Flux.error(new RuntimeException("views down")));
+        TripViewProjection failingProjection=new TripViewProjection(failing);
+        MeterRegistry registry=new SimpleMeterRegistry();
+        failingProjection.bindTo(registry);
+
+        StepVerifier.create(failingProjection.booked(booking("A","U1","F1"),flight("F1",now))).verifyComplete();
+        assertEquals(1,registry.get("flight.trips.projection.failures").functionCounter().count());
+    }
+
+    private List<String> pnrs(TRIP_FILTER filter) 
+    {
+        return projection.trips("U1",filter).map(TripView::getPnr).collectList().block();
+    }
+
+    private static Flight flight(String id, LocalDateTime departure) 
+    {
+        return new Flight(id,"AI","AI"+id,AIRPORT_CODE.DEL,AIRPORT_CODE.BOM,departure,departure.plusHours(2),
+                10,10,4500,FLIGHT_STATUS.SCHEDULED,new HashMap<>(),0,true);
+    }
+
+    private static Booking booking(String pnr, String userId, String flightId) 
+    {
+        Booking booking=new Booking();
+        booking.setPnr(pnr);
+        booking.setUserId(userId);
+        booking.setFlightId(flightId);
+        booking.setSeatsBooked(1);
+        booking.setPassengers(List.of(new Passenger(null,"P",GENDER.M,30,"A1",null)));
+        return booking;
+    }
+}